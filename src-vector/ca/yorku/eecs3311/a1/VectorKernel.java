@@ -0,0 +1,95 @@
+package ca.yorku.eecs3311.a1;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * OthelloBoard.legalMoves and OthelloBoard.flips on the Vector API, four
+ * directions at a time, one per lane of a 256 bit vector.
+ *
+ * legalMoves grows the runs of the four shift amounts (E/W, SW/NE, S/N, SE/NW)
+ * side by side, left shifts in one vector and right shifts in another, as the
+ * scalar loop does one direction at a time. flips looks along the 8 rays from
+ * the square: directions 0-3 on the board, where the closest square of a ray
+ * is its lowest bit, and directions 4-7 on the bit reversed board, where it is
+ * the lowest bit too, so both halves find it with x & -x.
+ *
+ * Compile and run with --add-modules jdk.incubator.vector, and enable with
+ * -Dothello.vector=true.
+ *
+ * @author ilir & leroy
+ */
+final class VectorKernel implements BitboardKernel {
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_256;
+	private static final int LANES = 4;
+	private static final long NOT_FIRST_COL = 0xFEFEFEFEFEFEFEFEL;
+	private static final long NOT_LAST_COL = 0x7F7F7F7F7F7F7F7FL;
+
+	private static final LongVector SHIFTS = LongVector.fromArray(SPECIES, new long[] { 1, 7, 8, 9 }, 0);
+	private static final LongVector LEFT_MASKS = LongVector.fromArray(SPECIES,
+			new long[] { NOT_FIRST_COL, NOT_LAST_COL, -1L, NOT_FIRST_COL }, 0);
+	private static final LongVector RIGHT_MASKS = LongVector.fromArray(SPECIES,
+			new long[] { NOT_LAST_COL, NOT_FIRST_COL, -1L, NOT_LAST_COL }, 0);
+
+	/**
+	 * LOW_RAYS[square*4+dir] is ray dir of square, HIGH_RAYS[square*4+dir] is
+	 * ray 4+dir of square, bit reversed.
+	 */
+	private static final long[] LOW_RAYS = new long[64 * LANES];
+	private static final long[] HIGH_RAYS = new long[64 * LANES];
+	static {
+		for (int square = 0; square < 64; square++) {
+			for (int dir = 0; dir < LANES; dir++) {
+				LOW_RAYS[square * LANES + dir] = OthelloBoard.ray(dir, square);
+				HIGH_RAYS[square * LANES + dir] = Long.reverse(OthelloBoard.ray(LANES + dir, square));
+			}
+		}
+	}
+
+	@Override
+	public long legalMoves(long own, long opp, long squares) {
+		long empty = squares & ~(own | opp);
+		LongVector left = LEFT_MASKS.and(squares), right = RIGHT_MASKS.and(squares);
+		LongVector leftOpp = left.and(opp), rightOpp = right.and(opp);
+		LongVector owns = LongVector.broadcast(SPECIES, own);
+
+		// Unrolled, as vectors carried around a loop are boxed on every trip
+
+		LongVector x = owns.lanewise(VectorOperators.LSHL, SHIFTS).and(leftOpp);
+		x = x.or(x.lanewise(VectorOperators.LSHL, SHIFTS).and(leftOpp));
+		x = x.or(x.lanewise(VectorOperators.LSHL, SHIFTS).and(leftOpp));
+		x = x.or(x.lanewise(VectorOperators.LSHL, SHIFTS).and(leftOpp));
+		x = x.or(x.lanewise(VectorOperators.LSHL, SHIFTS).and(leftOpp));
+		x = x.or(x.lanewise(VectorOperators.LSHL, SHIFTS).and(leftOpp));
+		LongVector y = owns.lanewise(VectorOperators.LSHR, SHIFTS).and(rightOpp);
+		y = y.or(y.lanewise(VectorOperators.LSHR, SHIFTS).and(rightOpp));
+		y = y.or(y.lanewise(VectorOperators.LSHR, SHIFTS).and(rightOpp));
+		y = y.or(y.lanewise(VectorOperators.LSHR, SHIFTS).and(rightOpp));
+		y = y.or(y.lanewise(VectorOperators.LSHR, SHIFTS).and(rightOpp));
+		y = y.or(y.lanewise(VectorOperators.LSHR, SHIFTS).and(rightOpp));
+		LongVector moves = x.lanewise(VectorOperators.LSHL, SHIFTS).and(left)
+				.or(y.lanewise(VectorOperators.LSHR, SHIFTS).and(right));
+		return moves.reduceLanes(VectorOperators.OR) & empty;
+	}
+
+	@Override
+	public long flips(int square, long own, long opp, long squares) {
+		long low = runs(LOW_RAYS, square, own, opp, squares);
+		long high = runs(HIGH_RAYS, square, Long.reverse(own), Long.reverse(opp), Long.reverse(squares));
+		return low | Long.reverse(high);
+	}
+
+	/**
+	 * @return the runs of opp closed by own along the 4 rays of square in rays,
+	 *         whose closest squares are their lowest bits
+	 */
+	private static long runs(long[] rays, int square, long own, long opp, long squares) {
+		LongVector ray = LongVector.fromArray(SPECIES, rays, square * LANES).and(squares);
+		LongVector stop = ray.and(~opp);                                     // Squares that end a run of opp
+		LongVector first = stop.and(stop.neg());                             // Closest of them, 0 if the run reaches the edge
+		VectorMask<Long> closed = first.and(own).compare(VectorOperators.NE, 0);
+		return ray.and(first.sub(1)).reduceLanes(VectorOperators.OR, closed); // Ray squares before first
+	}
+}
@@ -0,0 +1,206 @@
+package ca.yorku.eecs3311.a1;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Micro benchmarks of the hot paths: making and taking back moves, finding
+ * valid moves, flips and mobility, Symmetry.canonicalKey, PlayerGreedy and
+ * PlayerRandom choosing a move, whole Random vs Greedy games on 8x8 and 16x16
+ * boards, OthelloSimulation's throughput and PlayerMCTS playouts. Board and
+ * player benchmarks run on an opening, a middle game and an endgame position.
+ *
+ * Each benchmark warms up first, so the JIT has compiled it, then runs several
+ * timed iterations. The report gives the mean time per operation with its
+ * spread over iterations, and the bytes allocated per operation, over all
+ * threads (from com.sun.management.ThreadMXBean, where the JVM has it).
+ * Every result is folded into a sink, so the JIT can not drop the work.
+ *
+ * Run with an optional name filter, for example "Benchmarks greedy". The
+ * report starts with the kernel legalMoves and flips run on, see
+ * OthelloBoard.KERNEL, so runs with and without -Dothello.vector=true can be
+ * compared.
+ *
+ * @author ilir & leroy
+ */
+public class Benchmarks {
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int ITERATIONS = 5;
+	private static final long WARMUP_NANOS = 200000000L;                     // Per warmup iteration
+	private static final long ITERATION_NANOS = 500000000L;                  // Per timed iteration
+	private static final int POSITION_SEED = 3311;
+
+	private static long sink;                                                // Every result ends up here
+
+	/**
+	 * A game position reached by replaying seeded random moves.
+	 */
+	private static class Position {
+		final String name;
+		final Othello game;
+
+		Position(String name, int plies) {
+			this.name = name;
+			this.game = new Othello();
+			SplittableRandom random = new SplittableRandom(POSITION_SEED);
+			PlayerRandom p1 = new PlayerRandom(game, OthelloBoard.P1, random.split());
+			PlayerRandom p2 = new PlayerRandom(game, OthelloBoard.P2, random.split());
+			for (int ply = 0; ply < plies && !game.isGameOver(); ply++) {
+				Move move = game.getWhosTurn() == OthelloBoard.P1 ? p1.getMove() : p2.getMove();
+				if (move == null) {
+					game.passTurn();
+				} else {
+					game.move(move.getRow(), move.getCol());
+				}
+			}
+		}
+	}
+
+	private static final Position[] POSITIONS = { new Position("opening", 4), new Position("middle", 30),
+			new Position("endgame", 52) };
+
+	private static class Benchmark {
+		final String name;
+		final LongSupplier operation;                                        // One operation per call
+
+		Benchmark(String name, LongSupplier operation) {
+			this.name = name;
+			this.operation = operation;
+		}
+	}
+
+	private static List<Benchmark> benchmarks() {
+		List<Benchmark> benchmarks = new ArrayList<>();
+		for (Position position : POSITIONS) {
+			char player = position.game.getWhosTurn();
+			OthelloBoard board = new OthelloBoard(position.game.getBoard());
+			long legalMoves = board.getLegalMoves(player);
+			int square = Long.numberOfTrailingZeros(legalMoves);
+			int row = OthelloBoard.rowOf(square), col = OthelloBoard.colOf(square);
+
+			benchmarks.add(new Benchmark("makeMove+undoMove " + position.name, () -> {
+				long flipped = board.makeMove(row, col, player);
+				board.undoMove();
+				return flipped;
+			}));
+			benchmarks.add(new Benchmark("move (on a copy) " + position.name, () -> {
+				OthelloBoard copy = new OthelloBoard(board);
+				return copy.move(row, col, player) ? 1 : 0;
+			}));
+			benchmarks.add(new Benchmark("getLegalMoves " + position.name, () -> board.getLegalMoves(player)));
+			benchmarks.add(new Benchmark("hasMove " + position.name, () -> board.hasMove()));
+			long own = board.getTokens(player), opp = board.getTokens(OthelloBoard.otherPlayer(player));
+			long squares = board.getSquares();
+			benchmarks.add(new Benchmark("flips, every move " + position.name, () -> {
+				long flipped = 0;
+				for (long moves = legalMoves; moves != 0; moves &= moves - 1) {
+					flipped ^= OthelloBoard.flips(Long.numberOfTrailingZeros(moves), own, opp, squares);
+				}
+				return flipped;
+			}));
+			benchmarks.add(new Benchmark("mobility " + position.name, () -> Long.bitCount(OthelloBoard.legalMoves(own,
+					opp, squares)) - Long.bitCount(OthelloBoard.legalMoves(opp, own, squares))));
+			benchmarks.add(new Benchmark("canonicalKey " + position.name, () -> Symmetry.canonicalKey(board, player)));
+			PlayerGreedy greedy = new PlayerGreedy(position.game, player);
+			benchmarks.add(new Benchmark("greedy getMove " + position.name, () -> greedy.getMove().getRow()));
+			PlayerRandom random = new PlayerRandom(position.game, player, POSITION_SEED);
+			benchmarks.add(new Benchmark("random getMove " + position.name, () -> random.getMove().getRow()));
+		}
+
+		SplittableRandom seeds = new SplittableRandom(POSITION_SEED);
+		benchmarks.add(new Benchmark("game Random vs Greedy", () -> Tournament.playGame(PlayerRandom::new,
+				(othello, player, seed) -> new PlayerGreedy(othello, player), seeds.nextLong())));
+		benchmarks.add(new Benchmark("game Random vs Greedy 16x16", () -> Tournament.playGame(PlayerRandom::new,
+				(othello, player, seed) -> new PlayerGreedy(othello, player), seeds.nextLong(), 16)));
+		benchmarks.add(new Benchmark("simulate 1000 games", () -> OthelloSimulation.simulate(1000, seeds.nextLong())
+				.getGames()));
+		Othello opening = POSITIONS[0].game;
+		PlayerMCTS mcts = new PlayerMCTS(opening, opening.getWhosTurn(), 60000, 1000, 1, POSITION_SEED);
+		benchmarks.add(new Benchmark("MCTS getMove 1000 playouts", () -> mcts.getMove().getRow()));
+		return benchmarks;
+	}
+
+	/**
+	 * @return bytes allocated so far by every live thread, -1 if the JVM does
+	 *         not say
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+		long total = 0;
+		for (long bytes : ((com.sun.management.ThreadMXBean) threads)
+				.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			total += Math.max(0, bytes);
+		}
+		return total;
+	}
+
+	/**
+	 * Call operation for about nanos nanoseconds.
+	 *
+	 * @return the number of calls
+	 */
+	private static long iterate(LongSupplier operation, long nanos) {
+		long calls = 0, batch = 1;
+		long start = System.nanoTime();
+		while (System.nanoTime() - start < nanos) {
+			for (long i = 0; i < batch; i++) {
+				sink += operation.getAsLong();
+			}
+			calls += batch;
+			if (batch < 1 << 16) {
+				batch *= 2;                                                  // Check the clock less often for fast operations
+			}
+		}
+		return calls;
+	}
+
+	private static void run(Benchmark benchmark) {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iterate(benchmark.operation, WARMUP_NANOS);
+		}
+		double[] nanosPerOp = new double[ITERATIONS];
+		long totalCalls = 0;
+		long bytesBefore = allocatedBytes();
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			long calls = iterate(benchmark.operation, ITERATION_NANOS);
+			nanosPerOp[i] = (double) (System.nanoTime() - start) / calls;
+			totalCalls += calls;
+		}
+		long bytes = allocatedBytes() - bytesBefore;
+
+		double mean = 0, variance = 0;
+		for (double n : nanosPerOp) {
+			mean += n / ITERATIONS;
+		}
+		for (double n : nanosPerOp) {
+			variance += (n - mean) * (n - mean) / (ITERATIONS - 1);
+		}
+		String allocation = bytesBefore < 0 ? "n/a" : String.format("%.1f", (double) bytes / totalCalls);
+		System.out.printf("%-34s %14.1f +- %-9.1f %14.0f %12s%n", benchmark.name, mean, Math.sqrt(variance),
+				1e9 / mean, allocation);
+	}
+
+	/**
+	 * Run every benchmark whose name contains the filter.
+	 *
+	 * @param args optional filter, case insensitive
+	 */
+	public static void main(String[] args) {
+		String filter = args.length > 0 ? args[0].toLowerCase() : "";
+		System.out.println("kernel: " + (OthelloBoard.isVectorized() ? "vector" : "scalar"));
+		System.out.printf("%-34s %14s    %-9s %14s %12s%n", "benchmark", "ns/op", "error", "ops/s", "B/op");
+		for (Benchmark benchmark : benchmarks()) {
+			if (benchmark.name.toLowerCase().contains(filter)) {
+				run(benchmark);
+			}
+		}
+		System.out.println("(sink " + (sink & 1) + ")");
+	}
+}
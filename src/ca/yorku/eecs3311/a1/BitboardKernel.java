@@ -0,0 +1,67 @@
+package ca.yorku.eecs3311.a1;
+
+/**
+ * Another implementation of OthelloBoard.legalMoves and OthelloBoard.flips,
+ * picked once when OthelloBoard is loaded, see OthelloBoard.KERNEL. A kernel
+ * must give exactly the results of the scalar versions.
+ *
+ * The one kernel, VectorKernel, uses the incubating jdk.incubator.vector
+ * module, so it lives in a source folder of its own, src-vector, which is
+ * compiled with --add-modules jdk.incubator.vector on top of src. It is only
+ * loaded by name, so src builds and runs without it. To build both roots,
+ * tests included, and check the kernel against the scalar code, then time it:
+ *
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp junit-4.13.2.jar -d bin $(find src src-vector -name '*.java')
+ * java --add-modules jdk.incubator.vector -cp bin:junit-4.13.2.jar:hamcrest-core-1.3.jar \
+ *     org.junit.runner.JUnitCore ca.yorku.eecs3311.a1test.BitboardKernelTest
+ * java --add-modules jdk.incubator.vector -Dothello.vector=true -cp bin ca.yorku.eecs3311.a1.Benchmarks
+ * </pre>
+ *
+ * Without --add-modules at run time vector() returns null, and the
+ * BitboardKernelTest is skipped.
+ *
+ * @author ilir & leroy
+ */
+public interface BitboardKernel {
+	String VECTOR_CLASS = "ca.yorku.eecs3311.a1.VectorKernel";
+
+	/**
+	 * See OthelloBoard.legalMoves.
+	 */
+	long legalMoves(long own, long opp, long squares);
+
+	/**
+	 * See OthelloBoard.flips.
+	 */
+	long flips(int square, long own, long opp, long squares);
+
+	/**
+	 * @return the scalar code of OthelloBoard, whichever kernel it picked
+	 */
+	static BitboardKernel scalar() {
+		return new BitboardKernel() {
+			@Override
+			public long legalMoves(long own, long opp, long squares) {
+				return OthelloBoard.scalarLegalMoves(own, opp, squares);
+			}
+
+			@Override
+			public long flips(int square, long own, long opp, long squares) {
+				return OthelloBoard.scalarFlips(square, own, opp, squares);
+			}
+		};
+	}
+
+	/**
+	 * @return the VectorKernel, null if it was not compiled in or
+	 *         jdk.incubator.vector is missing
+	 */
+	static BitboardKernel vector() {
+		try {
+			return (BitboardKernel) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;                                                     // Stay scalar
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The layout of a board too big for one long, shared by every board of its
+ * dimension. Tokens are kept in packed multi-word bitsets: square (row,col) is
+ * bit row*dim+col, held in word (row*dim+col)/64, so a 16x16 board takes four
+ * longs per player.
+ *
+ * Everything that only depends on the dimension is computed once here: the
+ * masks that stop shifted runs from wrapping around a row edge, the distance
+ * from every square to the edge in every direction, and the Zobrist keys.
+ *
+ * The operations work on whole bitsets at a time, like the single long
+ * versions in OthelloBoard: legalMoves grows runs of opponent tokens with
+ * shifts, in every direction at once for all squares.
+ *
+ * @author ilir & leroy
+ */
+final class BoardGeometry {
+	private static final ConcurrentHashMap<Integer, BoardGeometry> GEOMETRIES = new ConcurrentHashMap<>();
+
+	final int dim;
+	final int words;                                                         // longs per bitset
+	final long[] squares;                                                    // Squares that are on the board
+
+	/**
+	 * Directions 0-3 head towards higher bits (E, SW, S, SE), 4-7 towards
+	 * lower bits (W, NE, N, NW), as in OthelloBoard. steps[dir] is the change
+	 * of bit index of one step, rayLengths[square*8+dir] the number of steps
+	 * from square to the edge.
+	 */
+	final int[] steps;
+	final byte[] rayLengths;
+
+	/**
+	 * The shifts towards higher bits of directions 0-3, and the masks of the
+	 * squares a shifted token may land on without having wrapped around a row
+	 * edge, for shifts towards higher (left) and lower (right) bits.
+	 */
+	private final int[] shifts;
+	private final long[][] leftMasks, rightMasks;
+
+	final long[] zobristP1, zobristP2;
+	final long sideKey;
+
+	private BoardGeometry(int dim) {
+		this.dim = dim;
+		this.words = (dim * dim + 63) >>> 6;
+		this.squares = new long[words];
+		long[] notFirstCol = new long[words], notLastCol = new long[words];
+		for (int row = 0; row < dim; row++) {
+			for (int col = 0; col < dim; col++) {
+				int square = row * dim + col;
+				set(squares, square);
+				if (col != 0) {
+					set(notFirstCol, square);
+				}
+				if (col != dim - 1) {
+					set(notLastCol, square);
+				}
+			}
+		}
+		this.shifts = new int[] { 1, dim - 1, dim, dim + 1 };
+		this.leftMasks = new long[][] { notFirstCol, notLastCol, squares, notFirstCol };
+		this.rightMasks = new long[][] { notLastCol, notFirstCol, squares, notLastCol };
+
+		int[] drows = { 0, 1, 1, 1, 0, -1, -1, -1 };
+		int[] dcols = { 1, -1, 0, 1, -1, 1, 0, -1 };
+		this.steps = new int[8];
+		this.rayLengths = new byte[dim * dim * 8];
+		for (int dir = 0; dir < 8; dir++) {
+			steps[dir] = drows[dir] * dim + dcols[dir];
+			for (int square = 0; square < dim * dim; square++) {
+				int row = square / dim + drows[dir], col = square % dim + dcols[dir], length = 0;
+				while (row >= 0 && row < dim && col >= 0 && col < dim) {
+					length++;
+					row += drows[dir];
+					col += dcols[dir];
+				}
+				rayLengths[square * 8 + dir] = (byte) length;
+			}
+		}
+
+		SplittableRandom random = new SplittableRandom(3311 + dim);
+		this.zobristP1 = new long[dim * dim];
+		this.zobristP2 = new long[dim * dim];
+		for (int square = 0; square < dim * dim; square++) {
+			zobristP1[square] = random.nextLong();
+			zobristP2[square] = random.nextLong();
+		}
+		this.sideKey = random.nextLong();
+	}
+
+	/**
+	 * @param dim a board dimension
+	 * @return the geometry of dim x dim boards
+	 */
+	static BoardGeometry of(int dim) {
+		return GEOMETRIES.computeIfAbsent(dim, BoardGeometry::new);
+	}
+
+	static boolean test(long[] bits, int square) {
+		return (bits[square >>> 6] & (1L << square)) != 0;
+	}
+
+	static void set(long[] bits, int square) {
+		bits[square >>> 6] |= 1L << square;
+	}
+
+	static void clear(long[] bits, int square) {
+		bits[square >>> 6] &= ~(1L << square);
+	}
+
+	static int count(long[] bits) {
+		int count = 0;
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * out = (in shifted towards higher bits by shift) & mask & and. out may be
+	 * in.
+	 */
+	private static void shiftLeft(long[] in, int shift, long[] mask, long[] and, long[] out) {
+		int wordShift = shift >>> 6, bitShift = shift & 63;
+		for (int i = out.length - 1; i >= 0; i--) {
+			int j = i - wordShift;
+			long word = 0;
+			if (j >= 0) {
+				word = in[j] << bitShift;
+				if (bitShift != 0 && j > 0) {
+					word |= in[j - 1] >>> (64 - bitShift);
+				}
+			}
+			out[i] = word & mask[i] & and[i];
+		}
+	}
+
+	/**
+	 * out = (in shifted towards lower bits by shift) & mask & and. out may be
+	 * in.
+	 */
+	private static void shiftRight(long[] in, int shift, long[] mask, long[] and, long[] out) {
+		int wordShift = shift >>> 6, bitShift = shift & 63;
+		for (int i = 0; i < out.length; i++) {
+			int j = i + wordShift;
+			long word = 0;
+			if (j < in.length) {
+				word = in[j] >>> bitShift;
+				if (bitShift != 0 && j + 1 < in.length) {
+					word |= in[j + 1] << (64 - bitShift);
+				}
+			}
+			out[i] = word & mask[i] & and[i];
+		}
+	}
+
+	/**
+	 * The valid moves for the owner of own, as OthelloBoard.legalMoves does
+	 * for single longs.
+	 *
+	 * @param own   the tokens of the player moving
+	 * @param opp   the tokens of the other player
+	 * @param moves gets the valid moves
+	 * @param empty scratch space, words long
+	 * @param run   scratch space, words long
+	 * @param next  scratch space, words long
+	 */
+	void legalMoves(long[] own, long[] opp, long[] moves, long[] empty, long[] run, long[] next) {
+		for (int i = 0; i < words; i++) {
+			empty[i] = squares[i] & ~(own[i] | opp[i]);
+			moves[i] = 0;
+		}
+		for (int dir = 0; dir < shifts.length; dir++) {
+			int shift = shifts[dir];
+
+			// A run is at most dim - 2 tokens long, one shift plus dim - 3 more covers it
+
+			shiftLeft(own, shift, leftMasks[dir], opp, run);
+			for (int n = 0; n < dim - 3; n++) {
+				shiftLeft(run, shift, leftMasks[dir], opp, next);
+				if (!or(run, next)) {
+					break;                                                   // Every run has stopped growing
+				}
+			}
+			shiftLeft(run, shift, leftMasks[dir], empty, next);
+			or(moves, next);
+
+			shiftRight(own, shift, rightMasks[dir], opp, run);
+			for (int n = 0; n < dim - 3; n++) {
+				shiftRight(run, shift, rightMasks[dir], opp, next);
+				if (!or(run, next)) {
+					break;
+				}
+			}
+			shiftRight(run, shift, rightMasks[dir], empty, next);
+			or(moves, next);
+		}
+	}
+
+	/**
+	 * bits |= more.
+	 *
+	 * @return whether bits changed
+	 */
+	private static boolean or(long[] bits, long[] more) {
+		long changed = 0;
+		for (int i = 0; i < bits.length; i++) {
+			changed |= more[i] & ~bits[i];
+			bits[i] |= more[i];
+		}
+		return changed != 0;
+	}
+
+	/**
+	 * The number of tokens the owner of own would flip by moving at square.
+	 * Each of the 8 rays is walked to the first token that is not opp.
+	 *
+	 * @return the number of tokens, 0 if the move is not valid
+	 */
+	int countFlips(int square, long[] own, long[] opp) {
+		int flipped = 0;
+		for (int dir = 0; dir < 8; dir++) {
+			flipped += run(square, dir, own, opp);
+		}
+		return flipped;
+	}
+
+	/**
+	 * Turn over the tokens the owner of own flips by moving at square, without
+	 * placing the token on square.
+	 *
+	 * @return the change of the Zobrist hash
+	 */
+	long flip(int square, long[] own, long[] opp) {
+		long hash = 0;
+		for (int dir = 0; dir < 8; dir++) {
+			int step = steps[dir], s = square;
+			for (int n = run(square, dir, own, opp); n > 0; n--) {
+				s += step;
+				clear(opp, s);
+				set(own, s);
+				hash ^= zobristP1[s] ^ zobristP2[s];
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the length of the run of opp from square in direction dir that
+	 *         is closed by own, 0 if there is none
+	 */
+	private int run(int square, int dir, long[] own, long[] opp) {
+		int length = rayLengths[square * 8 + dir], step = steps[dir];
+		int k = 1, s = square + step;
+		while (k <= length && test(opp, s)) {
+			k++;
+			s += step;
+		}
+		return k > 1 && k <= length && test(own, s) ? k - 1 : 0;
+	}
+}
@@ -0,0 +1,280 @@
+package ca.yorku.eecs3311.a1;
+
+/**
+ * Solve the end of a game exactly. With few empty squares left the whole game
+ * tree can be searched, so the solver finds the final token difference
+ * (player's tokens minus the other player's tokens, empty squares count for
+ * nobody) that player can force with perfect play. Up to about 20 empty
+ * squares take well under a minute, each extra empty square costs a few times
+ * more.
+ *
+ * solve finds the exact difference. solveWinLossDraw only finds its sign,
+ * which searches a much smaller tree. Given a budget of nodes and a deadline,
+ * solve gives up once either runs out, see isAborted.
+ *
+ * The search works on bare bitboards, see OthelloBoard.legalMoves and
+ * OthelloBoard.flips. Far from the end, moves that leave the other player
+ * fewest replies are tried first (fastest first). Close to the end, moves in
+ * regions of the board with an odd number of empty squares are tried first
+ * (parity), since the player who moves last in a region tends to keep it. The
+ * last empty square is scored directly, without generating moves.
+ *
+ * @author ilir & leroy
+ */
+public class EndgameSolver {
+	private static final int FASTEST_FIRST_EMPTIES = 7;                      // Order by replies above this many empties
+	private static final int MAX_EMPTIES = 64;
+	private static final int CHECK_EVERY = 1024;                             // Nodes between checks of the clock
+	private static final long[] QUADRANTS = { 0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L,
+			0xF0F0F0F000000000L };
+
+	private long squares;                                                    // Squares of the board being solved
+	private long nodes;
+	private long nodeBudget;                                                 // Nodes allowed for this solve
+	private long deadline;                                                   // System.nanoTime() this solve must stop at
+	private boolean aborted;                                                 // The budget ran out during this solve
+	private long elapsedNanos;
+	private int bestSquare;
+
+	// Move lists of each ply for fastest first ordering, reused, so search does not allocate
+	private final int[][] plySquares = new int[MAX_EMPTIES + 1][MAX_EMPTIES];
+	private final int[][] plyReplies = new int[MAX_EMPTIES + 1][MAX_EMPTIES];
+
+	/**
+	 * The final token difference for player with perfect play by both sides.
+	 *
+	 * @param board  the position, not modified
+	 * @param player P1 or P2, the player to move
+	 * @return player's final tokens minus the other player's
+	 */
+	public int solve(OthelloBoard board, char player) {
+		return solve(board, player, Long.MAX_VALUE, System.nanoTime() + Long.MAX_VALUE);
+	}
+
+	/**
+	 * The final token difference for player with perfect play by both sides,
+	 * unless the budget runs out first.
+	 *
+	 * @param board      the position, not modified
+	 * @param player     P1 or P2, the player to move
+	 * @param nodeBudget the number of positions that may be searched
+	 * @param deadline   the System.nanoTime() to stop at
+	 * @return player's final tokens minus the other player's, meaningless if
+	 *         isAborted
+	 */
+	public int solve(OthelloBoard board, char player, long nodeBudget, long deadline) {
+		this.nodeBudget = nodeBudget;
+		this.deadline = deadline;
+		return run(board, player, -MAX_EMPTIES - 1, MAX_EMPTIES + 1);
+	}
+
+	/**
+	 * Whether player wins, draws or loses with perfect play by both sides.
+	 *
+	 * @param board  the position, not modified
+	 * @param player P1 or P2, the player to move
+	 * @return 1 for a win, 0 for a draw, -1 for a loss
+	 */
+	public int solveWinLossDraw(OthelloBoard board, char player) {
+		this.nodeBudget = Long.MAX_VALUE;
+		this.deadline = System.nanoTime() + Long.MAX_VALUE;
+		return Integer.signum(run(board, player, -1, 1));
+	}
+
+	/**
+	 * Solve the game from Othello's current position for whoever is to move.
+	 *
+	 * @param othello the game, not modified
+	 * @return the final token difference for othello.getWhosTurn()
+	 */
+	public int solve(Othello othello) {
+		return solve(othello.getBoard(), othello.getWhosTurn());
+	}
+
+	private int run(OthelloBoard board, char player, int alpha, int beta) {
+		long start = System.nanoTime();
+		this.squares = board.getSquares();
+		this.nodes = 0;
+		this.aborted = false;
+		this.bestSquare = -1;
+		long own = board.getTokens(player);
+		long opp = board.getTokens(OthelloBoard.otherPlayer(player));
+		int empties = Long.bitCount(this.squares & ~(own | opp));
+		int score = search(own, opp, alpha, beta, empties, true);
+		this.elapsedNanos = System.nanoTime() - start;
+		return score;
+	}
+
+	/**
+	 * Alpha-beta search to the end of the game.
+	 *
+	 * @param own     the tokens of the player to move
+	 * @param opp     the tokens of the other player
+	 * @param alpha   the score the player to move is already sure of
+	 * @param beta    the score the other player is already sure of, negated
+	 * @param empties the number of empty squares
+	 * @param root    whether to remember the best move
+	 * @return the final token difference for the player to move, exact if it is
+	 *         in (alpha, beta)
+	 */
+	private int search(long own, long opp, int alpha, int beta, int empties, boolean root) {
+		if (this.aborted) {
+			return 0;                                                        // Result is thrown away
+		}
+		this.nodes++;
+		if (this.nodes >= this.nodeBudget
+				|| (this.nodes % CHECK_EVERY == 0 && System.nanoTime() - this.deadline >= 0)) {
+			this.aborted = true;
+			return 0;
+		}
+		if (empties == 1 && !root) {
+			return lastSquare(own, opp);
+		}
+		long moves = OthelloBoard.legalMoves(own, opp, this.squares);
+		if (moves == 0) {
+			if (OthelloBoard.legalMoves(opp, own, this.squares) == 0) {
+				return Long.bitCount(own) - Long.bitCount(opp);             // Game over
+			}
+			return -search(opp, own, -beta, -alpha, empties, false);        // Pass
+		}
+
+		int best = -MAX_EMPTIES - 1;
+		if (empties > FASTEST_FIRST_EMPTIES) {
+			int count = orderFastestFirst(own, opp, moves, empties);
+			int[] squares = this.plySquares[empties];
+			for (int i = 0; i < count; i++) {
+				int score = tryMove(squares[i], own, opp, alpha, beta, empties, root);
+				if (score > best) {
+					best = score;
+					if (score > alpha) {
+						alpha = score;
+						if (alpha >= beta) {
+							break;                                           // Other player will avoid this position
+						}
+					}
+				}
+			}
+			return best;
+		}
+
+		// Parity: moves in regions with an odd number of empty squares first
+
+		long empty = this.squares & ~(own | opp);
+		long odd = 0;
+		for (long quadrant : QUADRANTS) {
+			if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+				odd |= quadrant;
+			}
+		}
+		for (int pass = 0; pass < 2; pass++) {
+			long group = pass == 0 ? moves & odd : moves & ~odd;
+			for (; group != 0; group &= group - 1) {
+				int score = tryMove(Long.numberOfTrailingZeros(group), own, opp, alpha, beta, empties, root);
+				if (score > best) {
+					best = score;
+					if (score > alpha) {
+						alpha = score;
+						if (alpha >= beta) {
+							return best;                                     // Other player will avoid this position
+						}
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	private int tryMove(int square, long own, long opp, int alpha, int beta, int empties, boolean root) {
+		long flipped = OthelloBoard.flips(square, own, opp, this.squares);
+		int score = -search(opp & ~flipped, own | flipped | (1L << square), -beta, -alpha, empties - 1, false);
+		if (root && (this.bestSquare < 0 || score > alpha)) {
+			this.bestSquare = square;
+		}
+		return score;
+	}
+
+	/**
+	 * Put the moves in this ply's list, the move leaving the other player fewest
+	 * replies first.
+	 *
+	 * @return the number of moves
+	 */
+	private int orderFastestFirst(long own, long opp, long moves, int empties) {
+		int[] squares = this.plySquares[empties];
+		int[] replies = this.plyReplies[empties];
+		int count = 0;
+		for (; moves != 0; moves &= moves - 1) {
+			int square = Long.numberOfTrailingZeros(moves);
+			long flipped = OthelloBoard.flips(square, own, opp, this.squares);
+			int reply = Long.bitCount(
+					OthelloBoard.legalMoves(opp & ~flipped, own | flipped | (1L << square), this.squares));
+			int i = count++;
+			for (; i > 0 && replies[i - 1] > reply; i--) {                   // Insertion sort, lists are short
+				squares[i] = squares[i - 1];
+				replies[i] = replies[i - 1];
+			}
+			squares[i] = square;
+			replies[i] = reply;
+		}
+		return count;
+	}
+
+	/**
+	 * Score the game with one empty square left: the player to move takes it if
+	 * possible, otherwise the other player does, otherwise it stays empty.
+	 */
+	private int lastSquare(long own, long opp) {
+		int square = Long.numberOfTrailingZeros(this.squares & ~(own | opp));
+		int difference = Long.bitCount(own) - Long.bitCount(opp);
+		int flipped = Long.bitCount(OthelloBoard.flips(square, own, opp, this.squares));
+		if (flipped > 0) {
+			return difference + 2 * flipped + 1;
+		}
+		flipped = Long.bitCount(OthelloBoard.flips(square, opp, own, this.squares));
+		if (flipped > 0) {
+			return difference - 2 * flipped - 1;
+		}
+		return difference;
+	}
+
+	/**
+	 * @return the best move of the last solve, or the first move that reaches
+	 *         its result in a win, loss or draw solve, null if the player to move
+	 *         had to pass
+	 */
+	public Move getBestMove() {
+		if (this.bestSquare < 0) {
+			return null;
+		}
+		return new Move(OthelloBoard.rowOf(this.bestSquare), OthelloBoard.colOf(this.bestSquare));
+	}
+
+	/**
+	 * @return whether the last solve ran out of budget before it finished, its
+	 *         score and best move are then meaningless
+	 */
+	public boolean isAborted() {
+		return this.aborted;
+	}
+
+	/**
+	 * @return the number of positions searched by the last solve
+	 */
+	public long getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * @return the time the last solve took, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	/**
+	 * @return the positions searched per second by the last solve
+	 */
+	public double getNodesPerSecond() {
+		return this.elapsedNanos == 0 ? 0 : this.nodes * 1e9 / this.elapsedNanos;
+	}
+}
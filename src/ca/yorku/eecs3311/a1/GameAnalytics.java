@@ -0,0 +1,319 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Statistics over a file of recorded games, see GameRecords, so new questions
+ * about a large simulation can be answered without playing it again.
+ *
+ * One quick pass over the file finds where every GAMES_PER_TASK-th game
+ * starts, then the chunks are analyzed in parallel in the common fork-join
+ * pool, each game replayed through an OthelloBoard. Every task counts into a
+ * Report of its own, and reports are only added up once the tasks are done,
+ * so memory does not grow with the file, which is read straight from the page
+ * cache.
+ *
+ * @author ilir & leroy
+ */
+public class GameAnalytics {
+	private static final int GAMES_PER_TASK = 4096;                          // Games analyzed by a task without splitting
+
+	private GameAnalytics() {
+	}
+
+	/**
+	 * Analyze every game of records.
+	 *
+	 * @param records recorded games
+	 * @return the statistics
+	 */
+	public static Report analyze(GameRecords records) {
+		long[] chunks = chunks(records);
+		long start = System.nanoTime();
+		Report report = ForkJoinPool.commonPool().invoke(new AnalyzeTask(records, chunks, 0, chunks.length - 1));
+		report.elapsedNanos = System.nanoTime() - start;
+		return report;
+	}
+
+	/**
+	 * @return the offsets of every GAMES_PER_TASK-th game, then the end of the
+	 *         games
+	 */
+	private static long[] chunks(GameRecords records) {
+		long[] chunks = new long[16];
+		int count = 0;
+		GameRecords.Cursor cursor = records.cursor();
+		for (int game = 0; cursor.next(); game++) {
+			if (game % GAMES_PER_TASK == 0) {
+				if (count == chunks.length) {
+					chunks = Arrays.copyOf(chunks, count * 2);
+				}
+				chunks[count++] = cursor.getOffset();
+			}
+		}
+		chunks = Arrays.copyOf(chunks, count + 1);
+		chunks[count] = records.getBytes();                                  // A cut game at the end is skipped
+		return chunks;
+	}
+
+	/**
+	 * Analyzes the games of chunks [from, to).
+	 */
+	private static class AnalyzeTask extends RecursiveTask<Report> {
+		private static final long serialVersionUID = 1L;
+		private final GameRecords records;
+		private final long[] chunks;
+		private final int from, to;
+
+		AnalyzeTask(GameRecords records, long[] chunks, int from, int to) {
+			this.records = records;
+			this.chunks = chunks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Report compute() {
+			if (to - from <= 1) {
+				Report report = new Report(records);
+				if (from < to) {
+					OthelloBoard board = new OthelloBoard(Othello.DIMENSION);
+					GameRecords.Cursor cursor = records.cursor(chunks[from], chunks[to]);
+					while (cursor.next()) {
+						report.count(cursor, board);
+					}
+				}
+				return report;
+			}
+			int mid = (from + to) >>> 1;
+			AnalyzeTask left = new AnalyzeTask(records, chunks, from, mid);
+			left.fork();                                                     // Analyze the first half on another worker
+			Report report = new AnalyzeTask(records, chunks, mid, to).compute();
+			report.add(left.join());
+			return report;
+		}
+	}
+
+	/**
+	 * The statistics of a set of games: results by player and colour, game
+	 * lengths, how often each square ends up with each colour, and the results
+	 * of each first move.
+	 */
+	public static class Report {
+		private final String[] players;
+		private final long[][] results;                                      // results[player*2+colour], win, draw, loss
+		private final long[] lengths = new long[GameRecords.MAX_PLIES + 1];  // Games by number of plies
+		private final long[] p1Squares = new long[64];                       // Games P1 ends up owning each square
+		private final long[] p2Squares = new long[64];
+		private final long[][] firstMoves = new long[64][3];                 // P1's win, draw, loss after each first move
+		private long elapsedNanos;
+
+		private Report(GameRecords records) {
+			this.players = new String[records.getPlayerCount()];
+			for (int i = 0; i < players.length; i++) {
+				players[i] = records.getPlayerName(i);
+			}
+			this.results = new long[players.length * 2][3];
+		}
+
+		/**
+		 * Count the game at cursor, replaying it on board, which is left in the
+		 * starting position.
+		 */
+		private void count(GameRecords.Cursor cursor, OthelloBoard board) {
+			int p1Result = result(cursor.getWinner(), OthelloBoard.P1);
+			results[cursor.getPlayer(OthelloBoard.P1) * 2][p1Result]++;
+			results[cursor.getPlayer(OthelloBoard.P2) * 2 + 1][2 - p1Result]++;
+			int plies = cursor.getPlies();
+			lengths[plies]++;
+			if (plies > 0 && cursor.getSquare(0) != GameRecords.PASS) {
+				firstMoves[cursor.getSquare(0)][p1Result]++;
+			}
+
+			cursor.replay(board, plies);
+			for (long p1 = board.getTokens(OthelloBoard.P1); p1 != 0; p1 &= p1 - 1) {
+				p1Squares[Long.numberOfTrailingZeros(p1)]++;
+			}
+			for (long p2 = board.getTokens(OthelloBoard.P2); p2 != 0; p2 &= p2 - 1) {
+				p2Squares[Long.numberOfTrailingZeros(p2)]++;
+			}
+			while (board.getUndoDepth() > 0) {
+				board.undoMove();                                            // Back to the start for the next game
+			}
+		}
+
+		/**
+		 * @return 0 for a win of player, 1 for a draw, 2 for a loss
+		 */
+		private static int result(char winner, char player) {
+			return winner == OthelloBoard.EMPTY ? 1 : winner == player ? 0 : 2;
+		}
+
+		private void add(Report other) {
+			for (int i = 0; i < results.length; i++) {
+				for (int r = 0; r < 3; r++) {
+					results[i][r] += other.results[i][r];
+				}
+			}
+			for (int plies = 0; plies < lengths.length; plies++) {
+				lengths[plies] += other.lengths[plies];
+			}
+			for (int square = 0; square < 64; square++) {
+				p1Squares[square] += other.p1Squares[square];
+				p2Squares[square] += other.p2Squares[square];
+				for (int r = 0; r < 3; r++) {
+					firstMoves[square][r] += other.firstMoves[square][r];
+				}
+			}
+		}
+
+		/**
+		 * @return the number of games
+		 */
+		public long getGames() {
+			long games = 0;
+			for (long count : lengths) {
+				games += count;
+			}
+			return games;
+		}
+
+		/**
+		 * @param player a player index of the file
+		 * @param colour P1 or P2
+		 * @return the wins, draws and losses of player's games as colour
+		 */
+		public long[] getResults(int player, char colour) {
+			return results[player * 2 + (colour == OthelloBoard.P1 ? 0 : 1)].clone();
+		}
+
+		/**
+		 * @param plies a number of moves and passes
+		 * @return the number of games of that length
+		 */
+		public long getLength(int plies) {
+			return lengths[plies];
+		}
+
+		/**
+		 * @param row    a row
+		 * @param col    a column
+		 * @param player P1 or P2
+		 * @return the number of games in which player owns (row, col) at the end
+		 */
+		public long getOccupancy(int row, int col, char player) {
+			return (player == OthelloBoard.P1 ? p1Squares : p2Squares)[row * 8 + col];
+		}
+
+		/**
+		 * @param row a row
+		 * @param col a column
+		 * @return P1's wins, draws and losses in games opened at (row, col)
+		 */
+		public long[] getFirstMoveResults(int row, int col) {
+			return firstMoves[row * 8 + col].clone();
+		}
+
+		/**
+		 * @return the games analyzed per second of wall clock time
+		 */
+		public double getGamesPerSecond() {
+			return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @param quantile a fraction, 0 to 1
+		 * @return the smallest length that quantile of the games are no longer
+		 *         than
+		 */
+		public int getLengthQuantile(double quantile) {
+			long games = getGames(), seen = 0;
+			for (int plies = 0; plies < lengths.length; plies++) {
+				seen += lengths[plies];
+				if (seen > 0 && seen >= quantile * games) {
+					return plies;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * @return the results of every player and colour with 95% confidence
+		 *         intervals, game lengths, P1's and P2's share of each square and
+		 *         the results of each first move
+		 */
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			long games = getGames();
+			for (int player = 0; player < players.length; player++) {
+				for (int colour = 0; colour < 2; colour++) {
+					long[] r = results[player * 2 + colour];
+					long played = r[0] + r[1] + r[2];
+					if (played == 0) {
+						continue;
+					}
+					s.append(String.format("%-12s as %s  W %7d  D %7d  L %7d  win rate %.4f %s%n", players[player],
+							colour == 0 ? "P1" : "P2", r[0], r[1], r[2], (double) r[0] / played, interval(r[0], played)));
+				}
+			}
+
+			double mean = 0;
+			for (int plies = 0; plies < lengths.length; plies++) {
+				mean += (double) plies * lengths[plies] / Math.max(1, games);
+			}
+			s.append(String.format("plies: mean %.2f  min %d  median %d  90%% %d  max %d%n", mean,
+					getLengthQuantile(0), getLengthQuantile(0.5), getLengthQuantile(0.9), getLengthQuantile(1)));
+
+			s.append("share of games each square ends up P1 / P2, in %\n");
+			for (int row = 0; row < 8; row++) {
+				for (int col = 0; col < 8; col++) {
+					s.append(String.format(" %2.0f/%-2.0f", 100.0 * p1Squares[row * 8 + col] / Math.max(1, games),
+							100.0 * p2Squares[row * 8 + col] / Math.max(1, games)));
+				}
+				s.append('\n');
+			}
+
+			for (int square = 0; square < 64; square++) {
+				long[] r = firstMoves[square];
+				long played = r[0] + r[1] + r[2];
+				if (played > 0) {
+					s.append(String.format("first move (%d,%d): %d games  P1 W %d  D %d  L %d  win rate %.4f %s%n",
+							square / 8, square % 8, played, r[0], r[1], r[2], (double) r[0] / played,
+							interval(r[0], played)));
+				}
+			}
+			s.append(String.format("%d games, %.0f games/s%n", games, getGamesPerSecond()));
+			return s.toString();
+		}
+
+		/**
+		 * @return the 95% confidence interval of the rate, if trials fits an int
+		 */
+		private static String interval(long successes, long trials) {
+			if (trials > Integer.MAX_VALUE) {
+				return "";
+			}
+			double[] interval = Statistics.wilsonInterval((int) successes, (int) trials, Statistics.Z_95);
+			return String.format("95%% CI [%.4f, %.4f]", interval[0], interval[1]);
+		}
+	}
+
+	/**
+	 * Analyze a file of recorded games, see OthelloSimulation.main to record
+	 * some.
+	 *
+	 * @param args the game file
+	 * @throws IOException if the file can not be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: GameAnalytics games");
+			return;
+		}
+		System.out.print(analyze(GameRecords.open(Path.of(args[0]))));
+	}
+}
@@ -0,0 +1,184 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes finished games to a file, see GameRecords for the format and for
+ * reading them back. A game takes GameRecords.GAME_HEADER_BYTES plus one byte
+ * per move, about 75 bytes for a Random vs Random game. Moves are stored as
+ * row*8+col and token counts as a byte, so only 8x8 games can be recorded.
+ *
+ * Games are encoded straight into a buffer and written BUFFER_BYTES at a time.
+ * The writer is thread safe, but parallel games are best collected in a Batch
+ * per task, which is appended to the file in one piece.
+ *
+ * @author ilir & leroy
+ */
+public class GameRecordWriter implements AutoCloseable {
+	static final int BUFFER_BYTES = 1 << 16;
+	private static final int MAX_GAME_BYTES = GameRecords.GAME_HEADER_BYTES + GameRecords.MAX_PLIES;
+
+	private final OutputStream out;
+	private final int players;
+	private final byte[] buffer = new byte[BUFFER_BYTES];
+	private int length;
+
+	/**
+	 * Create (or replace) a game file.
+	 *
+	 * @param path    the game file
+	 * @param players the names of the players, games refer to them by index
+	 * @throws IOException if the file can not be written
+	 */
+	public GameRecordWriter(Path path, String... players) throws IOException {
+		if (players.length > GameRecords.MAX_PLAYERS) {
+			throw new IllegalArgumentException("too many players: " + players.length);
+		}
+		this.players = players.length;
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(GameRecords.MAGIC);
+		data.writeByte(players.length);
+		for (String player : players) {
+			data.writeUTF(player);
+		}
+		this.out = Files.newOutputStream(path);
+		this.out.write(header.toByteArray());
+	}
+
+	/**
+	 * Add a finished game.
+	 *
+	 * @param player1 the index of P1's name
+	 * @param player2 the index of P2's name
+	 * @param seed    the seed the game was played with
+	 * @param board   the board at the end of the game
+	 * @param moves   the squares of the moves, as from Tournament.playGame
+	 * @param plies   the number of moves and passes
+	 * @throws IOException              if the file can not be written
+	 * @throws IllegalArgumentException if the board is not 8x8
+	 */
+	public synchronized void write(int player1, int player2, long seed, OthelloBoard board, byte[] moves, int plies)
+			throws IOException {
+		if (length + MAX_GAME_BYTES > buffer.length) {
+			flushBuffer();
+		}
+		length = encode(buffer, length, player1, player2, seed, board, moves, plies);
+	}
+
+	/**
+	 * @return an empty batch of games for this file
+	 */
+	public Batch newBatch() {
+		return new Batch();
+	}
+
+	/**
+	 * Games collected by one thread, see GameRecordWriter.write, and appended
+	 * to the file together by flush.
+	 */
+	public class Batch {
+		private byte[] bytes = new byte[BUFFER_BYTES];
+		private int length;
+
+		private Batch() {
+		}
+
+		/**
+		 * Add a finished game, see GameRecordWriter.write.
+		 *
+		 * @throws IllegalArgumentException if the board is not 8x8
+		 */
+		public void add(int player1, int player2, long seed, OthelloBoard board, byte[] moves, int plies) {
+			if (length + MAX_GAME_BYTES > bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			length = encode(bytes, length, player1, player2, seed, board, moves, plies);
+		}
+
+		/**
+		 * Append the batch's games to the file and empty it.
+		 *
+		 * @throws IOException if the file can not be written
+		 */
+		public void flush() throws IOException {
+			append(bytes, length);
+			length = 0;
+		}
+	}
+
+	private synchronized void append(byte[] bytes, int count) throws IOException {
+		if (length + count > buffer.length) {
+			flushBuffer();
+			if (count > buffer.length) {
+				out.write(bytes, 0, count);                                      // Too big to be worth copying
+				return;
+			}
+		}
+		System.arraycopy(bytes, 0, buffer, length, count);
+		length += count;
+	}
+
+	/**
+	 * Encode a game into bytes from index at.
+	 *
+	 * @return the index after the game
+	 */
+	private int encode(byte[] bytes, int at, int player1, int player2, long seed, OthelloBoard board, byte[] moves,
+			int plies) {
+		if (player1 < 0 || player1 >= players || player2 < 0 || player2 >= players) {
+			throw new IllegalArgumentException("no such player: " + player1 + ", " + player2);
+		}
+		if (plies < 0 || plies > GameRecords.MAX_PLIES) {
+			throw new IllegalArgumentException("not a game: " + plies + " plies");
+		}
+		if (board.getDimension() != Othello.DIMENSION) {
+			throw new IllegalArgumentException("only 8x8 games can be recorded: " + board.getDimension());
+		}
+		bytes[at++] = (byte) player1;
+		bytes[at++] = (byte) player2;
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			bytes[at++] = (byte) (seed >>> shift);
+		}
+		bytes[at++] = (byte) board.getCount(OthelloBoard.P1);
+		bytes[at++] = (byte) board.getCount(OthelloBoard.P2);
+		bytes[at++] = (byte) plies;
+		System.arraycopy(moves, 0, bytes, at, plies);
+		return at + plies;
+	}
+
+	private void flushBuffer() throws IOException {
+		out.write(buffer, 0, length);
+		length = 0;
+	}
+
+	/**
+	 * Write out the buffered games, they can then be read by GameRecords.
+	 *
+	 * @throws IOException if the file can not be written
+	 */
+	public synchronized void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Write out the buffered games and close the file.
+	 *
+	 * @throws IOException if the file can not be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only file of finished games, as written by GameRecordWriter. Games
+ * are read one after the other by a Cursor, straight from the memory-mapped
+ * file: nothing is read up front, and reading a game allocates nothing, moves
+ * are plain squares rather than Move objects.
+ *
+ * File format, big-endian: the int MAGIC, the unsigned byte number of player
+ * names, each name as by DataOutput.writeUTF, then the games. Each game is a
+ * GAME_HEADER_BYTES header followed by one byte per ply: the unsigned bytes
+ * P1 and P2 (indices of the player names), the long seed the game was played
+ * with, the P1 tokens and P2 tokens at the end, the number of plies, then the
+ * square (row*8+col) of every move, PASS for a pass.
+ *
+ * A file cut short (a writer that was not closed) reads up to its last
+ * complete game. A buffer maps at most 2 GB, so files are mapped in regions of
+ * REGION_BYTES, each overlapping the next by MAX_GAME_BYTES so that every game
+ * lies whole in the region it starts in. Files are only limited by the
+ * address space, not by the heap, and offsets are longs.
+ *
+ * @author ilir & leroy
+ */
+public class GameRecords {
+	public static final byte PASS = 64;                                      // The square of a pass
+	public static final int MAX_PLIES = 120;                                 // 60 moves, each after at most one pass
+	public static final int MAX_PLAYERS = 255;
+	static final int MAGIC = 0x4F475231;                                     // "OGR1"
+	static final int GAME_HEADER_BYTES = 2 + Long.BYTES + 3;
+	static final int MAX_GAME_BYTES = GAME_HEADER_BYTES + 255;               // Plies are an unsigned byte
+	public static final int REGION_BYTES = 1 << 30;                          // Games mapped by each buffer
+	private static final int MAX_NAMES_BYTES = 1 + MAX_PLAYERS * (2 + 65535);
+
+	private final ByteBuffer[] regions;                                      // Region i starts at game offset i*regionBytes
+	private final int regionBytes;
+	private final long bytes;                                                // Bytes of games
+	private final String[] players;
+
+	private GameRecords(ByteBuffer[] regions, int regionBytes, long bytes, String[] players) {
+		this.regions = regions;
+		this.regionBytes = regionBytes;
+		this.bytes = bytes;
+		this.players = players;
+	}
+
+	/**
+	 * Map a game file into memory.
+	 *
+	 * @param path the game file
+	 * @return the games
+	 * @throws IOException if the file can not be read or is not a game file
+	 */
+	public static GameRecords open(Path path) throws IOException {
+		return open(path, REGION_BYTES);
+	}
+
+	/**
+	 * Map a game file into memory, in regions of regionBytes, for tests and
+	 * small address spaces.
+	 *
+	 * @param path        the game file
+	 * @param regionBytes the bytes of games mapped by each buffer, at most
+	 *                    REGION_BYTES
+	 * @return the games
+	 * @throws IOException if the file can not be read or is not a game file
+	 */
+	public static GameRecords open(Path path, int regionBytes) throws IOException {
+		if (regionBytes < 1 || regionBytes > REGION_BYTES) {
+			throw new IllegalArgumentException("regions of 1 to " + REGION_BYTES + " bytes: " + regionBytes);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					Math.min(length, Integer.BYTES + MAX_NAMES_BYTES));
+			String[] players;
+			try {
+				if (buffer.getInt() != MAGIC) {
+					throw new IOException("not a game file: " + path);
+				}
+				players = new String[buffer.get() & 0xFF];
+				for (int i = 0; i < players.length; i++) {
+					byte[] utf = new byte[2 + (buffer.getShort(buffer.position()) & 0xFFFF)];
+					buffer.get(utf);
+					players[i] = new DataInputStream(new ByteArrayInputStream(utf)).readUTF();
+				}
+			} catch (BufferUnderflowException e) {
+				throw new IOException("not a game file: " + path);
+			}
+
+			long first = buffer.position();                                  // File position of the first game
+			long bytes = length - first;
+			ByteBuffer[] regions = new ByteBuffer[(int) ((bytes + regionBytes - 1) / regionBytes)];
+			for (int i = 0; i < regions.length; i++) {
+				long from = (long) i * regionBytes;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, first + from,
+						Math.min(regionBytes + MAX_GAME_BYTES, bytes - from));       // Stays valid after close
+			}
+			return new GameRecords(regions, regionBytes, bytes, players);
+		}
+	}
+
+	/**
+	 * @return the number of player names
+	 */
+	public int getPlayerCount() {
+		return players.length;
+	}
+
+	/**
+	 * @param player a player index, as returned by Cursor.getPlayer
+	 * @return the player's name
+	 */
+	public String getPlayerName(int player) {
+		return players[player];
+	}
+
+	/**
+	 * @return the number of bytes of games in the file
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return a cursor before the first game
+	 */
+	public Cursor cursor() {
+		return new Cursor(0, bytes);
+	}
+
+	/**
+	 * @param from the offset of a game, see Cursor.getOffset
+	 * @param to   the offset of a later game, or getBytes
+	 * @return a cursor over the games from offset from to offset to
+	 */
+	public Cursor cursor(long from, long to) {
+		return new Cursor(from, to);
+	}
+
+	/**
+	 * Reads games one at a time. Call next to move to the next game, then use
+	 * the getters on it. A cursor is not thread safe, but any number of threads
+	 * can each use their own cursor on the same GameRecords.
+	 */
+	public class Cursor {
+		private long offset = -1;                                            // Offset of the current game
+		private long next;                                                   // Offset of the next game
+		private final long end;
+		private ByteBuffer games;                                            // The region of the current game,
+		private int at;                                                      // and its index there
+
+		private Cursor(long from, long to) {
+			this.next = from;
+			this.end = to;
+		}
+
+		/**
+		 * Move to the next game.
+		 *
+		 * @return false if there are no more (complete) games
+		 */
+		public boolean next() {
+			if (next + GAME_HEADER_BYTES > end) {
+				return false;
+			}
+			ByteBuffer region = regions[(int) (next / regionBytes)];
+			int index = (int) (next % regionBytes);
+			long after = next + GAME_HEADER_BYTES + (region.get(index + GAME_HEADER_BYTES - 1) & 0xFF);
+			if (after > end) {
+				return false;
+			}
+			offset = next;
+			games = region;
+			at = index;
+			next = after;
+			return true;
+		}
+
+		/**
+		 * @return the offset of the current game in the file, after the header
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @param player P1 or P2
+		 * @return the index of the name of the player who played player
+		 */
+		public int getPlayer(char player) {
+			return games.get(at + (player == OthelloBoard.P1 ? 0 : 1)) & 0xFF;
+		}
+
+		/**
+		 * @return the seed the game was played with, see Tournament.playGame
+		 */
+		public long getSeed() {
+			return games.getLong(at + 2);
+		}
+
+		/**
+		 * @param player P1 or P2
+		 * @return player's tokens at the end of the game
+		 */
+		public int getTokens(char player) {
+			return games.get(at + 2 + Long.BYTES + (player == OthelloBoard.P1 ? 0 : 1));
+		}
+
+		/**
+		 * @return the winner, P1, P2 or EMPTY for a draw
+		 */
+		public char getWinner() {
+			int difference = getTokens(OthelloBoard.P1) - getTokens(OthelloBoard.P2);
+			return difference > 0 ? OthelloBoard.P1 : difference < 0 ? OthelloBoard.P2 : OthelloBoard.EMPTY;
+		}
+
+		/**
+		 * @return the number of moves and passes of the game
+		 */
+		public int getPlies() {
+			return games.get(at + GAME_HEADER_BYTES - 1) & 0xFF;
+		}
+
+		/**
+		 * @param ply a ply, 0 to getPlies()-1
+		 * @return the square (row*8+col) played at ply, PASS for a pass
+		 */
+		public int getSquare(int ply) {
+			return games.get(at + GAME_HEADER_BYTES + ply);
+		}
+
+		/**
+		 * Play the game's first plies moves on board, with makeMove, so they
+		 * can be taken back with undoMove.
+		 *
+		 * @param board a board in the starting position
+		 * @param plies the number of moves and passes to play
+		 * @return the player to move next
+		 */
+		public char replay(OthelloBoard board, int plies) {
+			char player = OthelloBoard.P1;
+			for (int ply = 0; ply < plies; ply++) {
+				int square = getSquare(ply);
+				if (square != PASS) {
+					board.makeMove(OthelloBoard.rowOf(square), OthelloBoard.colOf(square), player);
+				}
+				player = OthelloBoard.otherPlayer(player);
+			}
+			return player;
+		}
+	}
+}
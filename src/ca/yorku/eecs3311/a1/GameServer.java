@@ -0,0 +1,560 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts Othello games over TCP, so remote clients can play each other or the
+ * built in engines, many games at once. The protocol is plain lines of ASCII,
+ * so a game can be played by hand with nc or telnet.
+ *
+ * On connecting the server sends "HELLO" and the names of its engines. The
+ * client then sends one of
+ *
+ * <pre>
+ * PLAY engine [X|O]   play an engine, as X (P1, the default) or O
+ * MATCH               play the next client that also sends MATCH, the first is X
+ * QUIT                hang up
+ * </pre>
+ *
+ * A game starts with "GAME colour opponent". Every ply is then sent to both
+ * sides as "MOVE colour row col" or "PASS colour", a side without a valid move
+ * passes without being asked. When it is the client's turn the server sends
+ * "YOURTURN" and the valid moves as row,col pairs, and the client answers
+ * "MOVE row col", or "QUIT" to resign and hang up. An invalid answer gets
+ * "ILLEGAL" and the client is asked again. The game ends with "END winner
+ * p1tokens p2tokens", winner X, O or - for a draw, or with "ABORTED" if the
+ * opponent hung up, and the client may then start another game.
+ *
+ * Each session runs on a thread of its own, blocking on its socket, so a
+ * session reads as a plain sequential game loop. Remote sides are Players
+ * whose getMove asks the client, and a game between two clients is played by
+ * the thread of the second to arrive while the first waits, so a game is
+ * always played by one thread and its state is never shared. Memory per session
+ * is bounded: small fixed buffers, commands at most MAX_LINE bytes, one game
+ * at a time, and thread stacks of SESSION_STACK_BYTES. Engines are created
+ * per game and run on the session's thread, so they should be bounded too:
+ * the engines of main search one tree or board each, to a fixed budget, and
+ * never fork work across the machine's cores. At most maxSessions
+ * clients are served at once, more are told "BUSY" and hung up on, and idle
+ * clients are dropped after IDLE_TIMEOUT_MILLIS. That includes a client
+ * waiting for a MATCH: it is checked every MATCH_POLL_MILLIS, and its place
+ * is given up as soon as it hangs up, or once it has waited
+ * IDLE_TIMEOUT_MILLIS for an opponent.
+ *
+ * @author ilir & leroy
+ */
+public class GameServer implements AutoCloseable {
+	public static final int DEFAULT_PORT = 3311;
+	public static final int DEFAULT_MAX_SESSIONS = 10000;
+	static final int MAX_LINE = 64;                                          // Longest command a client may send
+	static final int IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;                    // A client's time to answer
+	static final int MATCH_POLL_MILLIS = 100;                                // How often a MATCH waiting is checked on
+	private static final long SESSION_STACK_BYTES = 256 * 1024;              // Enough for the deepest search
+	private static final int BUFFER_BYTES = 512;                             // Socket buffers of each session
+	private static final int BACKLOG = 1024;                                 // Connections queued before accept
+	private static final int MCTS_PLAYOUTS = 20000;                          // Bounds the tree of an MCTS engine
+
+	private final ServerSocket serverSocket;
+	private final Semaphore sessionPermits;
+	private final Map<String, PlayerFactory> engines = new LinkedHashMap<>();
+	private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger sessionIds = new AtomicInteger();
+	private final AtomicLong gamesPlayed = new AtomicLong();
+	private Session waiting;                                                 // Sent MATCH, no opponent yet, guarded by this
+	private Thread acceptor;
+
+	/**
+	 * Bind the server's socket. Engines are registered, then the server is
+	 * started.
+	 *
+	 * @param port        the port, 0 for any free port, see getPort
+	 * @param maxSessions the number of clients served at once
+	 * @throws IOException if the port can not be bound
+	 */
+	public GameServer(int port, int maxSessions) throws IOException {
+		this.serverSocket = new ServerSocket(port, BACKLOG);
+		this.sessionPermits = new Semaphore(maxSessions);
+	}
+
+	/**
+	 * Offer an engine to clients, before the server is started.
+	 *
+	 * @param name    the name clients PLAY it by, a single word
+	 * @param factory creates the engine's players, one per game
+	 */
+	public void register(String name, PlayerFactory factory) {
+		if (acceptor != null) {
+			throw new IllegalStateException("server already started");
+		}
+		if (name.isEmpty() || name.contains(" ")) {
+			throw new IllegalArgumentException("not a single word: " + name);
+		}
+		engines.put(name, factory);
+	}
+
+	/**
+	 * Start accepting clients, on a thread of its own.
+	 */
+	public void start() {
+		acceptor = new Thread(this::accept, "othello-acceptor");
+		acceptor.start();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				break;                                                       // Closed
+			}
+			try {
+				socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+				socket.setTcpNoDelay(true);                                  // Moves are tiny and a game waits on each
+				if (!sessionPermits.tryAcquire()) {
+					socket.getOutputStream().write("BUSY\n".getBytes(StandardCharsets.US_ASCII));
+					socket.close();
+					continue;
+				}
+				Session session = new Session(socket);
+				sessions.add(session);
+				new Thread(null, session, "othello-session-" + sessionIds.incrementAndGet(), SESSION_STACK_BYTES)
+						.start();
+			} catch (IOException e) {
+				closeQuietly(socket);
+			}
+		}
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return the number of clients connected
+	 */
+	public int getSessions() {
+		return sessions.size();
+	}
+
+	/**
+	 * @return the number of games played to the end
+	 */
+	public long getGamesPlayed() {
+		return gamesPlayed.get();
+	}
+
+	/**
+	 * Stop accepting clients and hang up on every connected client.
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		for (Session session : sessions) {
+			session.close();
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// Nothing left to do with it
+		}
+	}
+
+	/**
+	 * Play one game on the calling thread. A side without a client is played
+	 * by engine.
+	 *
+	 * @param p1     the client playing P1, or null
+	 * @param p2     the client playing P2, or null
+	 * @param engine the name of a registered engine, if a side has no client
+	 */
+	private void play(Session p1, Session p2, String engine) {
+		Othello othello = new Othello();
+		long seed = ThreadLocalRandom.current().nextLong();
+		Player player1 = p1 != null ? new RemotePlayer(p1, othello, OthelloBoard.P1)
+				: engines.get(engine).create(othello, OthelloBoard.P1, seed);
+		Player player2 = p2 != null ? new RemotePlayer(p2, othello, OthelloBoard.P2)
+				: engines.get(engine).create(othello, OthelloBoard.P2, seed);
+		try {
+			tell(p1, "GAME " + OthelloBoard.P1 + " " + (p2 != null ? "client" : engine));
+			tell(p2, "GAME " + OthelloBoard.P2 + " " + (p1 != null ? "client" : engine));
+			long gameStart = Metrics.start();
+			int plies = 0;
+			while (!othello.isGameOver()) {
+				char turn = othello.getWhosTurn();
+				Player player = turn == OthelloBoard.P1 ? player1 : player2;
+				long start = Metrics.start();
+				Move move = player.getMove();
+				Metrics.recordGetMove(player, turn, start);
+				String ply;
+				if (move == null) {
+					othello.passTurn();
+					ply = "PASS " + turn;
+				} else if (othello.move(move.getRow(), move.getCol())) {
+					ply = "MOVE " + turn + " " + move.getRow() + " " + move.getCol();
+				} else {
+					throw new IllegalStateException(engine + " played an invalid move " + move);
+				}
+				plies++;
+				tell(p1, ply);
+				tell(p2, ply);
+			}
+			Metrics.recordGame(othello.getWinner(), plies, gameStart);
+			gamesPlayed.incrementAndGet();
+			char winner = othello.getWinner();
+			String end = "END " + (winner == OthelloBoard.EMPTY ? "-" : String.valueOf(winner)) + " "
+					+ othello.getCount(OthelloBoard.P1) + " " + othello.getCount(OthelloBoard.P2);
+			tell(p1, end);
+			tell(p2, end);
+		} catch (Hangup e) {
+			e.session.close();
+			Session other = e.session == p1 ? p2 : p1;
+			if (other != null) {
+				try {
+					other.send("ABORTED");
+				} catch (IOException e2) {
+					other.close();                                           // Both gone
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send message to client, if there is one.
+	 *
+	 * @throws Hangup if the client can not be reached
+	 */
+	private static void tell(Session client, String message) {
+		if (client != null) {
+			try {
+				client.send(message);
+			} catch (IOException e) {
+				throw new Hangup(client, e);
+			}
+		}
+	}
+
+	/**
+	 * A client's side of a game. getMove asks the client, until it answers
+	 * with a valid move, and passes without asking if there is none.
+	 */
+	private static class RemotePlayer implements Player {
+		private final Session session;
+		private final Othello othello;
+		private final char player;
+
+		RemotePlayer(Session session, Othello othello, char player) {
+			this.session = session;
+			this.othello = othello;
+			this.player = player;
+		}
+
+		/**
+		 * @throws Hangup if the client hangs up, times out or resigns
+		 */
+		@Override
+		public Move getMove() {
+			long legalMoves = othello.getLegalMoves(player);
+			if (legalMoves == 0) {
+				return null;                                                 // No valid move, pass
+			}
+			StringBuilder prompt = new StringBuilder("YOURTURN");
+			for (long moves = legalMoves; moves != 0; moves &= moves - 1) {
+				int square = Long.numberOfTrailingZeros(moves);
+				prompt.append(' ').append(OthelloBoard.rowOf(square)).append(',').append(OthelloBoard.colOf(square));
+			}
+			try {
+				session.send(prompt.toString());
+				while (true) {
+					String line = session.readLine();
+					if (line == null) {
+						throw new IOException("hung up");
+					}
+					String[] words = line.trim().split(" +");
+					if (words[0].equalsIgnoreCase("QUIT")) {
+						throw new IOException("resigned");
+					}
+					Move move = parseMove(words, legalMoves);
+					if (move != null) {
+						return move;
+					}
+					session.send("ILLEGAL");
+				}
+			} catch (IOException e) {
+				throw new Hangup(session, e);
+			}
+		}
+
+		/**
+		 * @return the move of "MOVE row col", null if it is not one of
+		 *         legalMoves
+		 */
+		private static Move parseMove(String[] words, long legalMoves) {
+			if (words.length != 3 || !words[0].equalsIgnoreCase("MOVE")) {
+				return null;
+			}
+			try {
+				int row = Integer.parseInt(words[1]), col = Integer.parseInt(words[2]);
+				if (row < 0 || row >= Othello.DIMENSION || col < 0 || col >= Othello.DIMENSION
+						|| (legalMoves & (1L << (row * 8 + col))) == 0) {
+					return null;
+				}
+				return new Move(row, col);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * A client hung up, timed out, sent nonsense or resigned during a game.
+	 */
+	private static class Hangup extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final Session session;
+
+		Hangup(Session session, IOException cause) {
+			super(cause);
+			this.session = session;
+		}
+	}
+
+	/**
+	 * One connected client. Runs the lobby on its own thread, and plays its
+	 * games there too, except the games of MATCHes it waits for.
+	 */
+	private class Session implements Runnable {
+		private final Socket socket;
+		private final InputStream in;
+		private final Writer out;
+		private final byte[] line = new byte[MAX_LINE];
+		private volatile CountDownLatch game;                                 // Counted down once the MATCH is over
+
+		Session(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES);
+			this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII),
+					BUFFER_BYTES);
+		}
+
+		@Override
+		public void run() {
+			try {
+				send(("HELLO " + String.join(" ", engines.keySet())).trim());
+				lobby();
+			} catch (IOException | Hangup e) {
+				// Hung up, nothing to tell
+			} finally {
+				synchronized (GameServer.this) {
+					if (waiting == this) {
+						waiting = null;
+					}
+				}
+				close();
+				sessions.remove(this);
+				sessionPermits.release();
+			}
+		}
+
+		private void lobby() throws IOException {
+			while (true) {
+				String command = readLine();
+				if (command == null) {
+					return;
+				}
+				String[] words = command.trim().split(" +");
+				switch (words[0].toUpperCase()) {
+				case "PLAY":
+					PlayerFactory engine = words.length > 1 ? engines.get(words[1]) : null;
+					boolean asP2 = words.length > 2 && words[2].equalsIgnoreCase(String.valueOf(OthelloBoard.P2));
+					if (engine == null) {
+						send("ERROR no such engine, choose one of " + String.join(" ", engines.keySet()));
+					} else if (asP2) {
+						play(null, this, words[1]);
+					} else {
+						play(this, null, words[1]);
+					}
+					break;
+				case "MATCH":
+					match();
+					break;
+				case "QUIT":
+					return;
+				case "":
+					break;
+				default:
+					send("ERROR expected PLAY engine [X|O], MATCH or QUIT");
+				}
+			}
+		}
+
+		/**
+		 * Wait for another client to MATCH, or play the one that is waiting.
+		 */
+		private void match() throws IOException {
+			Session opponent;
+			CountDownLatch done = new CountDownLatch(1);
+			synchronized (GameServer.this) {
+				opponent = waiting;
+				if (opponent == null) {
+					waiting = this;
+					this.game = done;
+				} else {
+					waiting = null;
+				}
+			}
+			if (opponent == null) {
+				send("WAITING");
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MILLIS);
+				try {
+					while (!done.await(MATCH_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+						boolean hungUp = hungUp();
+						if ((hungUp || System.nanoTime() - deadline >= 0) && stopWaiting()) {
+							throw hungUp ? new SocketException("hung up") : new SocketTimeoutException("no opponent");
+						}
+					}                                                        // Paired, the opponent's thread plays the game
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (socket.isClosed()) {
+					throw new SocketException("closed");
+				}
+				return;
+			}
+			try {
+				play(opponent, this, null);
+			} finally {
+				opponent.game.countDown();
+			}
+		}
+
+		/**
+		 * Give up this session's place as the one waiting for a MATCH.
+		 *
+		 * @return false if an opponent has already taken it, the game is on
+		 */
+		private boolean stopWaiting() {
+			synchronized (GameServer.this) {
+				if (waiting != this) {
+					return false;
+				}
+				waiting = null;
+				return true;
+			}
+		}
+
+		/**
+		 * Look for the end of the stream without taking anything the client
+		 * sent, that is left for the game. Synchronized with readLine, so it
+		 * never splits a line the game is reading.
+		 *
+		 * @return whether the client hung up
+		 */
+		private synchronized boolean hungUp() {
+			try {
+				socket.setSoTimeout(1);                                      // A hangup has already arrived
+				try {
+					in.mark(1);
+					if (in.read() < 0) {
+						return true;
+					}
+					in.reset();
+				} catch (SocketTimeoutException e) {
+					// Still connected, and quiet
+				} finally {
+					socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+				}
+				return false;
+			} catch (IOException e) {
+				return true;                                                 // Closed or reset
+			}
+		}
+
+		/**
+		 * @return the next line from the client, null at the end of the stream
+		 * @throws IOException if the line is longer than MAX_LINE, the client
+		 *                     timed out or hung up
+		 */
+		synchronized String readLine() throws IOException {
+			int length = 0;
+			while (true) {
+				int b = in.read();
+				if (b < 0) {
+					return length == 0 ? null : new String(line, 0, length, StandardCharsets.US_ASCII);
+				}
+				if (b == '\n') {
+					if (length > 0 && line[length - 1] == '\r') {
+						length--;
+					}
+					return new String(line, 0, length, StandardCharsets.US_ASCII);
+				}
+				if (length == MAX_LINE) {
+					send("ERROR line too long");
+					throw new IOException("line too long");
+				}
+				line[length++] = (byte) b;
+			}
+		}
+
+		void send(String message) throws IOException {
+			out.write(message);
+			out.write('\n');
+			out.flush();
+		}
+
+		void close() {
+			closeQuietly(socket);
+			CountDownLatch latch = this.game;
+			if (latch != null) {
+				latch.countDown();                                           // Wake a session waiting for a MATCH
+			}
+		}
+	}
+
+	/**
+	 * Serve games against the built in engines until killed.
+	 *
+	 * @param args optional port, then optional number of clients served at
+	 *             once
+	 * @throws IOException if the port can not be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SESSIONS;
+
+		GameServer server = new GameServer(port, maxSessions);
+		server.register("Random", PlayerRandom::new);
+		server.register("Greedy", (othello, player, seed) -> new PlayerGreedy(othello, player));
+		server.register("AlphaBeta", (othello, player, seed) -> new PlayerAlphaBeta(othello, player, 100));
+		server.register("MCTS", (othello, player, seed) -> new PlayerMCTS(othello, player, 100, MCTS_PLAYOUTS, 1, seed));
+		server.start();
+		System.out.println("Serving Othello on port " + server.getPort() + ", play with: nc localhost "
+				+ server.getPort());
+	}
+}
@@ -0,0 +1,136 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe histogram of latencies in nanoseconds, cheap enough to record
+ * every move of a parallel simulation. Buckets are log-spaced: every power of
+ * two is split into SUB_BUCKETS buckets, so a percentile is off by at most
+ * 1/SUB_BUCKETS of its value, whatever its size, and 496 buckets cover every
+ * long.
+ *
+ * Every bucket is a LongAdder, which keeps a striped cell per contending
+ * thread, so threads recording at once do not fight over one cache line.
+ *
+ * @author ilir & leroy
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 3;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @return the bucket of nanos: values below SUB_BUCKETS have a bucket each,
+	 *         above that the top SUB_BITS + 1 bits pick the bucket
+	 */
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(0, nanos);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);                // >= SUB_BITS
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return the largest value of bucket
+	 */
+	static long bucketLimit(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + ((1L << shift) - 1);
+	}
+
+	/**
+	 * @param nanos a latency
+	 */
+	public void record(long nanos) {
+		buckets[bucket(nanos)].increment();
+		sum.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	/**
+	 * @return the number of latencies recorded
+	 */
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the mean latency, 0 if there are none
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * @return the largest latency, 0 if there are none
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param quantile a fraction, 0 to 1
+	 * @return a latency that quantile of the latencies are no longer than,
+	 *         rounded up to the end of its bucket, 0 if there are none
+	 */
+	public long getPercentile(double quantile) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();                                    // One snapshot, so the ranks add up
+			count += counts[i];
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * count)), seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(bucketLimit(i), getMax());
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Forget every latency. Not atomic: latencies recorded meanwhile may be
+	 * partly kept.
+	 */
+	public void reset() {
+		for (LongAdder bucket : buckets) {
+			bucket.reset();
+		}
+		sum.reset();
+		max.reset();
+	}
+
+	/**
+	 * @return the count, mean, median, 90th, 99th and 99.9th percentiles and max,
+	 *         in microseconds
+	 */
+	public String toString() {
+		return String.format("%10d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f", getCount(), getMean() / 1e3,
+				getPercentile(0.5) / 1e3, getPercentile(0.9) / 1e3, getPercentile(0.99) / 1e3,
+				getPercentile(0.999) / 1e3, getMax() / 1e3);
+	}
+}
@@ -0,0 +1,260 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Counters and latency histograms of the hot paths: moves made on boards,
+ * hasMove calls, the nodes searched by PlayerAlphaBeta and the playouts of
+ * PlayerMCTS, the latency of every getMove and every game played through
+ * Tournament.playGame, which covers the simulations, tournaments and training.
+ *
+ * Switched on with -Dothello.metrics=true. ENABLED is a static final, so when
+ * it is off the JIT drops every call below as dead code and the hot paths cost
+ * what they did before. When it is on, counters are LongAdders and latencies
+ * go into LatencyHistograms, both striped so parallel games do not contend.
+ *
+ * With metrics on, game and getMove latencies are also emitted as the JFR
+ * events othello.Game and othello.GetMove, and simulations as
+ * othello.Simulation in any case, whenever a flight recording enables them.
+ * othello.GetMove is off unless asked for, e.g.
+ * -XX:StartFlightRecording:othello.GetMove#enabled=true, as it is emitted for
+ * every move.
+ *
+ * @author ilir & leroy
+ */
+public class Metrics {
+	public static final boolean ENABLED = Boolean.getBoolean("othello.metrics");
+
+	private static final LongAdder MOVES = new LongAdder();                  // OthelloBoard.move calls that moved
+	private static final LongAdder HAS_MOVES = new LongAdder();              // OthelloBoard.hasMove calls
+	private static final LongAdder NODES = new LongAdder();                  // Positions searched by PlayerAlphaBeta
+	private static final LongAdder PLAYOUTS = new LongAdder();               // PlayerMCTS playouts
+	private static final LatencyHistogram GAMES = new LatencyHistogram();
+	private static final ConcurrentHashMap<String, LatencyHistogram> GET_MOVES = new ConcurrentHashMap<>();
+
+	private Metrics() {
+	}
+
+	@Name("othello.GetMove")
+	@Label("Get Move")
+	@Category("Othello")
+	@Description("A player choosing a move")
+	@Enabled(false)                                                          // Dozens per game, so only on request
+	static class GetMoveEvent extends Event {
+		@Label("Player")
+		String player;
+		@Label("Colour")
+		char colour;
+		@Label("Latency")
+		@Timespan
+		long latency;
+	}
+
+	@Name("othello.Game")
+	@Label("Game")
+	@Category("Othello")
+	@Description("A game played to the end")
+	static class GameEvent extends Event {
+		@Label("Plies")
+		int plies;
+		@Label("Winner")
+		char winner;
+		@Label("Latency")
+		@Timespan
+		long latency;
+	}
+
+	@Name("othello.Simulation")
+	@Label("Simulation")
+	@Category("Othello")
+	@Description("A batch of simulated games")
+	static class SimulationEvent extends Event {
+		@Label("Games")
+		int games;
+		@Label("P1 Wins")
+		int p1Wins;
+		@Label("P2 Wins")
+		int p2Wins;
+	}
+
+	/**
+	 * @return System.nanoTime() if metrics are on, to be passed to a record
+	 *         method, 0 otherwise
+	 */
+	static long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	static void countMove() {
+		if (ENABLED) {
+			MOVES.increment();
+		}
+	}
+
+	static void countHasMove() {
+		if (ENABLED) {
+			HAS_MOVES.increment();
+		}
+	}
+
+	static void countNodes(long nodes) {
+		if (ENABLED) {
+			NODES.add(nodes);
+		}
+	}
+
+	static void countPlayouts(long playouts) {
+		if (ENABLED) {
+			PLAYOUTS.add(playouts);
+		}
+	}
+
+	/**
+	 * Record a getMove of player, started at start.
+	 */
+	static void recordGetMove(Player player, char colour, long start) {
+		if (!ENABLED) {
+			return;
+		}
+		long latency = System.nanoTime() - start;
+		String name = player.getClass().getSimpleName();
+		LatencyHistogram histogram = GET_MOVES.get(name);
+		if (histogram == null) {
+			histogram = GET_MOVES.computeIfAbsent(name, k -> new LatencyHistogram());
+		}
+		histogram.record(latency);
+		GetMoveEvent event = new GetMoveEvent();
+		if (event.isEnabled()) {
+			event.player = name;
+			event.colour = colour;
+			event.latency = latency;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Record a game won by winner (EMPTY for a draw), over after plies, started
+	 * at start.
+	 */
+	static void recordGame(char winner, int plies, long start) {
+		if (!ENABLED) {
+			return;
+		}
+		long latency = System.nanoTime() - start;
+		GAMES.record(latency);
+		GameEvent event = new GameEvent();
+		if (event.isEnabled()) {
+			event.plies = plies;
+			event.winner = winner;
+			event.latency = latency;
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return a JFR event to begin before a simulation and end after it, see
+	 *         recordSimulation
+	 */
+	static SimulationEvent beginSimulation() {
+		SimulationEvent event = new SimulationEvent();
+		event.begin();
+		return event;
+	}
+
+	static void recordSimulation(SimulationEvent event, int games, int p1Wins, int p2Wins) {
+		if (event.shouldCommit()) {
+			event.games = games;
+			event.p1Wins = p1Wins;
+			event.p2Wins = p2Wins;
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return the number of board moves made, 0 if metrics are off
+	 */
+	public static long getMoves() {
+		return MOVES.sum();
+	}
+
+	/**
+	 * @return the number of hasMove calls, 0 if metrics are off
+	 */
+	public static long getHasMoves() {
+		return HAS_MOVES.sum();
+	}
+
+	/**
+	 * @return the number of positions searched by PlayerAlphaBeta, 0 if metrics
+	 *         are off
+	 */
+	public static long getNodes() {
+		return NODES.sum();
+	}
+
+	/**
+	 * @return the number of PlayerMCTS playouts, 0 if metrics are off
+	 */
+	public static long getPlayouts() {
+		return PLAYOUTS.sum();
+	}
+
+	/**
+	 * @return the latencies of whole games
+	 */
+	public static LatencyHistogram getGameLatencies() {
+		return GAMES;
+	}
+
+	/**
+	 * @param player the simple class name of a player, e.g. "PlayerRandom"
+	 * @return the latencies of that kind of player's getMove, null if there
+	 *         are none
+	 */
+	public static LatencyHistogram getMoveLatencies(String player) {
+		return GET_MOVES.get(player);
+	}
+
+	/**
+	 * Forget everything counted so far.
+	 */
+	public static void reset() {
+		MOVES.reset();
+		HAS_MOVES.reset();
+		NODES.reset();
+		PLAYOUTS.reset();
+		GAMES.reset();
+		GET_MOVES.clear();
+	}
+
+	/**
+	 * @param elapsedNanos the wall clock time the counts were collected over
+	 * @return the throughput over elapsedNanos, then the latency percentiles of
+	 *         games and of every kind of player's getMove
+	 */
+	public static String summary(long elapsedNanos) {
+		double seconds = Math.max(elapsedNanos, 1) / 1e9;
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("%d games in %.3f s: %.0f games/s, %.0f moves/s, %.0f hasMove/s, %.0f nodes/s,"
+				+ " %.0f playouts/s%n", GAMES.getCount(), seconds, GAMES.getCount() / seconds, getMoves() / seconds,
+				getHasMoves() / seconds, getNodes() / seconds, getPlayouts() / seconds));
+		s.append(String.format("%-16s %10s %9s %9s %9s %9s %9s %9s%n", "latency (us)", "count", "mean", "p50", "p90",
+				"p99", "p99.9", "max"));
+		s.append(String.format("%-16s %s%n", "game", GAMES));
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(GET_MOVES).entrySet()) {
+			s.append(String.format("%-16s %s%n", entry.getKey(), entry.getValue()));
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,195 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only opening book: for positions seen in self-play, how often each
+ * move was played and how well it did. See OpeningBookBuilder for how a book is
+ * made and PlayerBook for a player that uses one.
+ *
+ * The file is memory-mapped, so opening a book reads nothing up front, lookups
+ * do not allocate, and every process using the same book shares one copy of
+ * it in the page cache.
+ *
+ * Positions are stored in their canonical form, see Symmetry, so the eight
+ * symmetric versions of a position share one set of records. Keys are
+ * Symmetry.canonicalKey and squares are in the canonical position, getBestMove
+ * maps them back to the position asked about.
+ *
+ * File format, big-endian: the int MAGIC, the int number of records, then the
+ * records sorted by key, then square. Each record is RECORD_BYTES long: the
+ * long key, the int square of the move (row*8+col), the int number of games it
+ * was played in, and the int points it scored for the player who made it, 2
+ * for a win and 1 for a draw.
+ *
+ * @author ilir & leroy
+ */
+public class OpeningBook {
+	static final int MAGIC = 0x4F424B32;                                    // "OBK2"
+	static final int HEADER_BYTES = 2 * Integer.BYTES;
+	static final int RECORD_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+	private final ByteBuffer records;
+	private final int size;
+
+	private OpeningBook(ByteBuffer records, int size) {
+		this.records = records;
+		this.size = size;
+	}
+
+	/**
+	 * Map a book file into memory.
+	 *
+	 * @param path the book file
+	 * @return the book
+	 * @throws IOException if the file can not be read or is not a book
+	 */
+	public static OpeningBook open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+				throw new IOException("not an opening book: " + path);
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);   // Stays valid after close
+			int size = buffer.getInt(Integer.BYTES);
+			if (buffer.getInt(0) != MAGIC || size < 0 || HEADER_BYTES + (long) size * RECORD_BYTES != length) {
+				throw new IOException("not an opening book: " + path);
+			}
+			return new OpeningBook(buffer, size);
+		}
+	}
+
+	/**
+	 * @return the number of records, one per position and move
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param key a position key
+	 * @return the index of the first record for key, or of the record key would
+	 *         be inserted before
+	 */
+	private int lowerBound(long key) {
+		int low = 0, high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (recordKey(mid) < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The book's best move for player on board, see getBestSquare.
+	 *
+	 * @param board    an 8x8 board
+	 * @param player   the player to move, P1 or P2
+	 * @param minGames the fewest games a move needs to be trusted
+	 * @return the move, null if the book has none for the position
+	 */
+	public Move getBestMove(OthelloBoard board, char player, int minGames) {
+		long p1 = board.getTokens(OthelloBoard.P1), p2 = board.getTokens(OthelloBoard.P2);
+		int square = getBestSquare(Symmetry.canonicalKey(p1, p2, player), minGames);
+		if (square < 0) {
+			return null;
+		}
+		square = Symmetry.transformSquare(Symmetry.inverse(Symmetry.canonicalTransform(p1, p2)), square);
+		return new Move(OthelloBoard.rowOf(square), OthelloBoard.colOf(square));
+	}
+
+	/**
+	 * The move scoring the most points per game, among the moves played in at
+	 * least minGames games. Ties go to the move played more often.
+	 *
+	 * @param key      the position's Symmetry.canonicalKey
+	 * @param minGames the fewest games a move needs to be trusted
+	 * @return the square of the move in the canonical position, -1 if the book
+	 *         has none for key
+	 */
+	public int getBestSquare(long key, int minGames) {
+		int bestSquare = -1;
+		long bestPoints = 0, bestGames = 0;
+		for (int i = lowerBound(key); i < size && recordKey(i) == key; i++) {
+			int games = recordGames(i);
+			long points = recordPoints(i);
+			if (games < Math.max(1, minGames)) {
+				continue;
+			}
+			// points/games > bestPoints/bestGames, without dividing
+			long compare = bestSquare < 0 ? 1 : points * bestGames - bestPoints * games;
+			if (compare > 0 || (compare == 0 && games > bestGames)) {
+				bestSquare = recordSquare(i);
+				bestPoints = points;
+				bestGames = games;
+			}
+		}
+		return bestSquare;
+	}
+
+	/**
+	 * @param key a position's Symmetry.canonicalKey
+	 * @return the number of games that reached the position
+	 */
+	public int getGames(long key) {
+		int games = 0;
+		for (int i = lowerBound(key); i < size && recordKey(i) == key; i++) {
+			games += recordGames(i);
+		}
+		return games;
+	}
+
+	/**
+	 * @param key    a position's Symmetry.canonicalKey
+	 * @param square the square of a move in the canonical position
+	 * @return the number of games the move was played in from the position
+	 */
+	public int getGames(long key, int square) {
+		int i = find(key, square);
+		return i < 0 ? 0 : recordGames(i);
+	}
+
+	/**
+	 * @param key    a position's Symmetry.canonicalKey
+	 * @param square the square of a move in the canonical position
+	 * @return the points the move scored from the position, 2 per win and 1 per
+	 *         draw
+	 */
+	public int getPoints(long key, int square) {
+		int i = find(key, square);
+		return i < 0 ? 0 : recordPoints(i);
+	}
+
+	private int find(long key, int square) {
+		for (int i = lowerBound(key); i < size && recordKey(i) == key; i++) {
+			if (recordSquare(i) == square) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	long recordKey(int record) {
+		return records.getLong(HEADER_BYTES + record * RECORD_BYTES);
+	}
+
+	int recordSquare(int record) {
+		return records.getInt(HEADER_BYTES + record * RECORD_BYTES + Long.BYTES);
+	}
+
+	int recordGames(int record) {
+		return records.getInt(HEADER_BYTES + record * RECORD_BYTES + Long.BYTES + Integer.BYTES);
+	}
+
+	int recordPoints(int record) {
+		return records.getInt(HEADER_BYTES + record * RECORD_BYTES + Long.BYTES + 2 * Integer.BYTES);
+	}
+}
@@ -0,0 +1,274 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds an OpeningBook from self-play. Games are played in parallel in the
+ * common fork-join pool, and the first plies of every game are counted: for
+ * each position, which move was played and the points it scored by the end of
+ * the game. Symmetric positions are counted together, in their canonical form.
+ *
+ * Building is incremental: load an existing book, add more games (with a new
+ * master seed, the same seed replays the same games) and write it back. The
+ * new file is written next to the old one and then renamed over it, so
+ * processes that have the old book mapped keep reading a complete book.
+ *
+ * Game seeds are derived from the master seed as in OthelloSimulation, so the
+ * same games give the same book however many threads play them.
+ *
+ * @author ilir & leroy
+ */
+public class OpeningBookBuilder {
+	private static final int GAMES_PER_TASK = 64;                            // Games played by a task without splitting
+
+	private final int plies;
+	private Map<Long, int[]> positions = new HashMap<>();
+
+	/**
+	 * @param plies the number of moves, from the start of each game, to count
+	 */
+	public OpeningBookBuilder(int plies) {
+		this.plies = plies;
+	}
+
+	/**
+	 * Add every record of book, to extend it.
+	 *
+	 * @param book an opening book
+	 */
+	public void add(OpeningBook book) {
+		for (int i = 0; i < book.size(); i++) {
+			add(positions, book.recordKey(i), book.recordSquare(i), book.recordGames(i), book.recordPoints(i));
+		}
+	}
+
+	/**
+	 * Count a move in positions. The moves of a position are kept as
+	 * consecutive (square, games, points) triples, followed by unused space.
+	 */
+	private static void add(Map<Long, int[]> positions, long key, int square, int games, int points) {
+		int[] moves = positions.get(key);
+		int i = 0;
+		if (moves == null) {
+			moves = new int[] { -1, 0, 0 };
+			positions.put(key, moves);
+		}
+		while (i < moves.length && moves[i] >= 0 && moves[i] != square) {
+			i += 3;
+		}
+		if (i == moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+			Arrays.fill(moves, i, moves.length, -1);
+			positions.put(key, moves);
+		}
+		if (moves[i] < 0) {
+			moves[i] = square;
+			moves[i + 1] = 0;
+			moves[i + 2] = 0;
+		}
+		moves[i + 1] += games;
+		moves[i + 2] += points;
+	}
+
+	private static void addAll(Map<Long, int[]> positions, Map<Long, int[]> other) {
+		for (Map.Entry<Long, int[]> entry : other.entrySet()) {
+			int[] moves = entry.getValue();
+			for (int i = 0; i < moves.length && moves[i] >= 0; i += 3) {
+				add(positions, entry.getKey(), moves[i], moves[i + 1], moves[i + 2]);
+			}
+		}
+	}
+
+	/**
+	 * Play games between two strategies and count their openings.
+	 *
+	 * @param factory1   creates P1
+	 * @param factory2   creates P2
+	 * @param games      the number of games
+	 * @param masterSeed the seed every game seed is derived from
+	 */
+	public void addGames(PlayerFactory factory1, PlayerFactory factory2, int games, long masterSeed) {
+		Map<Long, int[]> played = ForkJoinPool.commonPool()
+				.invoke(new SelfPlayTask(factory1, factory2, masterSeed, 0, games));
+		if (positions.isEmpty()) {
+			positions = played;
+		} else {
+			addAll(positions, played);
+		}
+	}
+
+	/**
+	 * Plays games [from, to), counting the first plies of each.
+	 */
+	private class SelfPlayTask extends RecursiveTask<Map<Long, int[]>> {
+		private static final long serialVersionUID = 1L;
+		private final PlayerFactory factory1, factory2;
+		private final long masterSeed;
+		private final int from, to;
+
+		SelfPlayTask(PlayerFactory factory1, PlayerFactory factory2, long masterSeed, int from, int to) {
+			this.factory1 = factory1;
+			this.factory2 = factory2;
+			this.masterSeed = masterSeed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Map<Long, int[]> compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				Map<Long, int[]> played = new HashMap<>();
+				long[] keys = new long[plies];
+				int[] squares = new int[plies];
+				char[] movers = new char[plies];
+				for (int g = from; g < to; g++) {
+					SplittableRandom random = new SplittableRandom(OthelloSimulation.gameSeed(masterSeed, g));
+					Othello game = new Othello();
+					Player player1 = factory1.create(game, OthelloBoard.P1, random.nextLong());
+					Player player2 = factory2.create(game, OthelloBoard.P2, random.nextLong());
+
+					int ply = 0;
+					while (!game.isGameOver()) {
+						char mover = game.getWhosTurn();
+						Move move = mover == OthelloBoard.P1 ? player1.getMove() : player2.getMove();
+						if (move == null) {
+							game.passTurn();                                     // Passes are not counted
+							continue;
+						}
+						if (ply < plies) {
+							long p1 = game.game_board.getTokens(OthelloBoard.P1);
+							long p2 = game.game_board.getTokens(OthelloBoard.P2);
+							keys[ply] = Symmetry.canonicalKey(p1, p2, mover);
+							squares[ply] = Symmetry.canonicalSquare(p1, p2, move.getRow() * 8 + move.getCol());
+							movers[ply] = mover;
+							ply++;
+						}
+						game.move(move.getRow(), move.getCol());
+					}
+					char winner = game.getWinner();
+					for (int i = 0; i < ply; i++) {
+						int points = winner == movers[i] ? 2 : winner == OthelloBoard.EMPTY ? 1 : 0;
+						add(played, keys[i], squares[i], 1, points);
+					}
+				}
+				return played;
+			}
+			int mid = (from + to) >>> 1;
+			SelfPlayTask left = new SelfPlayTask(factory1, factory2, masterSeed, from, mid);
+			left.fork();                                                         // Play the first half on another worker
+			Map<Long, int[]> played = new SelfPlayTask(factory1, factory2, masterSeed, mid, to).compute();
+			Map<Long, int[]> other = left.join();
+			if (other.size() > played.size()) {                                  // Add the smaller map to the larger
+				Map<Long, int[]> swap = played;
+				played = other;
+				other = swap;
+			}
+			addAll(played, other);
+			return played;
+		}
+	}
+
+	/**
+	 * @return the number of records the book will have, one per position and
+	 *         move
+	 */
+	public int size() {
+		int size = 0;
+		for (int[] moves : positions.values()) {
+			for (int i = 0; i < moves.length && moves[i] >= 0; i += 3) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Write the book, replacing path if it exists.
+	 *
+	 * @param path the book file
+	 * @throws IOException if the file can not be written
+	 */
+	public void write(Path path) throws IOException {
+		long[] keys = new long[positions.size()];
+		int k = 0;
+		for (long key : positions.keySet()) {
+			keys[k++] = key;
+		}
+		Arrays.sort(keys);                                                   // Signed order, as OpeningBook searches
+
+		Path absolute = path.toAbsolutePath();
+		Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(size());
+			for (long key : keys) {
+				int[] moves = positions.get(key);
+				int count = 0;
+				while (count < moves.length && moves[count] >= 0) {
+					count += 3;
+				}
+				int[] order = new int[count / 3];                                // Moves by square
+				for (int i = 0; i < order.length; i++) {
+					order[i] = moves[3 * i] << 16 | i;
+				}
+				Arrays.sort(order);
+				for (int o : order) {
+					int i = 3 * (o & 0xFFFF);
+					out.writeLong(key);
+					out.writeInt(moves[i]);
+					out.writeInt(moves[i + 1]);
+					out.writeInt(moves[i + 2]);
+				}
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Build or extend a book by self-play of PlayerMCTS.
+	 *
+	 * @param args the book file, then optional games, plies to count, master
+	 *             seed and playouts per move
+	 * @throws IOException if the book can not be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: OpeningBookBuilder book [games] [plies] [seed] [playouts]");
+			return;
+		}
+		Path path = Path.of(args[0]);
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int plies = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+		long masterSeed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+		long playouts = args.length > 4 ? Long.parseLong(args[4]) : 2000;
+
+		OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+		if (Files.exists(path)) {
+			builder.add(OpeningBook.open(path));
+			System.out.println("Extending " + path + ", " + builder.size() + " records");
+		}
+		PlayerFactory mcts = (othello, player, seed) -> new PlayerMCTS(othello, player, 10000, playouts, 1,
+				seed);                                                           // One tree, games run in parallel
+
+		long start = System.nanoTime();
+		builder.addGames(mcts, mcts, games, masterSeed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		builder.write(path);
+		System.out.printf("Master seed: %d%n%d games in %.1f s, %d records%n", masterSeed, games, seconds,
+				builder.size());
+	}
+}
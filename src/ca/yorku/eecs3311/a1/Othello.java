@@ -21,11 +21,36 @@ public class Othello {
 	private int numMoves = 0;
 	OthelloBoard game_board; //not private to make sure it's visible in other classes
 
+	// Valid moves of each player in the current position, only recomputed after the position changes
+	private long p1Moves, p2Moves;
+	private boolean p1CanMove, p2CanMove;
+	private boolean movesValid = false;
+	private long movesHash; // The board's hash when the moves were found
+
 	/**
 	 * Constructor that initializes the Othello game with a new game_board.
 	 */
 	public Othello() {
-		this.game_board = new OthelloBoard(DIMENSION); //initialize the game_board
+		this(DIMENSION);
+	}
+
+	/**
+	 * A game on a dimension x dimension board. Every player can play on any
+	 * size from 2 to OthelloBoard.MAX_DIMENSION. The search players
+	 * (PlayerAlphaBeta, PlayerMCTS) are fastest up to
+	 * OthelloBoard.BITBOARD_DIMENSION, where they search bitboards.
+	 * 
+	 * @param dimension the board's number of rows and columns
+	 */
+	public Othello(int dimension) {
+		this.game_board = new OthelloBoard(dimension); //initialize the game_board
+	}
+
+	/**
+	 * @return the board's number of rows and columns
+	 */
+	public int getDimension() {
+		return game_board.getDimension();
 	}
 
 	/**
@@ -52,10 +77,65 @@ public class Othello {
 		if (isMove) {
 			numMoves++;
 			whosTurn = OthelloBoard.otherPlayer(whosTurn);
+			movesValid = false; //position changed, recompute valid moves on demand
 		}
 		return isMove;
 	}
 
+	/**
+	 * Returns all of the valid moves of player in the current position. The moves
+	 * are computed once per position and cached until the position changes, so
+	 * isGameOver, getWinner, passTurn and the players can all ask for them. A
+	 * change made straight to getBoard() is noticed too, by the board's hash.
+	 * 
+	 * @param player P1 or P2
+	 * @return a bitboard with bit row*8+col set for each valid move (row,col), see
+	 *         {@link OthelloBoard#getLegalMoves(char)}
+	 * @throws IllegalStateException if the board is bigger than 8x8
+	 */
+	public long getLegalMoves(char player) {
+		if (game_board.getDimension() > OthelloBoard.BITBOARD_DIMENSION) {
+			return game_board.getLegalMoves(player);                        // Throws, the moves do not fit a bitboard
+		}
+		findMoves();
+		if (player == OthelloBoard.P1) {
+			return p1Moves;
+		} else if (player == OthelloBoard.P2) {
+			return p2Moves;
+		}
+		return 0;
+	}
+
+	/**
+	 * @param player P1 or P2
+	 * @return whether player has a valid move, on a board of any dimension
+	 */
+	public boolean canMove(char player) {
+		findMoves();
+		return player == OthelloBoard.P1 ? p1CanMove : player == OthelloBoard.P2 && p2CanMove;
+	}
+
+	/**
+	 * Find both players' moves, if the position changed since they were last
+	 * found. Only boards of up to 8x8 have them as bitboards.
+	 */
+	private void findMoves() {
+		if (movesValid && movesHash == game_board.getHash()) {
+			return;
+		}
+		if (game_board.getDimension() <= OthelloBoard.BITBOARD_DIMENSION) {
+			p1Moves = game_board.getLegalMoves(OthelloBoard.P1);
+			p2Moves = game_board.getLegalMoves(OthelloBoard.P2);
+			p1CanMove = p1Moves != 0;
+			p2CanMove = p2Moves != 0;
+		} else {
+			p1CanMove = game_board.canMove(OthelloBoard.P1);
+			p2CanMove = game_board.canMove(OthelloBoard.P2);
+		}
+		movesHash = game_board.getHash();
+		movesValid = true;
+	}
+
 	/**
 	 * Gets the count of tokens for the specified player on the board.
 	 * 
@@ -68,21 +148,15 @@ public class Othello {
 
 	/**
 	 * Passes the turn to the other player if the current player has no valid moves.
-	 * It checks the game_board's move availability and changes the turn
-	 * accordingly.
+	 * It checks the cached valid moves and changes the turn accordingly. The
+	 * position does not change, so the cache stays valid.
 	 * 
 	 * @return void
 	 */
 	protected void passTurn() {
 
-		char isMoveAvailable = game_board.hasMove(); //if no valid move, pass turn
-		if (
-				(whosTurn == OthelloBoard.P1 && isMoveAvailable != OthelloBoard.P1) 
-											||
-				(whosTurn == OthelloBoard.P2 && isMoveAvailable != OthelloBoard.P2)) 
-		
-		{
-							whosTurn = OthelloBoard.otherPlayer(whosTurn);
+		if (!canMove(whosTurn)) { //if no valid move, pass turn
+			whosTurn = OthelloBoard.otherPlayer(whosTurn);
 		}
 	}
 
@@ -114,11 +188,12 @@ public class Othello {
 	 * @return P1, P2 or EMPTY for no winner, or the game is not finished.
 	 */
 	public boolean isGameOver() {
-	    return game_board.hasMove() == OthelloBoard.EMPTY;
+	    return !canMove(OthelloBoard.P1) && !canMove(OthelloBoard.P2);
 	}
 
 	/**
-	 * Retrieves the current Othello game board.
+	 * Retrieves the current Othello game board. It is the game's own board, not a
+	 * copy: changes to it change the game, though not whose turn it is.
 	 * 
 	 * @return The {@link OthelloBoard} object representing the current state of the game.
 	 */
@@ -1,5 +1,8 @@
 package ca.yorku.eecs3311.a1;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 /**
  * Keep track of all of the tokens on the board. This understands some
  * interesting things about an Othello board, what the board looks like at the
@@ -10,26 +13,239 @@ package ca.yorku.eecs3311.a1;
  * 
  * Othello makes use of the OthelloBoard.
  * 
+ * Boards of up to 8x8 are kept in single long bitboards, see getTokens and
+ * getLegalMoves, which the search players work on directly. Bigger boards, up
+ * to MAX_DIMENSION, are kept in packed multi-word bitsets laid out by a shared
+ * BoardGeometry, and are played through the methods that work for any
+ * dimension: get, move, canMove, getMoves, getFlipCount, getCount, hasMove,
+ * getHash, makeMove and undoMove.
+ * 
  * @author Ilir & Leroy
  *
  */
 public class OthelloBoard {
 	
 	public static final char EMPTY = ' ', P1 = 'X', P2 = 'O', BOTH = 'B';
+
+	/**
+	 * The board is kept as two bitboards, one per player. Square (row,col) is bit
+	 * row*8+col, so a board of up to 8x8 fits in a single long. Boards smaller
+	 * than 8x8 use the top left corner, the remaining bits are never set.
+	 */
+	private static final int MAX_DIM = 8;
+	public static final int BITBOARD_DIMENSION = MAX_DIM;                        // Largest board held in single longs
+	public static final int MAX_DIMENSION = 64;
+	private static final long NOT_FIRST_COL = 0xFEFEFEFEFEFEFEFEL;               // Every square except column 0
+	private static final long NOT_LAST_COL = 0x7F7F7F7F7F7F7F7FL;                // Every square except column 7
+
+	/**
+	 * The four shift amounts (E/W, SW/NE, S/N, SE/NW) and the masks that remove
+	 * the squares that wrapped around a row edge after shifting left (<<) or
+	 * right (>>>) by that amount.
+	 */
+	private static final int[] SHIFTS = { 1, 7, 8, 9 };
+	private static final long[] LEFT_MASKS = { NOT_FIRST_COL, NOT_LAST_COL, -1L, NOT_FIRST_COL };
+	private static final long[] RIGHT_MASKS = { NOT_LAST_COL, NOT_FIRST_COL, -1L, NOT_LAST_COL };
+
+	/**
+	 * RAYS[dir][square] holds the squares of an 8x8 board seen from square in
+	 * direction dir, not including square itself. Directions 0-3 head towards
+	 * higher bits, so the closest square on a ray is its lowest bit, directions 4-7
+	 * head towards lower bits, so the closest square is the highest bit.
+	 */
+	private static final int[] RAY_DROWS = { 0, 1, 1, 1, 0, -1, -1, -1 };
+	private static final int[] RAY_DCOLS = { 1, -1, 0, 1, -1, 1, 0, -1 };
+	private static final long[][] RAYS = new long[RAY_DROWS.length][MAX_DIM * MAX_DIM];
+	static {
+		for (int dir = 0; dir < RAY_DROWS.length; dir++) {
+			for (int square = 0; square < MAX_DIM * MAX_DIM; square++) {
+				int row = square / MAX_DIM + RAY_DROWS[dir], col = square % MAX_DIM + RAY_DCOLS[dir];
+				while (row >= 0 && row < MAX_DIM && col >= 0 && col < MAX_DIM) {
+					RAYS[dir][square] |= mask(row, col);
+					row += RAY_DROWS[dir];
+					col += RAY_DCOLS[dir];
+				}
+			}
+		}
+	}
+
+	/**
+	 * With -Dothello.vector=true, legalMoves and flips run on the Vector API
+	 * kernel of src-vector, if it is on the class path and the JVM was started
+	 * with --add-modules jdk.incubator.vector, and stay scalar otherwise.
+	 * Static final, so the choice costs nothing once compiled.
+	 */
+	private static final BitboardKernel KERNEL = Boolean.getBoolean("othello.vector") ? BitboardKernel.vector() : null;
+
+	/**
+	 * Zobrist keys: a position's hash is the XOR of ZOBRIST_P1[square] for every
+	 * P1 token and ZOBRIST_P2[square] for every P2 token, so a move updates it by
+	 * XORing in the keys of the squares that changed. FLIP_KEYS[square] turns a
+	 * token over, SIDE_KEY marks P2 to move. Fixed seed, so hashes are the same
+	 * in every run.
+	 */
+	private static final long[] ZOBRIST_P1 = new long[MAX_DIM * MAX_DIM];
+	private static final long[] ZOBRIST_P2 = new long[MAX_DIM * MAX_DIM];
+	private static final long[] FLIP_KEYS = new long[MAX_DIM * MAX_DIM];
+	private static final long SIDE_KEY;
+	static {
+		SplittableRandom random = new SplittableRandom(3311);
+		for (int square = 0; square < MAX_DIM * MAX_DIM; square++) {
+			ZOBRIST_P1[square] = random.nextLong();
+			ZOBRIST_P2[square] = random.nextLong();
+			FLIP_KEYS[square] = ZOBRIST_P1[square] ^ ZOBRIST_P2[square];
+		}
+		SIDE_KEY = random.nextLong();
+	}
+
 	private int dim = 8;
-	private char[][] board;
+	private long squares;                                                         // Squares that are on this board
+	private long p1Tokens, p2Tokens;                                              // Squares owned by P1 and P2
+	private long hash;                                                            // Zobrist hash of the tokens
+
+	/**
+	 * Boards over 8x8 only: the layout, the tokens as packed bitsets, and
+	 * scratch bitsets for finding moves. null for smaller boards.
+	 */
+	private BoardGeometry geometry;
+	private long[] p1Words, p2Words;
+	private long[] movesWords, emptyWords, runWords, nextWords;
+
+	/**
+	 * Undo stack for makeMove/undoMove. Every move fills an empty square, so at
+	 * most dim*dim moves are ever on the stack. Allocated on the first makeMove.
+	 * Boards over 8x8 keep both players' tokens from before each move in
+	 * undoWords instead of the squares and flips, grown as needed.
+	 */
+	private long[] undoSquares, undoFlips, undoHashes;
+	private char[] undoPlayers;
+	private long[] undoWords;
+	private int undoTop = 0;
 
 	public OthelloBoard(int dim) {
+		if (dim < 2 || dim > MAX_DIMENSION) {
+			throw new IllegalArgumentException("dimension must be in {2,...," + MAX_DIMENSION + "}: " + dim);
+		}
 		this.dim = dim;
-		setBoard(new char[this.dim][this.dim]);
+		if (dim > MAX_DIM) {
+			this.geometry = BoardGeometry.of(dim);
+			this.p1Words = new long[this.geometry.words];
+			this.p2Words = new long[this.geometry.words];
+			allocateScratch();
+			int mid = this.dim / 2;
+			set(mid - 1, mid - 1, P1);
+			set(mid, mid, P1);
+			set(mid, mid - 1, P2);
+			set(mid - 1, mid, P2);
+			return;
+		}
 		for (int row = 0; row < this.dim; row++) {
 			for (int col = 0; col < this.dim; col++) {
-				this.getBoard()[row][col] = EMPTY;
+				this.squares |= mask(row, col);
 			}
 		}
 		int mid = this.dim / 2;
-		this.getBoard()[mid - 1][mid - 1] = this.getBoard()[mid][mid] = P1;
-		this.getBoard()[mid][mid - 1] = this.getBoard()[mid - 1][mid] = P2;
+		this.p1Tokens = mask(mid - 1, mid - 1) | mask(mid, mid);
+		this.p2Tokens = mask(mid, mid - 1) | mask(mid - 1, mid);
+		for (int square = 0; square < MAX_DIM * MAX_DIM; square++) {
+			if ((this.p1Tokens & (1L << square)) != 0) {
+				this.hash ^= ZOBRIST_P1[square];
+			} else if ((this.p2Tokens & (1L << square)) != 0) {
+				this.hash ^= ZOBRIST_P2[square];
+			}
+		}
+	}
+
+	/**
+	 * Copy constructor, the new board has the same dimension and tokens as other.
+	 * The undo stack of other is not copied.
+	 * 
+	 * @param other the board to copy
+	 */
+	public OthelloBoard(OthelloBoard other) {
+		this.dim = other.dim;
+		this.squares = other.squares;
+		this.p1Tokens = other.p1Tokens;
+		this.p2Tokens = other.p2Tokens;
+		this.hash = other.hash;
+		if (other.geometry != null) {
+			this.geometry = other.geometry;
+			this.p1Words = other.p1Words.clone();
+			this.p2Words = other.p2Words.clone();
+			allocateScratch();
+		}
+	}
+
+	private void allocateScratch() {
+		int words = this.geometry.words;
+		this.movesWords = new long[words];
+		this.emptyWords = new long[words];
+		this.runWords = new long[words];
+		this.nextWords = new long[words];
+	}
+
+	/**
+	 * Boards over 8x8 only: player's tokens as a packed bitset, bit row*dim+col,
+	 * see BoardGeometry. This board's own array, for searches to read, not to
+	 * change.
+	 * 
+	 * @param player P1 or P2
+	 * @return the tokens of player
+	 */
+	long[] getWords(char player) {
+		return player == P1 ? this.p1Words : this.p2Words;
+	}
+
+	/**
+	 * The methods that hand out bitboards only work for boards of up to 8x8.
+	 */
+	private void requireBitboard() {
+		if (this.geometry != null) {
+			throw new IllegalStateException("a " + this.dim + "x" + this.dim + " board does not fit a bitboard");
+		}
+	}
+
+	/**
+	 * @param row a row in {0,...,7}
+	 * @param col a col in {0,...,7}
+	 * @return the bitboard with only (row,col) set
+	 */
+	private static long mask(int row, int col) {
+		return 1L << (row * MAX_DIM + col);
+	}
+
+	/**
+	 * @param dir    a direction, 0-7, see RAYS
+	 * @param square a bit index in an 8x8 bitboard
+	 * @return the squares seen from square in direction dir
+	 */
+	static long ray(int dir, int square) {
+		return RAYS[dir][square];
+	}
+
+	/**
+	 * @return whether legalMoves and flips run on the Vector API kernel
+	 */
+	static boolean isVectorized() {
+		return KERNEL != null;
+	}
+
+	/**
+	 * @param square a bit index in a bitboard, as returned by
+	 *               Long.numberOfTrailingZeros
+	 * @return the row of square
+	 */
+	public static int rowOf(int square) {
+		return square / MAX_DIM;
+	}
+
+	/**
+	 * @param square a bit index in a bitboard, as returned by
+	 *               Long.numberOfTrailingZeros
+	 * @return the col of square
+	 */
+	public static int colOf(int square) {
+		return square % MAX_DIM;
 	}
 
 	/**
@@ -63,12 +279,117 @@ public class OthelloBoard {
 	 * @return P1,P2 or EMPTY, EMPTY is returned for an invalid (row,col)
 	 */
 	public char get(int row, int col) {
+	    if (validCoordinate(row, col) && this.geometry != null) {
+	        int square = row * this.dim + col;
+	        return BoardGeometry.test(this.p1Words, square) ? P1 : BoardGeometry.test(this.p2Words, square) ? P2 : EMPTY;
+	    }
 	    if (validCoordinate(row, col)) {
-	        return this.getBoard()[row][col];
+	        long square = mask(row, col);
+	        if ((this.p1Tokens & square) != 0) {
+	            return P1;
+	        }
+	        if ((this.p2Tokens & square) != 0) {
+	            return P2;
+	        }
 	    }
 	    return EMPTY;
 	}
 
+	/**
+	 * @return a bitboard with bit row*8+col set for each (row,col) on this board
+	 */
+	long getSquares() {
+		requireBitboard();
+		return this.squares;
+	}
+
+	/**
+	 * 
+	 * @param player P1 or P2
+	 * @return a bitboard with bit row*8+col set for each (row,col) holding a token
+	 *         of player, 0 for anything else
+	 * @throws IllegalStateException if the board is bigger than 8x8
+	 */
+	public long getTokens(char player) {
+		requireBitboard();
+		if (player == P1) {
+			return this.p1Tokens;
+		} else if (player == P2) {
+			return this.p2Tokens;
+		}
+		return 0;
+	}
+
+	/**
+	 * Place token at (row,col), regardless of the rules of the game. Used to set
+	 * up positions. The undo stack is cleared: the moves on it led to the old
+	 * position, not this one.
+	 * 
+	 * @param row   a row in {0,...,dim-1}
+	 * @param col   a col in {0,...,dim-1}
+	 * @param token P1, P2 or EMPTY
+	 */
+	private void set(int row, int col, char token) {
+		this.undoTop = 0;
+		if (this.geometry != null) {
+			int square = row * this.dim + col;
+			if (BoardGeometry.test(this.p1Words, square)) {
+				this.hash ^= this.geometry.zobristP1[square];
+			} else if (BoardGeometry.test(this.p2Words, square)) {
+				this.hash ^= this.geometry.zobristP2[square];
+			}
+			BoardGeometry.clear(this.p1Words, square);
+			BoardGeometry.clear(this.p2Words, square);
+			if (token == P1) {
+				BoardGeometry.set(this.p1Words, square);
+				this.hash ^= this.geometry.zobristP1[square];
+			} else if (token == P2) {
+				BoardGeometry.set(this.p2Words, square);
+				this.hash ^= this.geometry.zobristP2[square];
+			}
+			return;
+		}
+		int index = row * MAX_DIM + col;
+		long square = 1L << index;
+		if ((this.p1Tokens & square) != 0) {
+			this.hash ^= ZOBRIST_P1[index];
+		} else if ((this.p2Tokens & square) != 0) {
+			this.hash ^= ZOBRIST_P2[index];
+		}
+		this.p1Tokens &= ~square;
+		this.p2Tokens &= ~square;
+		if (token == P1) {
+			this.p1Tokens |= square;
+			this.hash ^= ZOBRIST_P1[index];
+		} else if (token == P2) {
+			this.p2Tokens |= square;
+			this.hash ^= ZOBRIST_P2[index];
+		}
+	}
+
+	/**
+	 * The Zobrist hash of the tokens on this board. It is kept up to date by
+	 * every move, so it costs nothing to ask for. Equal positions have equal
+	 * hashes, different positions almost never do.
+	 * 
+	 * @return the hash of the tokens, whoever is to move
+	 */
+	public long getHash() {
+		return this.hash;
+	}
+
+	/**
+	 * The Zobrist hash of this position with toMove to move, for search where
+	 * the same tokens with a different player to move are a different position.
+	 * 
+	 * @param toMove P1 or P2
+	 * @return the hash of the tokens and the player to move
+	 */
+	public long getHash(char toMove) {
+		long sideKey = this.geometry == null ? SIDE_KEY : this.geometry.sideKey;
+		return toMove == P2 ? this.hash ^ sideKey : this.hash;
+	}
+
 	/**
 	 * 
 	 * @param row starting row, in {0,...,dim-1} (typically {0,...,7})
@@ -139,58 +460,49 @@ public class OthelloBoard {
 	
 
 	/**
-	 * flip all other player tokens to player, starting at (row,col) in direction
-	 * (drow, dcol). Example: If (drow,dcol)=(0,1) and player==O then XXXO will
-	 * result in a flip to OOOO
+	 * Compute the tokens that would be flipped if the owner of own placed a token
+	 * on square. Along each of the 8 rays from square, the closest token that is
+	 * not opp is found, if it is an own token then the opp tokens in between are
+	 * flipped. The board is not modified by this method.
 	 * 
-	 * @param row    starting row, in {0,...,dim-1} (typically {0,...,7})
-	 * @param col    starting col, in {0,...,dim-1} (typically {0,...,7})
-	 * @param drow   the row direction, in {-1,0,1}
-	 * @param dcol   the col direction, in {-1,0,1}
-	 * @param player Either OthelloBoard.P1 or OthelloBoard.P2, the target token to
-	 *               flip to.
-	 * @return the number of other player tokens actually flipped, -1 if this is not
-	 *         a valid move in this one direction, that is, EMPTY or the end of the
-	 *         board is reached before seeing a player token.
-	 */
-	private int flip(int row, int col, int drow, int dcol, char player) {
-	    char opponent = otherPlayer(player);                                  // Get the opponent's token
-	    int flipped = 0;                                                      // Initialize flip counter
-
-	    // Move to the next position in the direction (drow, dcol)
-	    
-	    row += drow;
-	    col += dcol;
-
-	    // Ensure the first token in the direction is the opponent's
-	    
-	    if (!validCoordinate(row, col) || get(row, col) != opponent) {        // Exit early if no opponent token found
-	        return -1;                                                        // Invalid move
-	    }
-
-	    // Continue moving in the direction (drow, dcol) to find player's token
-	    
-	    while (validCoordinate(row, col) && get(row, col) == opponent) {      // While there are opponent's tokens
-	        row += drow;                                                      // Keep moving
-	        col += dcol;
-	    }
-
-	    // If the sequence doesn't end with the player's token, it's invalid
-	    
-	    if (!validCoordinate(row, col) || get(row, col) != player) {          // If no player token found
-	        return -1;                                                        // Invalid move, no flips
-	    }
-
-	    // Move back, flipping all opponent tokens along the way
-	    
-	    do {
-	        row -= drow;                                                      // Move back
-	        col -= dcol;
-	        this.getBoard()[row][col] = player;                                    // Flip the token to player's token
-	        flipped++;                                                        // Increment flip count
-	    } while (get(row - drow, col - dcol) == opponent);                    // Continue flipping until no opponent tokens
+	 * @param square  the bit index of an empty square
+	 * @param own     the tokens of the player moving
+	 * @param opp     the tokens of the other player
+	 * @param squares the squares that are on the board
+	 * @return the bitboard of opp tokens that would be flipped, 0 if the move is
+	 *         not valid
+	 */
+	static long flips(int square, long own, long opp, long squares) {
+		if (KERNEL != null) {
+			return KERNEL.flips(square, own, opp, squares);
+		}
+		return scalarFlips(square, own, opp, squares);
+	}
 
-	    return flipped;                                                       // Return the number of flipped tokens
+	/**
+	 * flips without the kernel, see BitboardKernel.scalar.
+	 */
+	static long scalarFlips(int square, long own, long opp, long squares) {
+		long flipped = 0;
+		for (int dir = 0; dir < RAYS.length; dir++) {
+			long ray = RAYS[dir][square] & squares;
+			long stop = ray & ~opp;                                          // Squares that end a run of opp
+			if (stop == 0) {                                                 // Run reaches the edge
+				continue;
+			}
+			if (dir < 4) {
+				long first = Long.lowestOneBit(stop);                        // Closest square ending the run
+				if ((first & own) != 0) {
+					flipped |= ray & (first - 1);                            // Ray squares before first
+				}
+			} else {
+				long first = Long.highestOneBit(stop);
+				if ((first & own) != 0) {
+					flipped |= ray & ~((first << 1) - 1);                    // Ray squares after first
+				}
+			}
+		}
+		return flipped;
 	}
 
 	
@@ -251,48 +563,87 @@ public class OthelloBoard {
 
 
 
+	/**
+	 * Compute every valid move for player at once. Starting from the player's
+	 * tokens, runs of opponent tokens are grown in each of the 8 directions with
+	 * shifts, an empty square just past a run is a valid move.
+	 * 
+	 * @param player P1 or P2
+	 * @return a bitboard with bit row*8+col set for each (row,col) where player
+	 *         has a valid move, 0 if there are none
+	 * @throws IllegalStateException if the board is bigger than 8x8, see
+	 *                               getMoves
+	 */
+	public long getLegalMoves(char player) {
+		requireBitboard();
+		if (player == P1) {
+			return legalMoves(this.p1Tokens, this.p2Tokens, this.squares);
+		} else if (player == P2) {
+			return legalMoves(this.p2Tokens, this.p1Tokens, this.squares);
+		}
+		return 0;
+	}
+
+	/**
+	 * The work behind getLegalMoves, on bare bitboards, for searches that keep
+	 * their own.
+	 * 
+	 * @param own     the tokens of the player moving
+	 * @param opp     the tokens of the other player
+	 * @param squares the squares that are on the board
+	 * @return the bitboard of valid moves for the owner of own
+	 */
+	static long legalMoves(long own, long opp, long squares) {
+		if (KERNEL != null) {
+			return KERNEL.legalMoves(own, opp, squares);
+		}
+		return scalarLegalMoves(own, opp, squares);
+	}
+
+	/**
+	 * legalMoves without the kernel, see BitboardKernel.scalar.
+	 */
+	static long scalarLegalMoves(long own, long opp, long squares) {
+		long empty = squares & ~(own | opp);
+		long moves = 0;
+
+		for (int dir = 0; dir < SHIFTS.length; dir++) {
+			int shift = SHIFTS[dir];
+			long left = LEFT_MASKS[dir] & squares;
+			long right = RIGHT_MASKS[dir] & squares;
+
+			// A run is at most MAX_DIM - 2 tokens long, one shift plus MAX_DIM - 3 more covers it
+			
+			long x = (own << shift) & left & opp;
+			for (int i = 0; i < MAX_DIM - 3; i++) {
+				x |= (x << shift) & left & opp;
+			}
+			moves |= (x << shift) & left & empty;
+
+			x = (own >>> shift) & right & opp;
+			for (int i = 0; i < MAX_DIM - 3; i++) {
+				x |= (x >>> shift) & right & opp;
+			}
+			moves |= (x >>> shift) & right & empty;
+		}
+		return moves;
+	}
+
 	/**
 	 * 
 	 * @return whether P1,P2 or BOTH have a move somewhere on the board, EMPTY if
 	 *         neither do.
 	 */
 	public char hasMove() {
-	    boolean p1CanMove=false, p2CanMove  = false;						   // Track if Player 1 & Player 2 can move
-
-	    // Iterate through all empty positions on the board
-	    
-	    for (int row = 0; row < this.dim; row++) {
-	        for (int col = 0; col < this.dim; col++) {
-	            if (this.getBoard()[row][col] != EMPTY) {                           // Skip non-empty squares
-	                continue;
-	            }
-
-	            // Check all 8 possible directions (ignoring (0,0) since it doesn't move)
-	            
-	            for (int drow = -1; drow <= 1; drow++) {
-	                for (int dcol = -1; dcol <= 1; dcol++) {
-	                    if (drow == 0 && dcol == 0) {                          // Skip (0,0) direction
-	                        continue;
-	                    }
-
-	                    char moveResult = hasMove(row, col, drow, dcol);       // Check if there's a valid move
-	                    if (moveResult == P1) {
-	                        p1CanMove = true;                                  // Player 1 can move
-	                    } else if (moveResult == P2) {
-	                        p2CanMove = true;                                  // Player 2 can move
-	                    }
-
-	                    if (p1CanMove && p2CanMove) {                          // If both players have moves
-	                        return BOTH;                                       // Exit early and return BOTH
-	                    }
-	                }
-	            }
-	        }
-	    }
+	    Metrics.countHasMove();
+	    boolean p1CanMove = canMove(P1);                                       // Track if Player 1 & Player 2 can move
+	    boolean p2CanMove = canMove(P2);
 
 	    // Determine which player has moves and return the appropriate constant
 	    
-	    if (p1CanMove) {
+	    if (p1CanMove && p2CanMove) {
+	        return BOTH;                                                       // Both players have moves
+	    } else if (p1CanMove) {
 	        return P1;                                                         // Player 1 has a move
 	    } else if (p2CanMove) {
 	        return P2;                                                         // Player 2 has a move
@@ -300,6 +651,84 @@ public class OthelloBoard {
 	    return EMPTY;                                                          // No moves for either player
 	}
 
+	/**
+	 * @param player P1 or P2
+	 * @return whether player has a valid move, on a board of any dimension
+	 */
+	public boolean canMove(char player) {
+		if (this.geometry == null) {
+			return getLegalMoves(player) != 0;
+		}
+		if (player != P1 && player != P2) {
+			return false;
+		}
+		findMoves(player);
+		for (long word : this.movesWords) {
+			if (word != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * List player's valid moves, on a board of any dimension. Moves are
+	 * numbered row*dim+col and listed in row, then column, order.
+	 * 
+	 * @param player P1 or P2
+	 * @param moves  gets the moves, at least dim*dim long
+	 * @return the number of moves
+	 */
+	public int getMoves(char player, int[] moves) {
+		int count = 0;
+		if (this.geometry == null) {
+			for (long legal = getLegalMoves(player); legal != 0; legal &= legal - 1) {
+				int square = Long.numberOfTrailingZeros(legal);
+				moves[count++] = rowOf(square) * this.dim + colOf(square);
+			}
+			return count;
+		}
+		if (player != P1 && player != P2) {
+			return 0;
+		}
+		findMoves(player);
+		for (int i = 0; i < this.movesWords.length; i++) {
+			for (long word = this.movesWords[i]; word != 0; word &= word - 1) {
+				moves[count++] = i * 64 + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * movesWords = player's valid moves, on a board over 8x8.
+	 */
+	private void findMoves(char player) {
+		long[] own = player == P1 ? this.p1Words : this.p2Words;
+		long[] opp = player == P1 ? this.p2Words : this.p1Words;
+		this.geometry.legalMoves(own, opp, this.movesWords, this.emptyWords, this.runWords, this.nextWords);
+	}
+
+	/**
+	 * The number of tokens player would flip by moving at (row,col), on a board
+	 * of any dimension. The board is not modified.
+	 * 
+	 * @param row    a row in {0,...,dim-1}
+	 * @param col    a col in {0,...,dim-1}
+	 * @param player P1 or P2
+	 * @return the number of tokens flipped, 0 if this is not a valid move
+	 */
+	public int getFlipCount(int row, int col, char player) {
+		if (this.geometry == null) {
+			return Long.bitCount(getFlips(row, col, player));
+		}
+		if (!validCoordinate(row, col) || get(row, col) != EMPTY || (player != P1 && player != P2)) {
+			return 0;
+		}
+		return this.geometry.countFlips(row * this.dim + col, player == P1 ? this.p1Words : this.p2Words,
+				player == P1 ? this.p2Words : this.p1Words);
+	}
+
 
 
 
@@ -316,40 +745,196 @@ public class OthelloBoard {
 	 * @return true if player moved successfully at (row,col), false otherwise
 	 */
 	public boolean move(int row, int col, char player) {
-		// HINT: Use some of the above helper methods to get this methods
-		
-	    // Early exit if the position is not empty
+	    if (apply(row, col, player) == 0) {
+	        return false;
+	    }
+	    Metrics.countMove();
+	    return true;
+	}
+
+	/**
+	 * The tokens that player would flip by moving at (row,col). The board is not
+	 * modified, so this is a cheap way to score a move.
+	 * 
+	 * @param row    starting row, in {0,...,dim-1} (typically {0,...,7})
+	 * @param col    starting col, in {0,...,dim-1} (typically {0,...,7})
+	 * @param player P1 or P2
+	 * @return the bitboard of tokens flipped, 0 if this is not a valid move
+	 * @throws IllegalStateException if the board is bigger than 8x8, see
+	 *                               getFlipCount
+	 */
+	public long getFlips(int row, int col, char player) {
+		requireBitboard();
+		if (!validCoordinate(row, col) || get(row, col) != EMPTY || (player != P1 && player != P2)) {
+			return 0;
+		}
+		long own = player == P1 ? this.p1Tokens : this.p2Tokens;
+		long opp = player == P1 ? this.p2Tokens : this.p1Tokens;
+		return flips(row * MAX_DIM + col, own, opp, this.squares);
+	}
+
+	/**
+	 * Make a move for player at position (row,col), exactly as move does, and
+	 * remember the flipped tokens so that undoMove can take the move back. Search
+	 * can explore a position in place this way, without copying the board.
+	 * 
+	 * @param row    starting row, in {0,...,dim-1} (typically {0,...,7})
+	 * @param col    starting col, in {0,...,dim-1} (typically {0,...,7})
+	 * @param player P1 or P2
+	 * @return the bitboard of flipped tokens, 0 if this is not a valid move, in
+	 *         which case nothing is changed or remembered. On boards over 8x8,
+	 *         the number of tokens flipped
+	 */
+	public long makeMove(int row, int col, char player) {
+		if (this.geometry != null) {
+			return makeMoveWords(row, col, player);
+		}
+		long hashBefore = this.hash;
+		long flipped = apply(row, col, player);
+		if (flipped != 0) {
+			if (this.undoSquares == null) {
+				this.undoSquares = new long[this.dim * this.dim];
+				this.undoFlips = new long[this.dim * this.dim];
+				this.undoHashes = new long[this.dim * this.dim];
+				this.undoPlayers = new char[this.dim * this.dim];
+			}
+			this.undoHashes[this.undoTop] = hashBefore;
+			this.undoSquares[this.undoTop] = mask(row, col);
+			this.undoFlips[this.undoTop] = flipped;
+			this.undoPlayers[this.undoTop] = player;
+			this.undoTop++;
+		}
+		return flipped;
+	}
+
+	/**
+	 * Take back the last move made with makeMove, restoring the square and the
+	 * flipped tokens.
+	 * 
+	 * @throws IllegalStateException if there is no move to undo
+	 */
+	public void undoMove() {
+		if (this.undoTop == 0) {
+			throw new IllegalStateException("no move to undo");
+		}
+		this.undoTop--;
+		if (this.geometry != null) {
+			int words = this.geometry.words, at = this.undoTop * 2 * words;
+			System.arraycopy(this.undoWords, at, this.p1Words, 0, words);
+			System.arraycopy(this.undoWords, at + words, this.p2Words, 0, words);
+			this.hash = this.undoHashes[this.undoTop];
+			return;
+		}
+		long square = this.undoSquares[this.undoTop];
+		long flipped = this.undoFlips[this.undoTop];
+		if (this.undoPlayers[this.undoTop] == P1) {
+			this.p1Tokens &= ~(square | flipped);
+			this.p2Tokens |= flipped;
+		} else {
+			this.p2Tokens &= ~(square | flipped);
+			this.p1Tokens |= flipped;
+		}
+		this.hash = this.undoHashes[this.undoTop];
+	}
+
+	/**
+	 * makeMove, for boards over 8x8: both players' tokens are kept before the
+	 * move is made, undoMove copies them back.
+	 * 
+	 * @return the number of tokens flipped, 0 if this is not a valid move
+	 */
+	private long makeMoveWords(int row, int col, char player) {
+		int flipped = getFlipCount(row, col, player);
+		if (flipped == 0) {
+			return 0;
+		}
+		int words = this.geometry.words, at = this.undoTop * 2 * words;
+		if (this.undoHashes == null) {
+			this.undoHashes = new long[this.dim * this.dim];
+			this.undoWords = new long[2 * words * 64];
+		} else if (at + 2 * words > this.undoWords.length) {
+			this.undoWords = Arrays.copyOf(this.undoWords, this.undoWords.length * 2);
+		}
+		System.arraycopy(this.p1Words, 0, this.undoWords, at, words);
+		System.arraycopy(this.p2Words, 0, this.undoWords, at + words, words);
+		this.undoHashes[this.undoTop] = this.hash;
+		apply(row, col, player);
+		this.undoTop++;
+		return flipped;
+	}
+
+	/**
+	 * @return the number of moves made with makeMove that undoMove can take back
+	 */
+	public int getUndoDepth() {
+		return this.undoTop;
+	}
+
+	/**
+	 * Make a move for player at position (row,col), the work behind move and
+	 * makeMove.
+	 * 
+	 * @param row    starting row, in {0,...,dim-1} (typically {0,...,7})
+	 * @param col    starting col, in {0,...,dim-1} (typically {0,...,7})
+	 * @param player P1 or P2
+	 * @return the bitboard of flipped tokens, 0 if the move was not valid, for
+	 *         boards over 8x8 only whether it was valid
+	 */
+	private long apply(int row, int col, char player) {
+	    // Early exit if the position is off the board, not empty, or player is not a player
 		
-	    if (get(row, col) != EMPTY) {
-	        return false;                                                      // Invalid move, as the square is occupied
+	    if (!validCoordinate(row, col) || get(row, col) != EMPTY || (player != P1 && player != P2)) {
+	        return 0;                                                          // Invalid move, as the square is occupied
+	    }
+	    if (this.geometry != null) {
+	        return applyWords(row * this.dim + col, player) ? 1 : 0;
 	    }
 
-	    boolean validMove = false;                                             // Track if any direction results in a valid move
+	    long square = mask(row, col);
+	    long own = player == P1 ? this.p1Tokens : this.p2Tokens;
+	    long opp = player == P1 ? this.p2Tokens : this.p1Tokens;
 
-	    // Check all 8 possible directions for a valid move
+	    // Flip opponent's tokens in all 8 directions at once
 	    
-	    for (int drow = -1; drow <= 1; drow++) {
-	        for (int dcol = -1; dcol <= 1; dcol++) {
-	            if (drow == 0 && dcol == 0) {                                  // Skip the (0,0) direction as it doesn't move
-	                continue;
-	            }
-
-	            // Attempt to flip in the given direction
-	            
-	            int flipped = flip(row, col, drow, dcol, player);              // Try to flip opponent's tokens
-	            if (flipped > 0) {                                             // If any tokens are flipped, it's a valid move
-	                validMove = true;
-	            }
-	        }
+	    long flipped = flips(row * MAX_DIM + col, own, opp, this.squares);
+	    if (flipped == 0) {                                                    // Nothing flipped, not a valid move
+	        return 0;
 	    }
 
-	    // If the move is valid, place the player's token at the specified position
+	    // Place the player's token at the specified position
 	    
-	    if (validMove) {
-	        this.getBoard()[row][col] = player;                                      // Update the board with the player's token
+	    own |= flipped | square;
+	    opp &= ~flipped;
+	    int index = row * MAX_DIM + col;
+	    this.hash ^= player == P1 ? ZOBRIST_P1[index] : ZOBRIST_P2[index];   // New token
+	    for (long f = flipped; f != 0; f &= f - 1) {
+	        this.hash ^= FLIP_KEYS[Long.numberOfTrailingZeros(f)];             // Turned over tokens
+	    }
+	    if (player == P1) {
+	        this.p1Tokens = own;
+	        this.p2Tokens = opp;
+	    } else {
+	        this.p2Tokens = own;
+	        this.p1Tokens = opp;
 	    }
+	    return flipped;                                                        // Return the tokens flipped
+	}
 
-	    return validMove;                                                       // Return whether the move was valid
+	/**
+	 * apply, for boards over 8x8.
+	 * 
+	 * @return whether the move was valid
+	 */
+	private boolean applyWords(int square, char player) {
+		long[] own = player == P1 ? this.p1Words : this.p2Words;
+		long[] opp = player == P1 ? this.p2Words : this.p1Words;
+		if (this.geometry.countFlips(square, own, opp) == 0) {
+			return false;                                                      // Nothing flipped, not a valid move
+		}
+		this.hash ^= this.geometry.flip(square, own, opp);
+		BoardGeometry.set(own, square);
+		this.hash ^= player == P1 ? this.geometry.zobristP1[square] : this.geometry.zobristP2[square];
+		return true;
 	}
 	
 
@@ -360,15 +945,18 @@ public class OthelloBoard {
 	 * @return the number of tokens on the board for player
 	 */
 	public int getCount(char player) {
-	    int count = 0;
-	    for (int row = 0; row < this.dim; row++) {
-	        for (int col = 0; col < this.dim; col++) {
-	            if (this.getBoard()[row][col] == player) {
-	                count++;
-	            }
-	        }
+	    if (this.geometry != null) {
+	        int p1 = BoardGeometry.count(this.p1Words), p2 = BoardGeometry.count(this.p2Words);
+	        return player == P1 ? p1 : player == P2 ? p2 : player == EMPTY ? this.dim * this.dim - p1 - p2 : 0;
 	    }
-	    return count;
+	    if (player == P1) {
+	        return Long.bitCount(this.p1Tokens);
+	    } else if (player == P2) {
+	        return Long.bitCount(this.p2Tokens);
+	    } else if (player == EMPTY) {
+	        return Long.bitCount(this.squares & ~(this.p1Tokens | this.p2Tokens));
+	    }
+	    return 0;
 	}
 
 	/**
@@ -395,7 +983,7 @@ public class OthelloBoard {
 		for (int row = 0; row < this.dim; row++) {
 			s += row + "|";
 			for (int col = 0; col < this.dim; col++) {
-				s += this.getBoard()[row][col] + "|";
+				s += this.get(row, col) + "|";
 			}
 			s += row + "\n";
 
@@ -426,7 +1014,7 @@ public class OthelloBoard {
 		System.out.println("getCount(P2)=" + ob.getCount(P2));
 		for (int row = 0; row < ob.dim; row++) {
 			for (int col = 0; col < ob.dim; col++) {
-				ob.getBoard()[row][col] = P1;
+				ob.set(row, col, P1);
 			}
 		}
 		System.out.println(ob.toString());
@@ -443,7 +1031,7 @@ public class OthelloBoard {
 		for (int row = 0; row < ob.dim; row++) {
 			for (int col = 0; col < ob.dim; col++) {
 				if (row == 0 || col == 0) {
-					ob.getBoard()[row][col] = P2;
+					ob.set(row, col, P2);
 				}
 			}
 		}
@@ -460,8 +1048,8 @@ public class OthelloBoard {
 		// Can't move to (4,4) since the square is not empty
 		System.out.println("Trying to move to (4,4) move=" + ob.move(4, 4, P2));
 
-		ob.getBoard()[4][4] = EMPTY;
-		ob.getBoard()[2][4] = EMPTY;
+		ob.set(4, 4, EMPTY);
+		ob.set(2, 4, EMPTY);
 
 		System.out.println(ob.toString());
 
@@ -478,16 +1066,30 @@ public class OthelloBoard {
 	}
 
 	/**
-	 * @return the board
+	 * @return a copy of the board, changes to the returned array do not change
+	 *         this board
 	 */
 	public char[][] getBoard() {
+		char[][] board = new char[this.dim][this.dim];
+		for (int row = 0; row < this.dim; row++) {
+			for (int col = 0; col < this.dim; col++) {
+				board[row][col] = get(row, col);
+			}
+		}
 		return board;
 	}
 
 	/**
-	 * @param board the board to set
+	 * Replace the position. Moves made before it can no longer be undone.
+	 * 
+	 * @param board the board to set, a dim x dim array of P1, P2 and EMPTY
 	 */
 	public void setBoard(char[][] board) {
-		this.board = board;
+		this.undoTop = 0;
+		for (int row = 0; row < this.dim; row++) {
+			for (int col = 0; col < this.dim; col++) {
+				set(row, col, board[row][col]);
+			}
+		}
 	}
 }
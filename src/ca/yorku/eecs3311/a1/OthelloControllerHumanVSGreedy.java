@@ -16,7 +16,16 @@ public class OthelloControllerHumanVSGreedy {
      * Constructor initializes the Othello game and the two players (human vs greedy AI).
      */
     public OthelloControllerHumanVSGreedy() {
-        this.othello = new Othello();                                       // Initialize the Othello game
+        this(Othello.DIMENSION);
+    }
+
+    /**
+     * As OthelloControllerHumanVSGreedy(), on a board of another size.
+     *
+     * @param dimension the board's number of rows and columns
+     */
+    public OthelloControllerHumanVSGreedy(int dimension) {
+        this.othello = new Othello(dimension);                              // Initialize the Othello game
         this.player1 = new PlayerHuman(this.othello, OthelloBoard.P1);      // P1 is the human player
         this.player2 = new PlayerGreedy(this.othello, OthelloBoard.P2);     // P2 is the greedy AI player
     }
@@ -86,10 +95,11 @@ public class OthelloControllerHumanVSGreedy {
 	 * The computer uses a greedy strategy, that is, it picks the first
 	 * move which maximizes its number of token on the board.
 	 * The output should be almost identical to that of OthelloControllerHumanVSHuman.
-	 * @param args
+	 * @param args optional board dimension, 8 by default
 	 */
 	public static void main(String[] args) {
-		OthelloControllerHumanVSGreedy oc = new OthelloControllerHumanVSGreedy();
+		int dimension = args.length > 0 ? Integer.parseInt(args[0]) : Othello.DIMENSION;
+		OthelloControllerHumanVSGreedy oc = new OthelloControllerHumanVSGreedy(dimension);
 		oc.play(); // this should work
 	}
 }
\ No newline at end of file
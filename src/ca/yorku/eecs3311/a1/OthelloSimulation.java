@@ -1,6 +1,11 @@
 package ca.yorku.eecs3311.a1;
 
-import java.util.Random;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class OthelloSimulation {
 	
@@ -24,91 +29,233 @@ public class OthelloSimulation {
 	occurred by chance.
 
 	Step 3: Calculate p-value
-	- The p-value will be calculated by simulating random samples.
+	- Shuffled P1 wins follow Binomial(numGames, 1/2), so the p-value is computed 
+	exactly, and checked by simulating random samples (see Statistics).
 	- It represents how often a difference in win rates as extreme as the observed 
 	one occurs by chance.
 	*/
 
-    public static void main(String[] args) {
-        int p1Wins = 0;                                             // Track wins for Player 1 (Random)
-        int p2Wins = 0;                                             // Track wins for Player 2 (Random)
-        int numGames = 10000;                                       // Total number of games to simulate
-        Random random = new Random();                               // Random instance for shuffling
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;           // Spreads game indices over the seed space
+    private static final int GAMES_PER_TASK = 256;                          // Games played by a task without splitting
 
-        // Simulate the games
-        
-        for (int i = 0; i < numGames; i++) {
-            Othello game = new Othello();                           			// New game instance
-            PlayerRandom player1 = new PlayerRandom(game, OthelloBoard.P1);  	// Random P1
-            PlayerRandom player2 = new PlayerRandom(game, OthelloBoard.P2);  	// Random P2
-
-            // Play the game until it's over
-            
-            while (!game.isGameOver()) {
-                Move move;                                           // Move instance for current move
-                char whosTurn = game.getWhosTurn();                  // Check whose turn it is
-
-                if (whosTurn == OthelloBoard.P1)
-                    move = player1.getMove();                        // P1 makes a move
-                else
-                    move = player2.getMove();                        // P2 makes a move
-
-                if (move != null)
-                    game.move(move.getRow(), move.getCol());         // Make the move
-                else
-                    game.passTurn();                                 // If no valid move, pass the turn
-            }
+    /**
+     * Win counts of a batch of games. Each task counts its own games, counts
+     * are only combined once the tasks are done.
+     */
+    public static class Results {
+        public int p1Wins, p2Wins, draws;
 
-            // Determine the winner
-            
-            char winner = game.getWinner();                          // Get the game's winner
-            if (winner == OthelloBoard.P1) {
-                p1Wins++;                                            // Increment P1 wins if P1 wins
-            } else if (winner == OthelloBoard.P2) {
-                p2Wins++;                                            // Increment P2 wins if P2 wins
-            }
+        /**
+         * @return the number of games counted
+         */
+        public int getGames() {
+            return p1Wins + p2Wins + draws;
         }
 
-        // Calculate win probabilities
-        
-        float p1WinRate = (float) p1Wins / numGames;                 // Calculate P1 win probability
-        float p2WinRate = (float) p2Wins / numGames;                 // Calculate P2 win probability
+        private void add(Results other) {
+            p1Wins += other.p1Wins;
+            p2Wins += other.p2Wins;
+            draws += other.draws;
+        }
+    }
 
-        System.out.println("P1 (Random) Win Probability: " + p1WinRate);
-        System.out.println("P2 (Random) Win Probability: " + p2WinRate);
+    /**
+     * Plays games [from, to) by splitting the range in half until it is small
+     * enough to play sequentially. Given a writer, each task appends its games
+     * to it in one batch, so the file holds every game, in no fixed order.
+     */
+    private static class SimulateTask extends RecursiveTask<Results> {
+        private static final long serialVersionUID = 1L;
+        private final long masterSeed;
+        private final int from, to;
+        private final GameRecordWriter writer;                              // Records the games, or null
 
-        // Simulate random shuffling to calculate p-value
-        int shuffleCount = 100000;                                   // Number of shuffle simulations
-        int extremeCases = 0;                                        // Count of extreme cases
+        SimulateTask(long masterSeed, int from, int to, GameRecordWriter writer) {
+            this.masterSeed = masterSeed;
+            this.from = from;
+            this.to = to;
+            this.writer = writer;
+        }
 
-        for (int i = 0; i < shuffleCount; i++) {
-            int shuffledP1Wins = 0;                                  // Track wins for shuffled P1
-            for (int j = 0; j < numGames; j++) {
-                if (random.nextBoolean()) {
-                    shuffledP1Wins++;                                // Increment if P1 wins in shuffle
+        @Override
+        protected Results compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                Results results = new Results();
+                GameRecordWriter.Batch batch = writer == null ? null : writer.newBatch();
+                byte[] moves = batch == null ? null : new byte[GameRecords.MAX_PLIES];
+                for (int i = from; i < to; i++) {
+                    long seed = gameSeed(masterSeed, i);
+                    Othello game = new Othello();
+                    int plies = Tournament.playGame(PlayerRandom::new, PlayerRandom::new, seed, game, moves);
+                    if (batch != null) {
+                        batch.add(0, 0, seed, game.getBoard(), moves, plies);
+                    }
+                    char winner = game.getWinner();
+                    if (winner == OthelloBoard.P1) {
+                        results.p1Wins++;
+                    } else if (winner == OthelloBoard.P2) {
+                        results.p2Wins++;
+                    } else {
+                        results.draws++;
+                    }
+                }
+                if (batch != null) {
+                    try {
+                        batch.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                 }
+                return results;
             }
+            int mid = (from + to) >>> 1;
+            SimulateTask left = new SimulateTask(masterSeed, from, mid, writer);
+            left.fork();                                                    // Play the first half on another worker
+            Results results = new SimulateTask(masterSeed, mid, to, writer).compute();
+            results.add(left.join());
+            return results;
+        }
+    }
+
+    /**
+     * The seed of game number game. It only depends on the master seed and the
+     * game number, never on which thread plays the game.
+     * 
+     * @param masterSeed the seed of the whole simulation
+     * @param game       the game number
+     * @return the seed for this game
+     */
+    static long gameSeed(long masterSeed, int game) {
+        return new SplittableRandom(masterSeed + game * SEED_GAMMA).nextLong();
+    }
+
+    /**
+     * Play one Random vs Random game.
+     * 
+     * @param seed the seed, the same seed always plays the same game
+     * @return the winner, P1, P2 or EMPTY for a draw
+     */
+    public static char playGame(long seed) {
+        return Tournament.playGame(PlayerRandom::new, PlayerRandom::new, seed); // Random P1 vs Random P2
+    }
 
-            float shuffledP1WinRate = (float) shuffledP1Wins / numGames;    // Shuffled P1 win rate
-            float shuffledP2WinRate = 1.0f - shuffledP1WinRate;            // Shuffled P2 win rate
+    /**
+     * Play numGames Random vs Random games spread over the cores of the common
+     * fork-join pool. The results are identical for the same masterSeed, however
+     * many threads play the games.
+     * 
+     * @param numGames   the number of games to play
+     * @param masterSeed the seed every game seed is derived from
+     * @return the win counts
+     */
+    public static Results simulate(int numGames, long masterSeed) {
+        return simulate(ForkJoinPool.commonPool(), new SimulateTask(masterSeed, 0, numGames, null));
+    }
 
-            // Calculate the difference in win rates
-            
-            float shuffledDifference = Math.abs(shuffledP1WinRate - shuffledP2WinRate); // Shuffled difference
-            float actualDifference = Math.abs(p1WinRate - p2WinRate);                  	// Actual difference
+    /**
+     * As simulate(numGames, masterSeed), also recording every game.
+     * 
+     * @param numGames   the number of games to play
+     * @param masterSeed the seed every game seed is derived from
+     * @param writer     gets every game, with player 0 for both sides, see
+     *                   GameRecords
+     * @return the win counts
+     * @throws IOException if the games can not be written
+     */
+    public static Results simulate(int numGames, long masterSeed, GameRecordWriter writer) throws IOException {
+        try {
+            return simulate(ForkJoinPool.commonPool(), new SimulateTask(masterSeed, 0, numGames, writer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-            // Check if the shuffled difference is more extreme than the actual difference
-            
-            if (shuffledDifference >= actualDifference) {
-                extremeCases++;                                    // Count extreme cases where shuffle diff >= actual diff
+    /**
+     * As simulate(numGames, masterSeed), on a pool of its own with the given
+     * number of threads.
+     * 
+     * @param numGames    the number of games to play
+     * @param masterSeed  the seed every game seed is derived from
+     * @param parallelism the number of threads
+     * @return the win counts
+     */
+    public static Results simulate(int numGames, long masterSeed, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return simulate(pool, new SimulateTask(masterSeed, 0, numGames, null));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run task in pool, as a JFR othello.Simulation event, see Metrics.
+     */
+    private static Results simulate(ForkJoinPool pool, SimulateTask task) {
+        Metrics.SimulationEvent event = Metrics.beginSimulation();
+        Results results = pool.invoke(task);
+        Metrics.recordSimulation(event, results.getGames(), results.p1Wins, results.p2Wins);
+        return results;
+    }
+
+    private static String format(double[] interval) {
+        return String.format("[%.4g, %.4g]", interval[0], interval[1]);
+    }
+
+    /**
+     * Run the simulation and the shuffle test.
+     * 
+     * @param args optional master seed, then optional number of games, then
+     *             optional number of shuffles (0 for the exact p-value only),
+     *             then an optional file to record the games in. Ends with the
+     *             throughput, and the tail latencies if metrics are on
+     * @throws IOException if the games can not be recorded
+     */
+    public static void main(String[] args) throws IOException {
+        long masterSeed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime(); // Seed for the whole simulation
+        int numGames = args.length > 1 ? Integer.parseInt(args[1]) : 10000; // Total number of games to simulate
+        int shuffleCount = args.length > 2 ? Integer.parseInt(args[2]) : 100000; // Number of shuffle simulations
+
+        // Simulate the games on all cores
+        
+        System.out.println("Master seed: " + masterSeed);
+        long start = System.nanoTime();
+        Results results;
+        if (args.length > 3) {
+            try (GameRecordWriter writer = new GameRecordWriter(Path.of(args[3]), "Random")) {
+                results = simulate(numGames, masterSeed, writer);
             }
+        } else {
+            results = simulate(numGames, masterSeed);
         }
+        long elapsedNanos = System.nanoTime() - start;
+        int p1Wins = results.p1Wins;                                // Wins for Player 1 (Random)
+        int p2Wins = results.p2Wins;                                // Wins for Player 2 (Random)
 
-        // Calculate p-value
+        // Calculate win probabilities, with 95% confidence intervals
         
-        float pValue = (float) extremeCases / shuffleCount;          // p-value based on extreme cases
+        float p1WinRate = (float) p1Wins / numGames;                 // Calculate P1 win probability
+        float p2WinRate = (float) p2Wins / numGames;                 // Calculate P2 win probability
+        double[] p1Interval = Statistics.wilsonInterval(p1Wins, numGames, Statistics.Z_95);
+        double[] p2Interval = Statistics.wilsonInterval(p2Wins, numGames, Statistics.Z_95);
+
+        System.out.println("P1 (Random) Win Probability: " + p1WinRate + " 95% CI " + format(p1Interval));
+        System.out.println("P2 (Random) Win Probability: " + p2WinRate + " 95% CI " + format(p2Interval));
+
+        // Under H0 the shuffled P1 wins are Binomial(numGames, 1/2), so the p-value is exact
+        
+        double pValue = Statistics.exactPValue(numGames, p1Wins, p2Wins);
         System.out.println("p-value: " + pValue);
 
+        // Check it by shuffling, as in the video, if any shuffles are asked for
+        
+        if (shuffleCount > 0) {
+            int extremeCases = Statistics.countExtremeShuffles(numGames, p1Wins, p2Wins, shuffleCount, masterSeed);
+            double shuffledPValue = (double) extremeCases / shuffleCount; // p-value based on extreme cases
+            System.out.println("shuffled p-value: " + shuffledPValue + " over " + shuffleCount + " shuffles, 95% CI "
+                    + format(Statistics.wilsonInterval(extremeCases, shuffleCount, Statistics.Z_95)));
+        }
+
         // Conclusion based on p-value
         
         if (pValue < 0.05) {                                         // If p-value < 0.05, reject null hypothesis
@@ -116,5 +263,14 @@ public class OthelloSimulation {
         } else {                                                     // If p-value >= 0.05, fail to reject null hypothesis
             System.out.println("Fail to reject H0: No significant difference between P1 and P2.");
         }
+
+        // Throughput, and with -Dothello.metrics=true where the time went
+
+        if (Metrics.ENABLED) {
+            System.out.print(Metrics.summary(elapsedNanos));
+        } else {
+            System.out.printf("%d games in %.3f s: %.0f games/s (-Dothello.metrics=true for latencies)%n", numGames,
+                    elapsedNanos / 1e9, numGames * 1e9 / elapsedNanos);
+        }
     }
 }
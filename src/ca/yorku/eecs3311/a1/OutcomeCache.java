@@ -0,0 +1,161 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The known winners of positions between two deterministic players, see
+ * Player.isDeterministic. Once such a game reaches a position another game
+ * already played on from, its winner is known, and Tournament.playGame stops
+ * there.
+ *
+ * Positions are kept whole, the tokens of both players and the player to
+ * move, so a hit is never a hash collision. The cache holds a fixed number of
+ * positions in sets of WAYS, each position going in the set its Zobrist hash
+ * picks. A full set evicts by CLOCK: a hit marks a position as referenced,
+ * and the set's hand sweeps past referenced positions, clearing the mark,
+ * to the first one that is not.
+ *
+ * Sets are guarded by STRIPES locks, so parallel games only contend when they
+ * touch sets of the same stripe. A cache is only valid for one pair of
+ * strategies with the same colours: the same position with other players has
+ * another ending.
+ *
+ * @author ilir & leroy
+ */
+public class OutcomeCache {
+	public static final char UNKNOWN = '?';                                  // get's answer for an unseen position
+	static final int WAYS = 8;                                               // Positions per set
+	private static final int STRIPES = 64;
+
+	/**
+	 * outcomes[i]: bits 0-1 the winner (see WINNERS), bit 2 set if P2 is to
+	 * move, bit 3 set if slot i is in use, bit 4 the CLOCK reference mark.
+	 */
+	private static final char[] WINNERS = { OthelloBoard.EMPTY, OthelloBoard.P1, OthelloBoard.P2 };
+	private static final int P2_TO_MOVE = 4, USED = 8, REFERENCED = 16;
+
+	private final long[] p1Tokens, p2Tokens;
+	private final byte[] outcomes;
+	private final byte[] hands;                                              // CLOCK hand of each set
+	private final int setMask;
+	private final Object[] locks = new Object[STRIPES];
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+	/**
+	 * @param capacity the number of positions kept, rounded up to a power of
+	 *                 two, at least WAYS, about 18 bytes each
+	 */
+	public OutcomeCache(int capacity) {
+		int sets = Math.max(1, (capacity + WAYS - 1) / WAYS);
+		if (Integer.bitCount(sets) != 1) {
+			sets = Integer.highestOneBit(sets) * 2;                          // A power of two, for setMask
+		}
+		this.p1Tokens = new long[sets * WAYS];
+		this.p2Tokens = new long[sets * WAYS];
+		this.outcomes = new byte[sets * WAYS];
+		this.hands = new byte[sets];
+		this.setMask = sets - 1;
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * @param hash the Zobrist hash of the position, see OthelloBoard.getHash
+	 * @param p1   P1's tokens
+	 * @param p2   P2's tokens
+	 * @param turn the player to move
+	 * @return the winner of the position, P1, P2 or EMPTY for a draw, UNKNOWN
+	 *         if it is not in the cache
+	 */
+	public char get(long hash, long p1, long p2, char turn) {
+		int set = set(hash), side = turn == OthelloBoard.P2 ? P2_TO_MOVE : 0;
+		synchronized (locks[set & (STRIPES - 1)]) {
+			for (int i = set * WAYS; i < set * WAYS + WAYS; i++) {
+				int outcome = outcomes[i];
+				if ((outcome & (USED | P2_TO_MOVE)) == (USED | side) && p1Tokens[i] == p1 && p2Tokens[i] == p2) {
+					outcomes[i] = (byte) (outcome | REFERENCED);
+					hits.increment();
+					return WINNERS[outcome & 3];
+				}
+			}
+		}
+		misses.increment();
+		return UNKNOWN;
+	}
+
+	/**
+	 * Remember the winner of a position, evicting another position of its set
+	 * if the set is full.
+	 *
+	 * @param hash   the Zobrist hash of the position
+	 * @param p1     P1's tokens
+	 * @param p2     P2's tokens
+	 * @param turn   the player to move
+	 * @param winner P1, P2 or EMPTY for a draw
+	 */
+	public void put(long hash, long p1, long p2, char turn, char winner) {
+		int set = set(hash), side = turn == OthelloBoard.P2 ? P2_TO_MOVE : 0;
+		int outcome = USED | side | (winner == OthelloBoard.P1 ? 1 : winner == OthelloBoard.P2 ? 2 : 0);
+		synchronized (locks[set & (STRIPES - 1)]) {
+			int free = -1;
+			for (int i = set * WAYS; i < set * WAYS + WAYS; i++) {
+				if ((outcomes[i] & USED) == 0) {
+					free = free < 0 ? i : free;
+				} else if ((outcomes[i] & P2_TO_MOVE) == side && p1Tokens[i] == p1 && p2Tokens[i] == p2) {
+					return;                                                  // Already known
+				}
+			}
+			if (free < 0) {
+				free = evict(set);
+			}
+			p1Tokens[free] = p1;
+			p2Tokens[free] = p2;
+			outcomes[free] = (byte) outcome;
+		}
+	}
+
+	/**
+	 * Sweep the CLOCK hand of a full set to its first unreferenced position,
+	 * clearing the marks it passes.
+	 *
+	 * @return the slot of that position
+	 */
+	private int evict(int set) {
+		int hand = hands[set];
+		while (true) {
+			int i = set * WAYS + hand;
+			hand = (hand + 1) % WAYS;
+			if ((outcomes[i] & REFERENCED) == 0) {
+				hands[set] = (byte) hand;
+				return i;
+			}
+			outcomes[i] &= ~REFERENCED;                                      // A second chance
+		}
+	}
+
+	private int set(long hash) {
+		return (int) (hash ^ (hash >>> 32)) & setMask;
+	}
+
+	/**
+	 * @return the number of positions the cache can hold
+	 */
+	public int getCapacity() {
+		return outcomes.length;
+	}
+
+	/**
+	 * @return the number of gets that found their position
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of gets that did not
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+}
@@ -0,0 +1,317 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scores 8x8 positions with trained pattern tables. A pattern is a fixed line
+ * or block of squares: the edges (with the squares diagonal from the corners),
+ * 3x3 and 2x5 corner blocks, the second to fourth rows and the diagonals. Each
+ * way of filling a pattern's squares with empty, own and other tokens has its
+ * own weight, so the tables learn things like stable edges and giving away
+ * corners, which square weights can not express. The score also counts
+ * mobility, and every weight depends on the game phase (how full the board
+ * is).
+ *
+ * A pattern shape appears on the board several times, once per symmetry (see
+ * Symmetry), and every instance shares the shape's table, so each position
+ * trains all its symmetric versions at once.
+ *
+ * The index of a pattern instance is its squares read as a base 3 number, 0
+ * for empty, 1 for the player scored and 2 for the other player. Features
+ * keeps the index of every instance for both players and updates them as moves
+ * are made and taken back, touching only the squares that changed.
+ *
+ * Scores are in 1/SCALE of a token, from the player to move's point of view,
+ * and estimate the final token difference. Weights come from PatternTrainer
+ * and are stored as shorts, see save for the file format.
+ *
+ * @author ilir & leroy
+ */
+public class PatternEvaluator {
+	public static final int SCALE = 128;                                     // Score units per token
+	public static final int PHASES = 4;                                      // Weight sets, by tokens on the board
+	static final int MAGIC = 0x4F505731;                                     // "OPW1"
+
+	/**
+	 * One instance of each shape, the others are its symmetric copies. Squares
+	 * are row*8+col, the first square is the most significant base 3 digit.
+	 */
+	private static final int[][] SHAPES = {
+			{ 9, 0, 1, 2, 3, 4, 5, 6, 7, 14 },                               // Edge, plus the X squares
+			{ 0, 1, 2, 8, 9, 10, 16, 17, 18 },                               // 3x3 corner
+			{ 0, 1, 2, 3, 4, 8, 9, 10, 11, 12 },                             // 2x5 corner
+			{ 8, 9, 10, 11, 12, 13, 14, 15 },                                // Second row
+			{ 16, 17, 18, 19, 20, 21, 22, 23 },                              // Third row
+			{ 24, 25, 26, 27, 28, 29, 30, 31 },                              // Fourth row
+			{ 0, 9, 18, 27, 36, 45, 54, 63 },                                // Main diagonal
+			{ 1, 10, 19, 28, 37, 46, 55 },                                   // Diagonals of 7 to 4 squares
+			{ 2, 11, 20, 29, 38, 47 },
+			{ 3, 12, 21, 30, 39 },
+			{ 4, 13, 22, 31 },
+	};
+
+	static final int[] INSTANCE_SHAPE;                                       // The shape of each instance
+	static final int[][] INSTANCE_SQUARES;
+	static final int[] SHAPE_OFFSET;                                         // Where each shape's table starts
+	static final int MOBILITY, BIAS;                                         // Weights after the tables
+	static final int WEIGHTS_PER_PHASE;
+
+	/**
+	 * For each square, the instances it is in, packed as instance << 16 | the
+	 * place value of the square in the instance's index.
+	 */
+	private static final int[][] SQUARE_INSTANCES = new int[64][];
+
+	static {
+		List<int[]> squares = new ArrayList<>();
+		List<Integer> shapes = new ArrayList<>();
+		SHAPE_OFFSET = new int[SHAPES.length];
+		int offset = 0;
+		for (int shape = 0; shape < SHAPES.length; shape++) {
+			List<Long> seen = new ArrayList<>();
+			for (int t = 0; t < Symmetry.COUNT; t++) {
+				int[] instance = new int[SHAPES[shape].length];
+				long set = 0;
+				for (int i = 0; i < instance.length; i++) {
+					instance[i] = Symmetry.transformSquare(t, SHAPES[shape][i]);
+					set |= 1L << instance[i];
+				}
+				if (!seen.contains(set)) {                                   // Symmetric shapes give the same set twice
+					seen.add(set);
+					squares.add(instance);
+					shapes.add(shape);
+				}
+			}
+			SHAPE_OFFSET[shape] = offset;
+			offset += power(SHAPES[shape].length);
+		}
+		MOBILITY = offset;
+		BIAS = offset + 1;
+		WEIGHTS_PER_PHASE = offset + 2;
+		INSTANCE_SQUARES = squares.toArray(new int[0][]);
+		INSTANCE_SHAPE = shapes.stream().mapToInt(Integer::intValue).toArray();
+
+		List<List<Integer>> bySquare = new ArrayList<>();
+		for (int square = 0; square < 64; square++) {
+			bySquare.add(new ArrayList<>());
+		}
+		for (int instance = 0; instance < INSTANCE_SQUARES.length; instance++) {
+			int[] s = INSTANCE_SQUARES[instance];
+			for (int i = 0; i < s.length; i++) {
+				bySquare.get(s[i]).add(instance << 16 | power(s.length - 1 - i));
+			}
+		}
+		for (int square = 0; square < 64; square++) {
+			SQUARE_INSTANCES[square] = bySquare.get(square).stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	private final short[] weights;                                           // [phase * WEIGHTS_PER_PHASE + weight]
+
+	/**
+	 * @param weights PHASES * WEIGHTS_PER_PHASE weights, see PatternTrainer
+	 */
+	PatternEvaluator(short[] weights) {
+		if (weights.length != PHASES * WEIGHTS_PER_PHASE) {
+			throw new IllegalArgumentException("expected " + PHASES * WEIGHTS_PER_PHASE + " weights: " + weights.length);
+		}
+		this.weights = weights;
+	}
+
+	private static int power(int exponent) {
+		int p = 1;
+		for (int i = 0; i < exponent; i++) {
+			p *= 3;
+		}
+		return p;
+	}
+
+	/**
+	 * @param empties the number of empty squares
+	 * @return the weight set for positions with that many empty squares
+	 */
+	static int phase(int empties) {
+		return Math.min(PHASES - 1, Math.max(0, (60 - empties) * PHASES / 61));
+	}
+
+	/**
+	 * Score a position from scratch, without Features.
+	 *
+	 * @param own the tokens of the player to move
+	 * @param opp the tokens of the other player
+	 * @return the score for the player to move, in 1/SCALE of a token
+	 */
+	public int evaluate(long own, long opp) {
+		int base = phase(64 - Long.bitCount(own | opp)) * WEIGHTS_PER_PHASE;
+		int score = 0;
+		for (int instance = 0; instance < INSTANCE_SQUARES.length; instance++) {
+			score += weights[base + SHAPE_OFFSET[INSTANCE_SHAPE[instance]] + index(INSTANCE_SQUARES[instance], own, opp)];
+		}
+		return score + scoreMobility(base, own, opp, -1L);
+	}
+
+	private int scoreMobility(int base, long own, long opp, long squares) {
+		int mobility = Long.bitCount(OthelloBoard.legalMoves(own, opp, squares))
+				- Long.bitCount(OthelloBoard.legalMoves(opp, own, squares));
+		return weights[base + MOBILITY] * mobility + weights[base + BIAS];
+	}
+
+	/**
+	 * @return the base 3 index of the squares, 1 for own and 2 for opp
+	 */
+	static int index(int[] squares, long own, long opp) {
+		int index = 0;
+		for (int square : squares) {
+			index = index * 3 + (int) ((own >>> square) & 1) + 2 * (int) ((opp >>> square) & 1);
+		}
+		return index;
+	}
+
+	/**
+	 * @return a Features tracking board, from now on it must be told of every
+	 *         move made and taken back
+	 */
+	public Features newFeatures(OthelloBoard board) {
+		return new Features(board);
+	}
+
+	/**
+	 * The pattern indices of a board, for both players, kept up to date move by
+	 * move.
+	 */
+	public class Features {
+		private final OthelloBoard board;
+		private final int[] indexP1 = new int[INSTANCE_SQUARES.length];      // P1's point of view
+		private final int[] indexP2 = new int[INSTANCE_SQUARES.length];      // P2's point of view
+
+		private Features(OthelloBoard board) {
+			if (board.getDimension() != 8) {
+				throw new IllegalArgumentException("patterns are for 8x8 boards: " + board.getDimension());
+			}
+			this.board = board;
+			long p1 = board.getTokens(OthelloBoard.P1), p2 = board.getTokens(OthelloBoard.P2);
+			for (int instance = 0; instance < INSTANCE_SQUARES.length; instance++) {
+				indexP1[instance] = index(INSTANCE_SQUARES[instance], p1, p2);
+				indexP2[instance] = index(INSTANCE_SQUARES[instance], p2, p1);
+			}
+		}
+
+		/**
+		 * Update the indices for a move the board has just made.
+		 *
+		 * @param square  the square played, row*8+col
+		 * @param flipped the tokens it flipped, as returned by makeMove
+		 * @param player  the player who moved
+		 */
+		public void play(int square, long flipped, char player) {
+			update(square, flipped, player, 1);
+		}
+
+		/**
+		 * Update the indices for a move the board has just taken back.
+		 *
+		 * @param square  the square that was played
+		 * @param flipped the tokens it had flipped
+		 * @param player  the player who had moved
+		 */
+		public void undo(int square, long flipped, char player) {
+			update(square, flipped, player, -1);
+		}
+
+		/**
+		 * A move puts digit 1 in the mover's indices and 2 in the other
+		 * player's, and turns each flipped token's 2 into 1 in the mover's
+		 * indices and 1 into 2 in the other's. sign -1 takes all that back.
+		 */
+		private void update(int square, long flipped, char player, int sign) {
+			int[] mover = player == OthelloBoard.P1 ? indexP1 : indexP2;
+			int[] other = player == OthelloBoard.P1 ? indexP2 : indexP1;
+			for (int ref : SQUARE_INSTANCES[square]) {
+				int value = sign * (ref & 0xFFFF);
+				mover[ref >>> 16] += value;
+				other[ref >>> 16] += 2 * value;
+			}
+			for (; flipped != 0; flipped &= flipped - 1) {
+				for (int ref : SQUARE_INSTANCES[Long.numberOfTrailingZeros(flipped)]) {
+					int value = sign * (ref & 0xFFFF);
+					mover[ref >>> 16] -= value;
+					other[ref >>> 16] += value;
+				}
+			}
+		}
+
+		/**
+		 * @param player the player to move
+		 * @return the score of the board for player, in 1/SCALE of a token
+		 */
+		public int evaluate(char player) {
+			long own = board.getTokens(player), opp = board.getTokens(OthelloBoard.otherPlayer(player));
+			int base = phase(64 - Long.bitCount(own | opp)) * WEIGHTS_PER_PHASE;
+			int[] index = player == OthelloBoard.P1 ? indexP1 : indexP2;
+			int score = 0;
+			for (int instance = 0; instance < index.length; instance++) {
+				score += weights[base + SHAPE_OFFSET[INSTANCE_SHAPE[instance]] + index[instance]];
+			}
+			return score + scoreMobility(base, own, opp, -1L);
+		}
+
+		int[] getIndices(char player) {
+			return player == OthelloBoard.P1 ? indexP1 : indexP2;
+		}
+	}
+
+	/**
+	 * Save the weights. File format, big-endian: the int MAGIC, the int PHASES,
+	 * the int WEIGHTS_PER_PHASE, then every weight as a short, phase by phase.
+	 *
+	 * @param path the weights file, replaced if it exists
+	 * @throws IOException if the file can not be written
+	 */
+	public void save(Path path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(PHASES);
+			out.writeInt(WEIGHTS_PER_PHASE);
+			for (short weight : weights) {
+				out.writeShort(weight);
+			}
+		}
+	}
+
+	/**
+	 * Load weights saved by save, in one read.
+	 *
+	 * @param path the weights file
+	 * @return the evaluator
+	 * @throws IOException if the file can not be read or has other patterns
+	 */
+	public static PatternEvaluator load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			}
+			buffer.flip();
+			if (buffer.remaining() != 3 * Integer.BYTES + PHASES * WEIGHTS_PER_PHASE * Short.BYTES
+					|| buffer.getInt() != MAGIC || buffer.getInt() != PHASES || buffer.getInt() != WEIGHTS_PER_PHASE) {
+				throw new IOException("not a weights file for these patterns: " + path);
+			}
+			short[] weights = new short[PHASES * WEIGHTS_PER_PHASE];
+			buffer.asShortBuffer().get(weights);
+			return new PatternEvaluator(weights);
+		}
+	}
+
+	short[] getWeights() {
+		return Arrays.copyOf(weights, weights.length);
+	}
+}
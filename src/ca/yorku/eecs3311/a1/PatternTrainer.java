@@ -0,0 +1,262 @@
+package ca.yorku.eecs3311.a1;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Trains the weights of a PatternEvaluator. Training positions come from
+ * self-play games in the common fork-join pool. Each game opens with
+ * RANDOM_PLIES random moves and is played on by the given players until
+ * LABEL_EMPTIES squares are left. The EndgameSolver then finds the final token
+ * difference with perfect play, and every position of the game is labelled
+ * with that result, from its player to move's point of view.
+ *
+ * The weights are then fitted to the labels by least squares: every epoch, the
+ * error of every position is added up for each weight it used, in parallel
+ * over slices of the positions, and each weight moves against its error sum
+ * divided by how often it was used plus PRIOR. The prior keeps patterns seen
+ * in only a few positions from fitting their noise.
+ *
+ * Game seeds are derived from the master seed as in OthelloSimulation, so the
+ * same seed trains the same weights however many threads are used.
+ *
+ * @author ilir & leroy
+ */
+public class PatternTrainer {
+	public static final int LABEL_EMPTIES = 12;                              // Solve games exactly from here
+	public static final int RANDOM_PLIES = 8;                                // Random opening moves, so games differ
+	private static final int GAMES_PER_TASK = 16;                            // Games played by a task without splitting
+	private static final int SELF_PLAY_NODES = 300;                          // Search budget per move of main's games
+	private static final double LEARNING_RATE = 0.03;                        // Stable with ~50 weights used per position
+	private static final double PRIOR = 500;                                 // Pulls rarely used weights towards 0
+
+	private static final int INSTANCES = PatternEvaluator.INSTANCE_SQUARES.length;
+	private static final int STRIDE = INSTANCES + 3;                         // Per position: indices, mobility, phase, label
+
+	private int[] samples = new int[0];                                      // STRIDE ints per position
+	private int size;
+	private final double[] weights = new double[PatternEvaluator.PHASES * PatternEvaluator.WEIGHTS_PER_PHASE];
+
+	/**
+	 * @return the number of training positions
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Play games and keep their positions for training.
+	 *
+	 * @param games      the number of games
+	 * @param masterSeed the seed every game seed is derived from
+	 */
+	public void addGames(PlayerFactory factory, int games, long masterSeed) {
+		int[] played = ForkJoinPool.commonPool().invoke(new SelfPlayTask(factory, masterSeed, 0, games));
+		samples = Arrays.copyOf(samples, size * STRIDE + played.length);
+		System.arraycopy(played, 0, samples, size * STRIDE, played.length);
+		size += played.length / STRIDE;
+	}
+
+	/**
+	 * Plays games [from, to), returning their positions.
+	 */
+	private static class SelfPlayTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private final PlayerFactory factory;
+		private final long masterSeed;
+		private final int from, to;
+
+		SelfPlayTask(PlayerFactory factory, long masterSeed, int from, int to) {
+			this.factory = factory;
+			this.masterSeed = masterSeed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				int[] positions = new int[(to - from) * 64 * STRIDE];
+				int count = 0;
+				EndgameSolver solver = new EndgameSolver();
+				for (int g = from; g < to; g++) {
+					count = playGame(factory, new SplittableRandom(OthelloSimulation.gameSeed(masterSeed, g)), solver,
+							positions, count);
+				}
+				return Arrays.copyOf(positions, count * STRIDE);
+			}
+			int mid = (from + to) >>> 1;
+			SelfPlayTask left = new SelfPlayTask(factory, masterSeed, from, mid);
+			left.fork();                                                     // Play the first half on another worker
+			int[] right = new SelfPlayTask(factory, masterSeed, mid, to).compute();
+			int[] positions = left.join();
+			int[] all = Arrays.copyOf(positions, positions.length + right.length);
+			System.arraycopy(right, 0, all, positions.length, right.length);
+			return all;
+		}
+	}
+
+	/**
+	 * Play one game to LABEL_EMPTIES empty squares, the first RANDOM_PLIES
+	 * moves at random and the rest by factory's players, solve it, and add its
+	 * positions to positions from index count on.
+	 *
+	 * @return the new number of positions
+	 */
+	private static int playGame(PlayerFactory factory, SplittableRandom random, EndgameSolver solver, int[] positions,
+			int count) {
+		Othello game = new Othello();
+		Player player1 = factory.create(game, OthelloBoard.P1, random.nextLong());
+		Player player2 = factory.create(game, OthelloBoard.P2, random.nextLong());
+		Player random1 = new PlayerRandom(game, OthelloBoard.P1, random.split());
+		Player random2 = new PlayerRandom(game, OthelloBoard.P2, random.split());
+		OthelloBoard board = game.game_board;
+		int first = count;
+		for (int ply = 0; !game.isGameOver() && board.getCount(OthelloBoard.EMPTY) > LABEL_EMPTIES; ply++) {
+			char player = game.getWhosTurn();
+			char other = OthelloBoard.otherPlayer(player);
+			long moves = game.getLegalMoves(player);
+			if (moves == 0) {
+				game.passTurn();
+				continue;
+			}
+			long own = board.getTokens(player), opp = board.getTokens(other);
+			int at = count++ * STRIDE;
+			for (int instance = 0; instance < INSTANCES; instance++) {
+				positions[at + instance] = PatternEvaluator.index(PatternEvaluator.INSTANCE_SQUARES[instance], own, opp);
+			}
+			positions[at + INSTANCES] = Long.bitCount(moves) - Long.bitCount(game.getLegalMoves(other));
+			positions[at + INSTANCES + 1] = PatternEvaluator.phase(board.getCount(OthelloBoard.EMPTY));
+			positions[at + INSTANCES + 2] = player == OthelloBoard.P1 ? 1 : -1;   // Turned into the label below
+
+			Move move;
+			if (ply < RANDOM_PLIES) {
+				move = player == OthelloBoard.P1 ? random1.getMove() : random2.getMove();
+			} else {
+				move = player == OthelloBoard.P1 ? player1.getMove() : player2.getMove();
+			}
+			game.move(move.getRow(), move.getCol());
+		}
+		char toMove = game.getWhosTurn();
+		int p1Result = solver.solve(board, toMove) * (toMove == OthelloBoard.P1 ? 1 : -1);
+		for (int i = first; i < count; i++) {
+			positions[i * STRIDE + INSTANCES + 2] *= p1Result;
+		}
+		return count;
+	}
+
+	/**
+	 * Fit the weights to the positions.
+	 *
+	 * @param epochs the number of passes over the positions
+	 * @param log    print the error of every epoch
+	 * @return the root mean square error of the last epoch, in tokens
+	 */
+	public double train(int epochs, boolean log) {
+		int wpp = PatternEvaluator.WEIGHTS_PER_PHASE;
+		int slices = ForkJoinPool.getCommonPoolParallelism() + 1;
+
+		double[] uses = new double[weights.length];
+		for (int i = 0; i < size; i++) {
+			int at = i * STRIDE, base = samples[at + INSTANCES + 1] * wpp;
+			for (int instance = 0; instance < INSTANCES; instance++) {
+				uses[base + offset(instance) + samples[at + instance]]++;
+			}
+			uses[base + PatternEvaluator.MOBILITY] += (double) samples[at + INSTANCES] * samples[at + INSTANCES];
+			uses[base + PatternEvaluator.BIAS]++;
+		}
+		double rmse = 0;
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			double[] errors = IntStream.range(0, slices).parallel().mapToObj(slice -> errors(slice, slices))
+					.reduce(PatternTrainer::add).orElseThrow();
+			rmse = Math.sqrt(errors[weights.length] / Math.max(1, size));
+			for (int w = 0; w < weights.length; w++) {
+				weights[w] -= LEARNING_RATE * errors[w] / (uses[w] + PRIOR);
+			}
+			if (log) {
+				System.out.printf("epoch %3d  rms error %.3f tokens%n", epoch + 1, rmse);
+			}
+		}
+		return rmse;
+	}
+
+	private static int offset(int instance) {
+		return PatternEvaluator.SHAPE_OFFSET[PatternEvaluator.INSTANCE_SHAPE[instance]];
+	}
+
+	/**
+	 * @return the error sum of each weight over every slices-th position from
+	 *         slice, then the sum of squared errors
+	 */
+	private double[] errors(int slice, int slices) {
+		int wpp = PatternEvaluator.WEIGHTS_PER_PHASE;
+		double[] errors = new double[weights.length + 1];
+		for (int i = slice; i < size; i += slices) {
+			int at = i * STRIDE, base = samples[at + INSTANCES + 1] * wpp;
+			int mobility = samples[at + INSTANCES];
+			double predicted = weights[base + PatternEvaluator.MOBILITY] * mobility + weights[base + PatternEvaluator.BIAS];
+			for (int instance = 0; instance < INSTANCES; instance++) {
+				predicted += weights[base + offset(instance) + samples[at + instance]];
+			}
+			double error = predicted - samples[at + INSTANCES + 2];
+			for (int instance = 0; instance < INSTANCES; instance++) {
+				errors[base + offset(instance) + samples[at + instance]] += error;
+			}
+			errors[base + PatternEvaluator.MOBILITY] += error * mobility;
+			errors[base + PatternEvaluator.BIAS] += error;
+			errors[weights.length] += error * error;
+		}
+		return errors;
+	}
+
+	private static double[] add(double[] a, double[] b) {
+		for (int i = 0; i < a.length; i++) {
+			a[i] += b[i];
+		}
+		return a;
+	}
+
+	/**
+	 * @return an evaluator with the trained weights, in 1/SCALE of a token
+	 */
+	public PatternEvaluator toEvaluator() {
+		short[] quantized = new short[weights.length];
+		for (int w = 0; w < weights.length; w++) {
+			long value = Math.round(weights[w] * PatternEvaluator.SCALE);
+			quantized[w] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+		}
+		return new PatternEvaluator(quantized);
+	}
+
+	/**
+	 * Train weights and save them.
+	 *
+	 * @param args the weights file, then optional games, epochs and master seed
+	 * @throws IOException if the file can not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: PatternTrainer weights [games] [epochs] [seed]");
+			return;
+		}
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		long masterSeed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+		PatternTrainer trainer = new PatternTrainer();
+		long start = System.nanoTime();
+		trainer.addGames((othello, player, seed) -> new PlayerAlphaBeta(othello, player, 1000, SELF_PLAY_NODES), games,
+				masterSeed);
+		System.out.printf("Master seed: %d%n%d positions from %d games in %.1f s%n", masterSeed, trainer.size(), games,
+				(System.nanoTime() - start) / 1e9);
+		start = System.nanoTime();
+		trainer.train(epochs, true);
+		System.out.printf("trained in %.1f s%n", (System.nanoTime() - start) / 1e9);
+		trainer.toEvaluator().save(Path.of(args[0]));
+	}
+}
@@ -0,0 +1,142 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft: count the move sequences of a given length (the leaves of the game
+ * tree to that depth), to check the move generator against known counts and
+ * to measure how fast it is.
+ *
+ * A player without a valid move passes, as in Othello.passTurn, and the pass
+ * counts as a ply. A finished game is a leaf, whatever depth is left. These
+ * are the usual rules for Othello perft, so the counts from the standard start
+ * match REFERENCE.
+ *
+ * The last ply is not played out: the number of valid moves is the number of
+ * leaves (bulk counting). Subtrees deeper than SEQUENTIAL_DEPTH are split into
+ * one fork-join task per move, so the work spreads over every core.
+ *
+ * @author ilir & leroy
+ */
+public class Perft {
+	private static final int SEQUENTIAL_DEPTH = 7;                           // Subtrees this shallow are not split
+
+	/**
+	 * Leaves of the game tree from the standard 8x8 start, REFERENCE[d] for
+	 * depth d.
+	 */
+	public static final long[] REFERENCE = { 1L, 4L, 12L, 56L, 244L, 1396L, 8200L, 55092L, 390216L, 3005288L,
+			24571284L, 212258800L, 1939886636L, 18429641748L, 184042084512L };
+
+	/**
+	 * Count the leaves to depth, in the common fork-join pool.
+	 *
+	 * @param board  the position, not modified
+	 * @param player P1 or P2, the player to move
+	 * @param depth  the plies to count to
+	 * @return the number of leaves
+	 */
+	public static long perft(OthelloBoard board, char player, int depth) {
+		long own = board.getTokens(player);
+		long opp = board.getTokens(OthelloBoard.otherPlayer(player));
+		return ForkJoinPool.commonPool().invoke(new PerftTask(own, opp, board.getSquares(), depth));
+	}
+
+	/**
+	 * Count the leaves to depth on this thread only.
+	 *
+	 * @param own     the tokens of the player to move
+	 * @param opp     the tokens of the other player
+	 * @param squares the squares of the board
+	 * @param depth   the plies to count to
+	 * @return the number of leaves
+	 */
+	static long count(long own, long opp, long squares, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		long moves = OthelloBoard.legalMoves(own, opp, squares);
+		if (moves == 0) {
+			if (OthelloBoard.legalMoves(opp, own, squares) == 0) {
+				return 1;                                                   // Game over
+			}
+			return count(opp, own, squares, depth - 1);                     // Pass
+		}
+		if (depth == 1) {
+			return Long.bitCount(moves);                                    // Bulk count the last ply
+		}
+		long leaves = 0;
+		for (; moves != 0; moves &= moves - 1) {
+			int square = Long.numberOfTrailingZeros(moves);
+			long flipped = OthelloBoard.flips(square, own, opp, squares);
+			leaves += count(opp & ~flipped, own | flipped | (1L << square), squares, depth - 1);
+		}
+		return leaves;
+	}
+
+	/**
+	 * Counts one subtree, split into a task per move if it is deep.
+	 */
+	private static class PerftTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final long own, opp, squares;
+		private final int depth;
+
+		PerftTask(long own, long opp, long squares, int depth) {
+			this.own = own;
+			this.opp = opp;
+			this.squares = squares;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			long moves = OthelloBoard.legalMoves(own, opp, squares);
+			if (depth <= SEQUENTIAL_DEPTH || moves == 0) {
+				return count(own, opp, squares, depth);                     // Passes are rare, not worth splitting
+			}
+			List<PerftTask> tasks = new ArrayList<>();
+			for (; moves != 0; moves &= moves - 1) {
+				int square = Long.numberOfTrailingZeros(moves);
+				long flipped = OthelloBoard.flips(square, own, opp, squares);
+				tasks.add(new PerftTask(opp & ~flipped, own | flipped | (1L << square), squares, depth - 1));
+			}
+			long leaves = 0;
+			for (PerftTask task : ForkJoinTask.invokeAll(tasks)) {
+				leaves += task.join();
+			}
+			return leaves;
+		}
+	}
+
+	/**
+	 * Count the leaves from the standard start for every depth up to a maximum,
+	 * printing the speed and whether each count matches REFERENCE.
+	 *
+	 * @param args optional maximum depth, 11 by default
+	 */
+	public static void main(String[] args) {
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 11;
+		OthelloBoard board = new OthelloBoard(8);
+		boolean ok = true;
+		System.out.printf("%5s %15s %10s %15s%n", "depth", "leaves", "seconds", "leaves/s");
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			long start = System.nanoTime();
+			long leaves = perft(board, OthelloBoard.P1, depth);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			String check = "";
+			if (depth < REFERENCE.length) {
+				check = leaves == REFERENCE[depth] ? "ok" : "WRONG, expected " + REFERENCE[depth];
+				ok &= leaves == REFERENCE[depth];
+			}
+			System.out.printf("%5d %15d %10.3f %15.0f %s%n", depth, leaves, seconds, leaves / seconds, check);
+		}
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+}
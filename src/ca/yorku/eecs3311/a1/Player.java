@@ -0,0 +1,30 @@
+package ca.yorku.eecs3311.a1;
+
+/**
+ * A Player chooses moves for one side (OthelloBoard.P1 or OthelloBoard.P2) of
+ * an Othello game. It is given the game when it is created, and is asked for a
+ * move each time it is that side's turn.
+ * 
+ * @author ilir & leroy
+ */
+public interface Player {
+
+    /**
+     * Choose a move in the current position of the game.
+     * 
+     * @return a valid Move, or null if this player has no valid move and must
+     *         pass
+     */
+    Move getMove();
+
+    /**
+     * Whether, from the current position on, this player's moves only depend
+     * on the position. The rest of a game between two such players is then
+     * known as soon as its position has been seen before, see OutcomeCache.
+     * 
+     * @return false, unless the player says otherwise
+     */
+    default boolean isDeterministic() {
+        return false;
+    }
+}
@@ -0,0 +1,636 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlayerAlphaBeta searches the game tree with negamax and alpha-beta pruning.
+ * It deepens one ply at a time (iterative deepening) until its per move budget
+ * of time or nodes runs out, and plays the best move of the deepest search
+ * that finished. The best move of each search is tried first in the next one,
+ * which makes the pruning much more effective.
+ *
+ * The search makes and takes back moves on a single copy of the board, see
+ * OthelloBoard.makeMove and OthelloBoard.undoMove. Positions at the search
+ * horizon are scored by square weights and mobility, or by a PatternEvaluator
+ * if one is given, finished games by the final token count. Given a
+ * TranspositionTable, positions reached again by a different order of moves
+ * reuse their earlier result, and their best move is searched first. With
+ * SOLVE_EMPTIES or fewer empty squares left, the EndgameSolver plays perfectly
+ * instead, given half of each budget. If it runs out, iterative deepening
+ * plays with what is left.
+ *
+ * Boards over 8x8 do not fit a bitboard, so they are searched the same way on
+ * move lists, see OthelloBoard.getMoves, with squares numbered row*dim+col.
+ * Their square weights are spread out from the 8x8 ones, and they have no
+ * EndgameSolver or patterns, the search simply reaches the end of the game.
+ *
+ * Example, in a Tournament: (othello, player, seed) -> new
+ * PlayerAlphaBeta(othello, player, 100)
+ *
+ * @author ilir & leroy
+ */
+public class PlayerAlphaBeta implements Player {
+    private static final int WIN = 1000000;                                 // Score of a won game, plus the token difference
+    private static final int INFINITY = 2 * WIN;
+    private static final int MAX_HEURISTIC = WIN - 64;                      // Every unfinished position scores below any win
+    private static final int MOBILITY_WEIGHT = 5;                           // Score of each extra valid move
+    private static final int CHECK_EVERY = 1024;                            // Nodes between checks of the clock
+    public static final int SOLVE_EMPTIES = 12;                             // Solve the game exactly from here on
+
+    /**
+     * Value of owning each square, bit row*8+col. Corners are worth the most,
+     * the squares next to an empty corner give it away to the other player.
+     */
+    private static final int[] SQUARE_WEIGHTS = {
+        100, -20, 10,  5,  5, 10, -20, 100,
+        -20, -50, -2, -2, -2, -2, -50, -20,
+         10,  -2,  1,  1,  1,  1,  -2,  10,
+          5,  -2,  1,  0,  0,  1,  -2,   5,
+          5,  -2,  1,  0,  0,  1,  -2,   5,
+         10,  -2,  1,  1,  1,  1,  -2,  10,
+        -20, -50, -2, -2, -2, -2, -50, -20,
+        100, -20, 10,  5,  5, 10, -20, 100,
+    };
+
+    private Othello othello;                                                // Reference to the Othello game instance
+    private char player;                                                    // The player this strategy is for
+    private long timeBudgetNanos;                                           // Time allowed per move
+    private long nodeBudget;                                                // Nodes allowed per move
+    private int maxDepth = Integer.MAX_VALUE;                               // Deepest search allowed
+    private TranspositionTable table;                                       // Earlier results, or null
+    private EndgameSolver solver;                                           // Created for the first endgame
+    private PatternEvaluator evaluator;                                     // Scores the horizon, or null
+    private PatternEvaluator.Features features;                             // Pattern indices of board
+
+    private int[] weights;                                                  // Boards over 8x8 only: square weights,
+    private int[][] moveLists;                                              // the move list of each depth,
+    private int[] otherMoves;                                               // and the other player's moves
+
+    private OthelloBoard board;                                             // The board being searched
+    private long deadline;                                                  // System.nanoTime() the search must stop at
+    private boolean aborted;                                                // The budget ran out during this search
+
+    private long nodes;                                                     // Statistics of the last getMove
+    private long elapsedNanos;
+    private int depth;
+
+    /**
+     * @param othello          Reference to the Othello game instance
+     * @param player           The player character ('X' or 'O') using this strategy
+     * @param timeBudgetMillis the wall clock time allowed for each move
+     */
+    public PlayerAlphaBeta(Othello othello, char player, long timeBudgetMillis) {
+        this(othello, player, timeBudgetMillis, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param othello          Reference to the Othello game instance
+     * @param player           The player character ('X' or 'O') using this strategy
+     * @param timeBudgetMillis the wall clock time allowed for each move
+     * @param nodeBudget       the number of positions that may be searched for
+     *                         each move, the search stops at whichever budget
+     *                         runs out first
+     */
+    public PlayerAlphaBeta(Othello othello, char player, long timeBudgetMillis, long nodeBudget) {
+        this(othello, player, timeBudgetMillis, nodeBudget, null);
+    }
+
+    /**
+     * @param othello          Reference to the Othello game instance
+     * @param player           The player character ('X' or 'O') using this strategy
+     * @param timeBudgetMillis the wall clock time allowed for each move
+     * @param nodeBudget       the number of positions that may be searched for
+     *                         each move, the search stops at whichever budget
+     *                         runs out first
+     * @param table            remembers results between searches and moves, null
+     *                         for none. Not to be shared with a search running at
+     *                         the same time with a different evaluation
+     */
+    public PlayerAlphaBeta(Othello othello, char player, long timeBudgetMillis, long nodeBudget,
+            TranspositionTable table) {
+        this(othello, player, timeBudgetMillis, nodeBudget, table, null);
+    }
+
+    /**
+     * @param othello          Reference to the Othello game instance
+     * @param player           The player character ('X' or 'O') using this strategy
+     * @param timeBudgetMillis the wall clock time allowed for each move
+     * @param nodeBudget       the number of positions that may be searched for
+     *                         each move, the search stops at whichever budget
+     *                         runs out first
+     * @param table            remembers results between searches and moves, null
+     *                         for none. Not to be shared with a search running at
+     *                         the same time with a different evaluation
+     * @param evaluator        scores positions at the search horizon, null for
+     *                         square weights and mobility
+     */
+    public PlayerAlphaBeta(Othello othello, char player, long timeBudgetMillis, long nodeBudget,
+            TranspositionTable table, PatternEvaluator evaluator) {
+        if (evaluator != null && othello.getDimension() != Othello.DIMENSION) {
+            throw new IllegalArgumentException("patterns are for 8x8 boards: " + othello.getDimension());
+        }
+        this.othello = othello;
+        this.player = player;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);  // Saturates at Long.MAX_VALUE
+        this.nodeBudget = nodeBudget;
+        this.table = table;
+        this.evaluator = evaluator;
+        if (othello.getDimension() > OthelloBoard.BITBOARD_DIMENSION) {
+            this.weights = squareWeights(othello.getDimension());
+        }
+    }
+
+    /**
+     * Search no deeper than depth, even with budget left, for games and tests
+     * at a fixed depth. The EndgameSolver still plays the last SOLVE_EMPTIES
+     * moves.
+     *
+     * @param depth the deepest search, in plies, at least 1
+     */
+    public void setMaxDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be at least 1: " + depth);
+        }
+        this.maxDepth = depth;
+    }
+
+    /**
+     * Search deeper and deeper until the budget runs out.
+     *
+     * @return the best move of the deepest finished search, null if there is no
+     *         valid move
+     */
+    public Move getMove() {
+        if (this.weights != null) {
+            return getMoveOnList();
+        }
+        long legalMoves = this.othello.getLegalMoves(player);
+        if (legalMoves == 0) {
+            return null;                                                    // No valid move, pass
+        }
+        long start = System.nanoTime();
+        this.deadline = start + this.timeBudgetNanos;
+        this.board = new OthelloBoard(this.othello.game_board);
+        this.nodes = 0;
+        this.aborted = false;
+        this.depth = 0;
+
+        int empties = this.board.getCount(OthelloBoard.EMPTY);
+        if (empties <= SOLVE_EMPTIES) {
+            if (this.solver == null) {
+                this.solver = new EndgameSolver();
+            }
+            this.solver.solve(this.board, player, Math.max(1, this.nodeBudget / 2), start + this.timeBudgetNanos / 2);
+            this.nodes = this.solver.getNodes();
+            if (!this.solver.isAborted()) {
+                this.depth = empties;
+                this.elapsedNanos = System.nanoTime() - start;
+                Metrics.countNodes(this.nodes);
+                return this.solver.getBestMove();
+            }
+        }
+
+        if (this.evaluator != null) {
+            this.features = this.evaluator.newFeatures(this.board);
+        }
+        int bestSquare = Long.numberOfTrailingZeros(legalMoves);            // Played if not even depth 1 finishes
+        int maxDepth = Math.min(empties, this.maxDepth);                    // Deeper than the end of the game is pointless
+        for (int d = 1; d <= maxDepth; d++) {
+            int square = searchRoot(legalMoves, d, bestSquare);
+            if (this.aborted) {
+                break;                                                      // Unfinished, keep the last finished result
+            }
+            bestSquare = square;
+            this.depth = d;
+        }
+        this.elapsedNanos = System.nanoTime() - start;
+        Metrics.countNodes(this.nodes);
+        return new Move(OthelloBoard.rowOf(bestSquare), OthelloBoard.colOf(bestSquare));
+    }
+
+    /**
+     * Search every valid move of player to depth, starting with firstSquare.
+     *
+     * @return the bit index of the best move
+     */
+    private int searchRoot(long legalMoves, int depth, int firstSquare) {
+        char other = OthelloBoard.otherPlayer(player);
+        int alpha = -INFINITY;
+        int bestSquare = firstSquare;
+        long moves = legalMoves & ~(1L << firstSquare);
+        int square = firstSquare;
+        while (true) {
+            long flipped = play(square, player);
+            int score = -negamax(other, depth - 1, -INFINITY, -alpha);
+            takeBack(square, flipped, player);
+            if (this.aborted) {
+                return bestSquare;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestSquare = square;
+            }
+            if (moves == 0) {
+                return bestSquare;
+            }
+            square = Long.numberOfTrailingZeros(moves);                     // Remaining moves in row, then column, order
+            moves &= moves - 1;
+        }
+    }
+
+    /**
+     * Negamax with alpha-beta pruning: the score of the position for side, as
+     * long as it is in (alpha, beta). A player without a move passes, which
+     * does not use up depth.
+     *
+     * @param side  the player to move, P1 or P2
+     * @param depth the plies left to search
+     * @param alpha the score side is already sure of
+     * @param beta  the score the other player is already sure of, negated
+     * @return the score, at most alpha if every move is worse than alpha, at
+     *         least beta if some move is that good
+     */
+    private int negamax(char side, int depth, int alpha, int beta) {
+        if (outOfBudget()) {
+            return 0;                                                       // Result is thrown away
+        }
+
+        char other = OthelloBoard.otherPlayer(side);
+        long moves = this.board.getLegalMoves(side);
+        if (moves == 0) {
+            if (this.board.getLegalMoves(other) == 0) {
+                return finalScore(side);                                    // Game over
+            }
+            return -negamax(other, depth, -beta, -alpha);                   // Pass
+        }
+        if (depth == 0) {
+            return evaluate(side, moves);
+        }
+
+        // A result from an earlier search may settle this position, or at least
+        // tell which move to try first
+        
+        long key = this.board.getHash(side);
+        int firstSquare = -1;
+        if (this.table != null) {
+            long entry = this.table.probe(key);
+            if (entry != 0) {
+                if (settles(entry, depth, alpha, beta)) {
+                    return TranspositionTable.getScore(entry);
+                }
+                firstSquare = TranspositionTable.getBestSquare(entry);
+                if (firstSquare >= 0 && (firstSquare >= 64 || (moves & (1L << firstSquare)) == 0)) {
+                    firstSquare = -1;                                       // Hash collision, not a move here
+                }
+            }
+        }
+
+        int alphaBefore = alpha;
+        int bestScore = -INFINITY, bestSquare = -1;
+        int square = firstSquare >= 0 ? firstSquare : Long.numberOfTrailingZeros(moves);
+        moves &= ~(1L << square);
+        while (true) {
+            long flipped = play(square, side);
+            int score = -negamax(other, depth - 1, -beta, -alpha);
+            takeBack(square, flipped, side);
+            if (this.aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestSquare = square;
+            }
+            if (score >= beta) {
+                break;                                                      // Other player will avoid this position
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (moves == 0) {
+                break;
+            }
+            square = Long.numberOfTrailingZeros(moves);                     // Remaining moves in row, then column, order
+            moves &= moves - 1;
+        }
+
+        if (this.table != null) {
+            store(key, depth, alphaBefore, beta, bestScore, bestSquare);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Count a node, and check the budget every so often.
+     *
+     * @return whether the budget has run out
+     */
+    private boolean outOfBudget() {
+        if (this.aborted) {
+            return true;
+        }
+        this.nodes++;
+        if (this.nodes >= this.nodeBudget
+                || (this.nodes % CHECK_EVERY == 0 && System.nanoTime() - this.deadline >= 0)) {
+            this.aborted = true;
+        }
+        return this.aborted;
+    }
+
+    /**
+     * @return whether the table entry's score, searched at least depth deep,
+     *         is the score of its position for the window (alpha, beta)
+     */
+    private static boolean settles(long entry, int depth, int alpha, int beta) {
+        int score = TranspositionTable.getScore(entry);
+        int flag = TranspositionTable.getFlag(entry);
+        return TranspositionTable.getDepth(entry) >= depth
+                && (flag == TranspositionTable.EXACT
+                || (flag == TranspositionTable.LOWER && score >= beta)
+                || (flag == TranspositionTable.UPPER && score <= alpha));
+    }
+
+    /**
+     * Remember bestScore as exact, or as a bound if it fell outside
+     * (alphaBefore, beta).
+     */
+    private void store(long key, int depth, int alphaBefore, int beta, int bestScore, int bestSquare) {
+        int flag = bestScore <= alphaBefore ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        this.table.store(key, depth, bestScore, flag, bestSquare);
+    }
+
+    private long play(int square, char side) {
+        long flipped = this.board.makeMove(OthelloBoard.rowOf(square), OthelloBoard.colOf(square), side);
+        if (this.features != null) {
+            this.features.play(square, flipped, side);
+        }
+        return flipped;
+    }
+
+    private void takeBack(int square, long flipped, char side) {
+        this.board.undoMove();
+        if (this.features != null) {
+            this.features.undo(square, flipped, side);
+        }
+    }
+
+    /**
+     * @return the score of a finished game for side, any win beats any
+     *         unfinished position
+     */
+    private int finalScore(char side) {
+        int difference = this.board.getCount(side) - this.board.getCount(OthelloBoard.otherPlayer(side));
+        if (difference > 0) {
+            return WIN + difference;
+        } else if (difference < 0) {
+            return -WIN + difference;
+        }
+        return 0;
+    }
+
+    /**
+     * Score an unfinished position for side by the weights of the squares each
+     * player owns and by how many more moves side has, or by the patterns.
+     *
+     * @param side  the player to move
+     * @param moves the valid moves of side
+     * @return the score, positive if the position is good for side
+     */
+    private int evaluate(char side, long moves) {
+        if (this.features != null) {
+            int score = this.features.evaluate(side);                       // Loaded weights may add up past WIN
+            return Math.max(-MAX_HEURISTIC, Math.min(MAX_HEURISTIC, score));
+        }
+        char other = OthelloBoard.otherPlayer(side);
+        int score = weigh(this.board.getTokens(side)) - weigh(this.board.getTokens(other));
+        score += MOBILITY_WEIGHT * (Long.bitCount(moves) - Long.bitCount(this.board.getLegalMoves(other)));
+        return score;
+    }
+
+    private static int weigh(long tokens) {
+        int total = 0;
+        while (tokens != 0) {
+            total += SQUARE_WEIGHTS[Long.numberOfTrailingZeros(tokens)];
+            tokens &= tokens - 1;
+        }
+        return total;
+    }
+
+    /**
+     * getMove for boards over 8x8: iterative deepening on move lists.
+     *
+     * @return the best move of the deepest finished search, null if there is no
+     *         valid move
+     */
+    private Move getMoveOnList() {
+        int dim = this.othello.getDimension();
+        this.board = new OthelloBoard(this.othello.game_board);
+        int[] rootMoves = new int[dim * dim];
+        int count = this.board.getMoves(player, rootMoves);
+        if (count == 0) {
+            return null;                                                    // No valid move, pass
+        }
+        long start = System.nanoTime();
+        this.deadline = start + this.timeBudgetNanos;
+        this.nodes = 0;
+        this.aborted = false;
+        this.depth = 0;
+        if (this.moveLists == null) {
+            this.moveLists = new int[TranspositionTable.MAX_DEPTH + 1][];
+            this.otherMoves = new int[dim * dim];
+        }
+
+        int bestSquare = rootMoves[0];                                      // Played if not even depth 1 finishes
+        int maxDepth = Math.min(this.board.getCount(OthelloBoard.EMPTY), this.maxDepth);
+        maxDepth = Math.min(maxDepth, TranspositionTable.MAX_DEPTH);
+        for (int d = 1; d <= maxDepth; d++) {
+            int square = searchRootOnList(rootMoves, count, d, bestSquare);
+            if (this.aborted) {
+                break;                                                      // Unfinished, keep the last finished result
+            }
+            bestSquare = square;
+            this.depth = d;
+        }
+        this.elapsedNanos = System.nanoTime() - start;
+        Metrics.countNodes(this.nodes);
+        return new Move(bestSquare / dim, bestSquare % dim);
+    }
+
+    /**
+     * searchRoot on a move list: search the count moves of player to depth,
+     * starting with firstSquare.
+     *
+     * @return the square, row*dim+col, of the best move
+     */
+    private int searchRootOnList(int[] moves, int count, int depth, int firstSquare) {
+        char other = OthelloBoard.otherPlayer(player);
+        int alpha = -INFINITY;
+        int bestSquare = firstSquare;
+        for (int i = -1; i < count; i++) {
+            int square = i < 0 ? firstSquare : moves[i];
+            if (i >= 0 && square == firstSquare) {
+                continue;                                                   // Already searched first
+            }
+            playOnList(square, player);
+            int score = -negamaxOnList(other, depth - 1, -INFINITY, -alpha);
+            this.board.undoMove();
+            if (this.aborted) {
+                return bestSquare;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestSquare = square;
+            }
+        }
+        return bestSquare;
+    }
+
+    /**
+     * negamax on move lists, for boards over 8x8. Each depth lists its moves
+     * in moveLists[depth], a pass keeps the depth but needs no list.
+     */
+    private int negamaxOnList(char side, int depth, int alpha, int beta) {
+        if (outOfBudget()) {
+            return 0;                                                       // Result is thrown away
+        }
+
+        char other = OthelloBoard.otherPlayer(side);
+        int[] moves = moveList(depth);
+        int count = this.board.getMoves(side, moves);
+        if (count == 0) {
+            if (!this.board.canMove(other)) {
+                return finalScore(side);                                    // Game over
+            }
+            return -negamaxOnList(other, depth, -beta, -alpha);             // Pass
+        }
+        if (depth == 0) {
+            return evaluateOnList(side, count);
+        }
+
+        long key = this.board.getHash(side);
+        if (this.table != null) {
+            long entry = this.table.probe(key);
+            if (entry != 0) {
+                if (settles(entry, depth, alpha, beta)) {
+                    return TranspositionTable.getScore(entry);
+                }
+                int firstSquare = TranspositionTable.getBestSquare(entry);
+                for (int i = 0; i < count; i++) {
+                    if (moves[i] == firstSquare) {                          // Not a move here if a hash collision
+                        moves[i] = moves[0];
+                        moves[0] = firstSquare;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int alphaBefore = alpha;
+        int bestScore = -INFINITY, bestSquare = -1;
+        for (int i = 0; i < count; i++) {
+            int square = moves[i];
+            playOnList(square, side);
+            int score = -negamaxOnList(other, depth - 1, -beta, -alpha);
+            this.board.undoMove();
+            if (this.aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestSquare = square;
+            }
+            if (score >= beta) {
+                break;                                                      // Other player will avoid this position
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+
+        if (this.table != null) {
+            store(key, depth, alphaBefore, beta, bestScore, bestSquare);
+        }
+        return bestScore;
+    }
+
+    private int[] moveList(int depth) {
+        if (this.moveLists[depth] == null) {
+            this.moveLists[depth] = new int[this.weights.length];
+        }
+        return this.moveLists[depth];
+    }
+
+    private void playOnList(int square, char side) {
+        int dim = this.board.getDimension();
+        this.board.makeMove(square / dim, square % dim, side);
+    }
+
+    /**
+     * evaluate, for boards over 8x8.
+     *
+     * @param side  the player to move
+     * @param count the number of valid moves of side
+     * @return the score, positive if the position is good for side
+     */
+    private int evaluateOnList(char side, int count) {
+        char other = OthelloBoard.otherPlayer(side);
+        int score = weigh(this.board.getWords(side)) - weigh(this.board.getWords(other));
+        score += MOBILITY_WEIGHT * (count - this.board.getMoves(other, this.otherMoves));
+        return score;
+    }
+
+    private int weigh(long[] tokens) {
+        int total = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            for (long word = tokens[i]; word != 0; word &= word - 1) {
+                total += this.weights[i * 64 + Long.numberOfTrailingZeros(word)];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Square weights of a board over 8x8. Each square weighs as the square of
+     * an 8x8 board that is as far from the same edges, counting at most 3 rows
+     * or columns in, so the squares around the corners and along the edges
+     * weigh as they do on 8x8.
+     */
+    private static int[] squareWeights(int dim) {
+        int[] weights = new int[dim * dim];
+        for (int row = 0; row < dim; row++) {
+            for (int col = 0; col < dim; col++) {
+                weights[row * dim + col] = SQUARE_WEIGHTS[fold(row, dim) * 8 + fold(col, dim)];
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * @return the row (or col) of an 8x8 board as far from the nearer edge as
+     *         index is from that edge of a dim board, at most 3 in
+     */
+    private static int fold(int index, int dim) {
+        return index < dim / 2 ? Math.min(index, 3) : 7 - Math.min(dim - 1 - index, 3);
+    }
+
+    /**
+     * @return the number of positions searched for the last move
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return the positions searched per second for the last move
+     */
+    public double getNodesPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.nodes * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * @return the depth of the deepest search that finished for the last move
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+}
@@ -0,0 +1,64 @@
+package ca.yorku.eecs3311.a1;
+
+/**
+ * PlayerBook plays from an OpeningBook while the game is in it, and leaves
+ * every other move to another player, so any strategy can skip searching the
+ * opening. Books are of 8x8 games, on any other board the other player makes
+ * every move.
+ *
+ * Example, in a Tournament: (othello, player, seed) -> new
+ * PlayerBook(othello, player, book, new PlayerAlphaBeta(othello, player, 100))
+ *
+ * @author ilir & leroy
+ */
+public class PlayerBook implements Player {
+    public static final int MIN_GAMES = 10;                                 // Fewest games for a book move to be trusted
+
+    private Othello othello;                                                // Reference to the Othello game instance
+    private char player;                                                    // The player this strategy is for
+    private OpeningBook book;
+    private Player searcher;                                                // Plays when the book has no move
+    private int minGames;
+
+    /**
+     * @param othello  Reference to the Othello game instance
+     * @param player   The player character ('X' or 'O') using this strategy
+     * @param book     the opening book, it can be shared by any number of
+     *                 players and threads
+     * @param searcher the player for positions that are not in the book
+     */
+    public PlayerBook(Othello othello, char player, OpeningBook book, Player searcher) {
+        this(othello, player, book, searcher, MIN_GAMES);
+    }
+
+    /**
+     * @param othello  Reference to the Othello game instance
+     * @param player   The player character ('X' or 'O') using this strategy
+     * @param book     the opening book, it can be shared by any number of
+     *                 players and threads
+     * @param searcher the player for positions that are not in the book
+     * @param minGames the fewest games a book move needs to be played
+     */
+    public PlayerBook(Othello othello, char player, OpeningBook book, Player searcher, int minGames) {
+        this.othello = othello;
+        this.player = player;
+        this.book = book;
+        this.searcher = searcher;
+        this.minGames = minGames;
+    }
+
+    /**
+     * @return the book's best move for this position, otherwise the searcher's
+     *         move
+     */
+    public Move getMove() {
+        if (this.othello.getDimension() != Othello.DIMENSION) {
+            return this.searcher.getMove();                                 // Not a board the book knows
+        }
+        Move move = this.book.getBestMove(this.othello.game_board, player, this.minGames);
+        if (move != null && (this.othello.getLegalMoves(player) & (1L << (move.getRow() * 8 + move.getCol()))) != 0) {
+            return move;                                                    // Valid, not a hash collision
+        }
+        return this.searcher.getMove();
+    }
+}
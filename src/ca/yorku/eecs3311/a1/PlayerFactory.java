@@ -0,0 +1,23 @@
+package ca.yorku.eecs3311.a1;
+
+/**
+ * Creates the Player of a strategy for one side of a game. Tournaments play
+ * many games at once, so each game gets players of its own.
+ * 
+ * Example: PlayerRandom::new, or (othello, player, seed) -> new
+ * PlayerGreedy(othello, player)
+ * 
+ * @author ilir & leroy
+ */
+@FunctionalInterface
+public interface PlayerFactory {
+
+    /**
+     * @param othello the game the player plays in
+     * @param player  the side, OthelloBoard.P1 or OthelloBoard.P2
+     * @param seed    a seed for players that make random choices, the same seed
+     *                must give the same moves
+     * @return a new Player for this game
+     */
+    Player create(Othello othello, char player, long seed);
+}
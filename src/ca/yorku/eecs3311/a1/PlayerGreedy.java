@@ -20,9 +20,10 @@ package ca.yorku.eecs3311.a1;
  * @author ilir & leroy
  *
  */
-public class PlayerGreedy {
+public class PlayerGreedy implements Player {
     private Othello othello;         // Reference to the Othello game instance
     private char player;             // The player this strategy is for (e.g., 'X' or 'O')
+    private int[] moves;             // Move list, for boards over 8x8 only
 
     /**
      * Constructor to initialize the Othello game instance and the player.
@@ -41,64 +42,70 @@ public class PlayerGreedy {
      * moves yield the same number of tokens, the lexicographically smallest 
      * move (based on row and column) is returned.
      * 
+     * A move leaves the player with its current tokens, plus the flipped tokens,
+     * plus the one placed, so only the flips need to be counted. No board is
+     * copied and nothing but the returned Move is allocated.
+     * 
      * @return The Move that maximizes the player's token count, with ties broken 
-     *         by the smallest row, and then the smallest column.
+     *         by the smallest row, and then the smallest column, null if there
+     *         is no valid move.
      */
     public Move getMove() {
-        Move bestMove = null;        // Store the best move found
-        int maxCount = -1;           // Store the maximum token count after any move
+        if (this.othello.getDimension() > OthelloBoard.BITBOARD_DIMENSION) {
+            return getMoveFromList();
+        }
+        OthelloBoard board = this.othello.game_board;
+        int bestSquare = -1;         // Store the best move found, as a bit index
+        int maxFlips = -1;           // Store the most tokens flipped by any move
 
-        // Iterate over all board cells
+        // Valid moves come in row, then column, order, so keeping only strictly
+        // better moves breaks ties towards the smallest row, then column
         
-        for (int row = 0; row < Othello.DIMENSION; row++) {          // Loop through each row
-            for (int col = 0; col < Othello.DIMENSION; col++) {      // Loop through each column
-                
-                // Temporary board to simulate the move
-            	
-                OthelloBoard tempBoard = new OthelloBoard(Othello.DIMENSION);    
-                copyBoard(this.othello.game_board, tempBoard);       // Copy the current board state to tempBoard
-
-                // Check if the move is valid
-                
-                if (tempBoard.move(row, col, player)) {              // If move at (row, col) is valid for this player
-                    int count = tempBoard.getCount(player);          // Get token count after this move
+        long legalMoves = this.othello.getLegalMoves(player);                // Bitboard of every valid move
+        while (legalMoves != 0) {
+            int square = Long.numberOfTrailingZeros(legalMoves);             // Next valid move
+            legalMoves &= legalMoves - 1;
 
-                    // If this move yields more tokens than previous best, update best move
-                    
-                    if (count > maxCount) {                          
-                        maxCount = count;                            // Update maxCount
-                        bestMove = new Move(row, col);               // Update bestMove to current move
-                    } 
-                    
-                    // If move yields the same number of tokens as the best move, choose lexicographically smaller
-                    
-                    else if (count == maxCount) {                    
-                        if (bestMove == null ||                      // If no bestMove is set, or
-                            row < bestMove.getRow() ||               // If current row is smaller, or
-                            (row == bestMove.getRow() 				 // If rows are equal
-                            			&& 							 // and
-                            col < bestMove.getCol())) {  		 	 // current column is smaller
-                            bestMove = new Move(row, col);           // Update bestMove to current move
-                        }
-                    }
-                }
+            int flips = Long.bitCount(board.getFlips(OthelloBoard.rowOf(square), OthelloBoard.colOf(square), player));
+            if (flips > maxFlips) {
+                maxFlips = flips;                                            // Update maxFlips
+                bestSquare = square;                                         // Update bestSquare to current move
             }
         }
-        
-        return bestMove;                                               // Return the best move found
+
+        if (bestSquare < 0) {
+            return null;                                                     // No valid move
+        }
+        return new Move(OthelloBoard.rowOf(bestSquare), OthelloBoard.colOf(bestSquare));
     }
 
     /**
-     * Copies the state of the original Othello board into the copy board.
-     * 
-     * @param original The original Othello board.
-     * @param copy The copy where the original board's state is replicated.
+     * @return true, the move only depends on the position
+     */
+    @Override
+    public boolean isDeterministic() {
+        return true;
+    }
+
+    /**
+     * getMove for boards too big for a bitboard, over the board's move list,
+     * which is in the same row, then column, order.
      */
-    private void copyBoard(OthelloBoard original, OthelloBoard copy) {
-        for (int row = 0; row < Othello.DIMENSION; row++) {            // Loop through each row of the board
-            for (int col = 0; col < Othello.DIMENSION; col++) {        // Loop through each column of the board
-                copy.getBoard()[row][col] = original.get(row, col);         // Copy the value from original to copy
+    private Move getMoveFromList() {
+        OthelloBoard board = this.othello.game_board;
+        int dim = board.getDimension();
+        if (this.moves == null) {
+            this.moves = new int[dim * dim];
+        }
+        int bestMove = -1, maxFlips = -1;
+        for (int i = 0, count = board.getMoves(player, this.moves); i < count; i++) {
+            int move = this.moves[i];
+            int flips = board.getFlipCount(move / dim, move % dim, player);
+            if (flips > maxFlips) {
+                maxFlips = flips;
+                bestMove = move;
             }
         }
+        return bestMove < 0 ? null : new Move(bestMove / dim, bestMove % dim);
     }
-}
\ No newline at end of file
+}
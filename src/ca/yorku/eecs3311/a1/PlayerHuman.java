@@ -15,9 +15,9 @@ import java.io.InputStreamReader;
  * 
  * @author ilir & leroy
  */
-public class PlayerHuman {
+public class PlayerHuman implements Player {
 
-    private static final String INVALID_INPUT_MESSAGE = "Invalid number, please enter 1-8"; // Error message for invalid input
+    private static final String INVALID_INPUT_MESSAGE = "Invalid number, please enter 0-"; // Error message, then the largest row/col
     private static final String IO_ERROR_MESSAGE = "I/O Error";                             // Error message for I/O issues
     private static BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in)); // BufferedReader for user input
 
@@ -53,7 +53,7 @@ public class PlayerHuman {
      * @return the valid integer move (row or column) within the allowed range, or -1 if input is invalid
      */
     private int getMove(String message) {
-        int move, lower = 0, upper = 7;                                                     // Define the valid range for input (0-7)
+        int move, lower = 0, upper = othello.getDimension() - 1;                            // Define the valid range for input (0-7 on 8x8)
 
         while (true) {                                                                      // Infinite loop to repeatedly prompt until valid input
             try {
@@ -63,13 +63,13 @@ public class PlayerHuman {
                 if (lower <= move && move <= upper) {                                       // Check if the move is within the valid range
                     return move;                                                            // Return the valid move
                 } else {
-                    System.out.println(INVALID_INPUT_MESSAGE);                              // Inform user of invalid input
+                    System.out.println(INVALID_INPUT_MESSAGE + upper);                      // Inform user of invalid input
                 }
             } catch (IOException e) {                                                       // Catch I/O exceptions
                 System.out.println(IO_ERROR_MESSAGE);                                       // Display I/O error message
                 break;                                                                      // Break out of the loop on error
             } catch (NumberFormatException e) {                                             // Catch invalid number format exceptions
-                System.out.println(INVALID_INPUT_MESSAGE);                                  // Inform user of invalid input format
+                System.out.println(INVALID_INPUT_MESSAGE + upper);                          // Inform user of invalid input format
             }
         }
         return -1;                                                                          // Return -1 if input is invalid
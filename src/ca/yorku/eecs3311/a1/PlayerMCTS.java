@@ -0,0 +1,474 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlayerMCTS chooses moves by Monte Carlo Tree Search with UCT. Each round
+ * walks down a tree of positions from the current one, at each step taking the
+ * move with the best upper confidence bound (UCT), adds the moves of the
+ * position it ends at to the tree, then finishes the game with random moves, as
+ * PlayerRandom makes them (a playout). The result counts for every position on
+ * the way down. The move played is the one searched most.
+ *
+ * The search scales across cores by root parallelization: several independent
+ * trees are searched at once in the common fork-join pool, each with its own
+ * generator, and their root statistics are added up at the end. The trees
+ * share nothing while searching, so no locking is needed. Given a playout
+ * budget, the same seed always makes the same moves, however many threads run
+ * the trees.
+ *
+ * Playouts run on bare bitboards, see OthelloBoard.legalMoves and
+ * OthelloBoard.flips, and the tree is kept in primitive arrays, so searching
+ * does not allocate once the arrays have grown. Boards over 8x8 do not fit a
+ * bitboard, so each tree plays on a copy of the board instead, with
+ * OthelloBoard.getMoves, makeMove and undoMove, and squares numbered
+ * row*dim+col. That is slower, but searches the same way.
+ *
+ * Example, in a Tournament: (othello, player, seed) -> new
+ * PlayerMCTS(othello, player, 100, Long.MAX_VALUE, 4, seed)
+ *
+ * @author ilir & leroy
+ */
+public class PlayerMCTS implements Player {
+    private static final double EXPLORATION = 1.4;                          // UCT constant, about sqrt(2)
+    private static final int CHECK_EVERY = 64;                              // Playouts between checks of the clock
+    private static final int MAX_NODES = 1 << 21;                           // Nodes per tree, the tree stops growing after
+    private static final int MAX_PLIES = 130;                               // Longest path on 8x8: every square, plus passes
+
+    private Othello othello;                                                // Reference to the Othello game instance
+    private char player;                                                    // The player this strategy is for
+    private long timeBudgetNanos;                                           // Time allowed per move
+    private long playoutBudget;                                             // Playouts allowed per move, over all trees
+    private SearchTree[] trees;
+
+    private long playouts;                                                  // Statistics of the last getMove
+    private long elapsedNanos;
+
+    /**
+     * @param othello          Reference to the Othello game instance
+     * @param player           The player character ('X' or 'O') using this strategy
+     * @param timeBudgetMillis the wall clock time allowed for each move
+     */
+    public PlayerMCTS(Othello othello, char player, long timeBudgetMillis) {
+        this(othello, player, timeBudgetMillis, Long.MAX_VALUE, Runtime.getRuntime().availableProcessors(),
+                new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @param othello          Reference to the Othello game instance
+     * @param player           The player character ('X' or 'O') using this strategy
+     * @param timeBudgetMillis the wall clock time allowed for each move
+     * @param playoutBudget    the number of playouts for each move, over all
+     *                         trees, the search stops at whichever budget runs
+     *                         out first
+     * @param trees            the number of trees searched in parallel
+     * @param seed             the seed every tree's generator is split from
+     */
+    public PlayerMCTS(Othello othello, char player, long timeBudgetMillis, long playoutBudget, int trees,
+            long seed) {
+        if (trees < 1) {
+            throw new IllegalArgumentException("at least 1 tree: " + trees);
+        }
+        this.othello = othello;
+        this.player = player;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);  // Saturates at Long.MAX_VALUE
+        this.playoutBudget = playoutBudget;
+        this.trees = new SearchTree[trees];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int t = 0; t < trees; t++) {
+            this.trees[t] = new SearchTree(random.split());
+        }
+    }
+
+    /**
+     * Search every tree until the budget runs out, then play the move with the
+     * most visits over all trees.
+     *
+     * @return the chosen move, null if there is no valid move
+     */
+    public Move getMove() {
+        if (!this.othello.canMove(player)) {
+            return null;                                                    // No valid move, pass
+        }
+        long start = System.nanoTime();
+        OthelloBoard board = this.othello.game_board;
+        long deadline = start + this.timeBudgetNanos;
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < trees.length; t++) {
+            long budget = playoutBudget / trees.length + (t < playoutBudget % trees.length ? 1 : 0);
+            SearchTree tree = trees[t];
+            tree.reset(board, player, budget, deadline);
+            tasks.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    tree.search();
+                }
+            });
+        }
+        if (tasks.size() == 1) {
+            trees[0].search();                                              // On the caller's thread, no pool
+        } else {
+            ForkJoinTask.invokeAll(tasks);                                  // In the common pool, or the caller's pool
+        }
+
+        // Add up the root statistics of every tree
+
+        int dim = board.getDimension();
+        long[] visits = new long[Math.max(64, dim * dim)];
+        this.playouts = 0;
+        for (SearchTree tree : trees) {
+            this.playouts += tree.playouts;
+            tree.addRootVisits(visits);
+        }
+        this.elapsedNanos = System.nanoTime() - start;
+        Metrics.countPlayouts(this.playouts);
+
+        if (dim > OthelloBoard.BITBOARD_DIMENSION) {
+            int[] moves = new int[dim * dim];                               // Squares row*dim+col, as in the trees
+            int count = board.getMoves(player, moves);
+            int bestSquare = moves[0];
+            for (int i = 1; i < count; i++) {
+                if (visits[moves[i]] > visits[bestSquare]) {
+                    bestSquare = moves[i];
+                }
+            }
+            return new Move(bestSquare / dim, bestSquare % dim);
+        }
+        long legalMoves = this.othello.getLegalMoves(player);
+        int bestSquare = Long.numberOfTrailingZeros(legalMoves);
+        for (long moves = legalMoves; moves != 0; moves &= moves - 1) {
+            int square = Long.numberOfTrailingZeros(moves);
+            if (visits[square] > visits[bestSquare]) {
+                bestSquare = square;
+            }
+        }
+        return new Move(OthelloBoard.rowOf(bestSquare), OthelloBoard.colOf(bestSquare));
+    }
+
+    /**
+     * One search tree. Node n made move square[n] (-1 for a pass) and its
+     * children are firstChild[n] to firstChild[n]+childCount[n]-1. wins[n]
+     * counts, in half points, the results for the player who made move n, so a
+     * parent picks its child by the child's own statistics.
+     *
+     * On boards over 8x8 the tree plays on board, a copy of the game's board,
+     * and takes every move back after each playout.
+     */
+    private static class SearchTree {
+        private static final int UNEXPANDED = -1, GAME_OVER = -2;          // firstChild of a node without children
+
+        private final SplittableRandom random;
+        private int[] square = new int[1024];
+        private int[] firstChild = new int[1024];
+        private int[] childCount = new int[1024];
+        private int[] visits = new int[1024];
+        private int[] wins = new int[1024];
+        private int size;
+        private int[] path = new int[MAX_PLIES];
+
+        private long rootOwn, rootOpp, squares;
+        private OthelloBoard board;                                         // Boards over 8x8 only, else null
+        private int[] moveList;
+        private char rootPlayer;
+        private long budget, deadline;
+        private long playouts;
+
+        SearchTree(SplittableRandom random) {
+            this.random = random;
+        }
+
+        void reset(OthelloBoard root, char player, long budget, long deadline) {
+            int dim = root.getDimension();
+            if (dim <= OthelloBoard.BITBOARD_DIMENSION) {
+                this.rootOwn = root.getTokens(player);
+                this.rootOpp = root.getTokens(OthelloBoard.otherPlayer(player));
+                this.squares = root.getSquares();
+                this.board = null;
+            } else {
+                this.board = new OthelloBoard(root);
+                this.rootPlayer = player;
+                if (this.moveList == null || this.moveList.length != dim * dim) {
+                    this.moveList = new int[dim * dim];
+                    this.path = new int[Math.max(MAX_PLIES, 2 * dim * dim + 2)];
+                }
+            }
+            this.budget = budget;
+            this.deadline = deadline;
+            this.playouts = 0;
+            this.size = 0;
+            newNode(-1);
+        }
+
+        private int newNode(int move) {
+            if (size == square.length) {
+                int capacity = size * 2;
+                square = Arrays.copyOf(square, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                visits = Arrays.copyOf(visits, capacity);
+                wins = Arrays.copyOf(wins, capacity);
+            }
+            square[size] = move;
+            firstChild[size] = UNEXPANDED;
+            childCount[size] = 0;
+            visits[size] = 0;
+            wins[size] = 0;
+            return size++;
+        }
+
+        void search() {
+            while (playouts < budget
+                    && (playouts % CHECK_EVERY != 0 || System.nanoTime() - deadline < 0)) {
+                playOnce();
+                playouts++;
+            }
+        }
+
+        /**
+         * Select down the tree, expand one node, play out and back up the result.
+         */
+        private void playOnce() {
+            if (board != null) {
+                playOnceOnList();
+                return;
+            }
+            long own = rootOwn, opp = rootOpp;                               // own is the player to move at node
+            int node = 0, depth = 0;
+            path[depth++] = node;
+            while (firstChild[node] != GAME_OVER) {
+                if (firstChild[node] == UNEXPANDED) {
+                    if ((node != 0 && visits[node] == 0) || !expand(node, own, opp)) {
+                        break;                                              // Play out from here
+                    }
+                    if (firstChild[node] == GAME_OVER) {
+                        break;
+                    }
+                }
+                node = select(node);
+                int move = square[node];
+                if (move >= 0) {
+                    long flipped = OthelloBoard.flips(move, own, opp, squares);
+                    own |= flipped | (1L << move);
+                    opp &= ~flipped;
+                }
+                long swap = own;                                            // Other player to move
+                own = opp;
+                opp = swap;
+                path[depth++] = node;
+            }
+
+            // result is 2 for a win of the player to move at node, 1 for a draw, 0 for a loss
+
+            int difference = playout(own, opp);
+            backUp(depth, difference > 0 ? 2 : difference == 0 ? 1 : 0);
+        }
+
+        /**
+         * Count the result for the nodes path[0] to path[depth-1].
+         *
+         * @param result 2 for a win of the player to move at the last node, 1
+         *               for a draw, 0 for a loss
+         */
+        private void backUp(int depth, int result) {
+            while (depth > 0) {
+                int n = path[--depth];
+                visits[n]++;
+                wins[n] += 2 - result;                                      // n's move was made by the other player
+                result = 2 - result;
+            }
+        }
+
+        /**
+         * playOnce on board, for boards over 8x8.
+         */
+        private void playOnceOnList() {
+            int dim = board.getDimension();
+            char side = rootPlayer;                                         // The player to move at node
+            int node = 0, depth = 0;
+            path[depth++] = node;
+            while (firstChild[node] != GAME_OVER) {
+                if (firstChild[node] == UNEXPANDED) {
+                    if ((node != 0 && visits[node] == 0) || !expandOnList(node, side)) {
+                        break;                                              // Play out from here
+                    }
+                    if (firstChild[node] == GAME_OVER) {
+                        break;
+                    }
+                }
+                node = select(node);
+                int move = square[node];
+                if (move >= 0) {
+                    board.makeMove(move / dim, move % dim, side);
+                }
+                side = OthelloBoard.otherPlayer(side);
+                path[depth++] = node;
+            }
+            int difference = playoutOnList(side);
+            while (board.getUndoDepth() > 0) {
+                board.undoMove();                                           // Back to the root
+            }
+            backUp(depth, difference > 0 ? 2 : difference == 0 ? 1 : 0);
+        }
+
+        /**
+         * expand, for boards over 8x8.
+         *
+         * @return false if the tree is full
+         */
+        private boolean expandOnList(int node, char side) {
+            int count = board.getMoves(side, moveList);
+            if (count == 0 && !board.canMove(OthelloBoard.otherPlayer(side))) {
+                firstChild[node] = GAME_OVER;
+                return true;
+            }
+            int children = count == 0 ? 1 : count;
+            if (size + children > MAX_NODES) {
+                return false;
+            }
+            int first = size;
+            if (count == 0) {
+                newNode(-1);                                                // Pass
+            }
+            for (int i = 0; i < count; i++) {
+                newNode(moveList[i]);
+            }
+            firstChild[node] = first;
+            childCount[node] = children;
+            return true;
+        }
+
+        /**
+         * playout, for boards over 8x8, leaving the moves on board.
+         *
+         * @return the final token difference for side
+         */
+        private int playoutOnList(char side) {
+            int dim = board.getDimension();
+            char first = side;
+            while (true) {
+                int count = board.getMoves(side, moveList);
+                if (count == 0) {
+                    if (!board.canMove(OthelloBoard.otherPlayer(side))) {
+                        return board.getCount(first) - board.getCount(OthelloBoard.otherPlayer(first));
+                    }
+                } else {
+                    int move = moveList[random.nextInt(count)];
+                    board.makeMove(move / dim, move % dim, side);
+                }
+                side = OthelloBoard.otherPlayer(side);
+            }
+        }
+
+        /**
+         * Add the children of node, one per valid move of the player to move, a
+         * single pass if there is none, or mark it GAME_OVER.
+         *
+         * @return false if the tree is full
+         */
+        private boolean expand(int node, long own, long opp) {
+            long moves = OthelloBoard.legalMoves(own, opp, squares);
+            if (moves == 0 && OthelloBoard.legalMoves(opp, own, squares) == 0) {
+                firstChild[node] = GAME_OVER;
+                return true;
+            }
+            int count = moves == 0 ? 1 : Long.bitCount(moves);
+            if (size + count > MAX_NODES) {
+                return false;
+            }
+            int first = size;
+            if (moves == 0) {
+                newNode(-1);                                                // Pass
+            }
+            for (; moves != 0; moves &= moves - 1) {
+                newNode(Long.numberOfTrailingZeros(moves));
+            }
+            firstChild[node] = first;
+            childCount[node] = count;
+            return true;
+        }
+
+        /**
+         * @return the child of node with the best upper confidence bound, an
+         *         unvisited child first
+         */
+        private int select(int node) {
+            int first = firstChild[node], end = first + childCount[node];
+            double logVisits = Math.log(Math.max(1, visits[node]));
+            int best = first;
+            double bestBound = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < end; child++) {
+                if (visits[child] == 0) {
+                    return child;
+                }
+                double bound = wins[child] / (2.0 * visits[child])
+                        + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (bound > bestBound) {
+                    bestBound = bound;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Finish the game with uniformly random moves.
+         *
+         * @return the final token difference for the player to move first
+         */
+        private int playout(long own, long opp) {
+            boolean swapped = false;
+            while (true) {
+                long moves = OthelloBoard.legalMoves(own, opp, squares);
+                if (moves == 0) {
+                    if (OthelloBoard.legalMoves(opp, own, squares) == 0) {
+                        int difference = Long.bitCount(own) - Long.bitCount(opp);
+                        return swapped ? -difference : difference;
+                    }
+                } else {
+                    for (int n = random.nextInt(Long.bitCount(moves)); n > 0; n--) {
+                        moves &= moves - 1;
+                    }
+                    int move = Long.numberOfTrailingZeros(moves);
+                    long flipped = OthelloBoard.flips(move, own, opp, squares);
+                    own |= flipped | (1L << move);
+                    opp &= ~flipped;
+                }
+                long swap = own;                                            // Other player to move
+                own = opp;
+                opp = swap;
+                swapped = !swapped;
+            }
+        }
+
+        void addRootVisits(long[] total) {
+            for (int child = firstChild[0], end = child + childCount[0]; child < end; child++) {
+                if (square[child] >= 0) {
+                    total[square[child]] += visits[child];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of playouts for the last move, over all trees
+     */
+    public long getPlayouts() {
+        return this.playouts;
+    }
+
+    /**
+     * @return the playouts per second for the last move, over all trees
+     */
+    public double getPlayoutsPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.playouts * 1e9 / this.elapsedNanos;
+    }
+}
@@ -1,12 +1,19 @@
 package ca.yorku.eecs3311.a1;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
-public class PlayerRandom {
+/**
+ * PlayerRandom makes a move by picking one of the player's valid moves
+ * uniformly at random. Each player draws from its own generator, so players in
+ * different games never contend for a shared one, and seeding both players of
+ * a game makes the whole game reproducible.
+ */
+public class PlayerRandom implements Player {
     private Othello othello;
     private char player;
-    private Random rand = new Random();
+    private RandomGenerator rand;
+    private int[] moves;                                                    // Move list, for boards over 8x8 only
 
     /**
      * Constructor initializes the PlayerRandom with a reference to the game and player token.
@@ -15,56 +22,72 @@ public class PlayerRandom {
      * @param player  the player token ('X' or 'O')
      */
     public PlayerRandom(Othello othello, char player) {
+        this(othello, player, new SplittableRandom());
+    }
+
+    /**
+     * Constructor for a PlayerRandom that always makes the same moves in the same game.
+     *
+     * @param othello the current Othello game instance
+     * @param player  the player token ('X' or 'O')
+     * @param seed    the seed of this player's generator
+     */
+    public PlayerRandom(Othello othello, char player, long seed) {
+        this(othello, player, new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructor for a PlayerRandom that draws its moves from rand.
+     *
+     * @param othello the current Othello game instance
+     * @param player  the player token ('X' or 'O')
+     * @param rand    the generator for this player only, it is not synchronized
+     */
+    public PlayerRandom(Othello othello, char player, RandomGenerator rand) {
         this.othello = othello;
         this.player = player;
+        this.rand = rand;
     }
 
     /**
      * Selects a random valid move from the available options.
-     * It checks every cell on the board to see if a move is valid, then picks one at random.
+     * It asks the game for all valid moves at once, then picks the n-th one,
+     * for n chosen uniformly at random.
      *
      * @return a valid Move object or null if no valid moves are available
      */
     public Move getMove() {
-        ArrayList<Move> validMoves = new ArrayList<>();                     // Store valid moves for random selection
-
-        // Loop through the board and check for valid moves
-        
-        for (int row = 0; row < Othello.DIMENSION; row++) {
-            for (int col = 0; col < Othello.DIMENSION; col++) {
-                if (othello.game_board.get(row, col) == OthelloBoard.EMPTY) // If the cell is empty
-                { 
-                    OthelloBoard tempBoard 
-                    = new OthelloBoard(othello.game_board.getDimension());  // Create temp board
-                    
-                    copyBoard(othello.game_board, tempBoard);               // Copy current board state to temp
-                    
-                    if (tempBoard.move(row, col, player)) {                 // Check if the move is valid
-                        validMoves.add(new Move(row, col));                 // Add valid move to the list
-                    }
-                }
-            }
+        if (othello.getDimension() > OthelloBoard.BITBOARD_DIMENSION) {
+            return getMoveFromList();
+        }
+        long legalMoves = othello.getLegalMoves(player);                     // Bitboard of every valid move
+        if (legalMoves == 0) {
+            return null;                                                    // No valid moves, return null
         }
 
-        // Select and return a random valid move if available
+        // Drop the first n valid moves, the lowest remaining bit is the choice
         
-        if (!validMoves.isEmpty()) {
-            return validMoves.get(rand.nextInt(validMoves.size()));         // Return a randomly selected move
+        for (int n = rand.nextInt(Long.bitCount(legalMoves)); n > 0; n--) {
+            legalMoves &= legalMoves - 1;
         }
-        return null;                                                        // No valid moves, return null
+        int square = Long.numberOfTrailingZeros(legalMoves);
+        return new Move(OthelloBoard.rowOf(square), OthelloBoard.colOf(square));
     }
 
     /**
-     * Copies the state of the source board into the destination board.
-     *
-     * @param src      	the board to copy from
-     * @param dest 		the board to copy to
+     * getMove for boards too big for a bitboard: the n-th move of the board's
+     * move list, which is in the same row, then column, order.
      */
-    private void copyBoard(OthelloBoard src, OthelloBoard dest) {
-        for (int i = 0; i < src.getDimension(); i++) {                   	// Loop through each row
-            for (int j = 0; j < src.getDimension(); j++) {               	// Loop through each column
-                dest.getBoard()[i][j] = src.get(i, j);							// Copy each cell value from source to destination
-            }
+    private Move getMoveFromList() {
+        int dim = othello.getDimension();
+        if (moves == null) {
+            moves = new int[dim * dim];
+        }
+        int count = othello.game_board.getMoves(player, moves);
+        if (count == 0) {
+            return null;
         }
+        int move = moves[rand.nextInt(count)];
+        return new Move(move / dim, move % dim);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Significance tests for simulation results. Under H0 every game is a fair
+ * coin flip between P1 and P2, so the number of games P1 would win when the
+ * outcomes are shuffled is Binomial(numGames, 1/2). This lets the p-value be
+ * computed exactly, instead of flipping numGames coins for every shuffle.
+ *
+ * When resampling is wanted anyway, for example to check the exact answer, a
+ * shuffle flips 64 coins at a time by counting the bits of a random long, and
+ * the shuffles are spread over all cores.
+ */
+public class Statistics {
+	private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L; // Spreads shuffle indices over the seed space
+
+	/**
+	 * z for a two sided 95% confidence interval.
+	 */
+	public static final double Z_95 = 1.959963984540054;
+
+	/**
+	 * Two sided p-value of the shuffle test, computed exactly. This is the
+	 * probability that, with numGames outcomes assigned to P1 or P2 by fair coin
+	 * flips, the difference between the players' wins is at least as large as
+	 * the observed difference.
+	 *
+	 * @param numGames the number of games played, including draws
+	 * @param p1Wins   the games P1 won
+	 * @param p2Wins   the games P2 won
+	 * @return the p-value, in [0,1]
+	 */
+	public static double exactPValue(int numGames, int p1Wins, int p2Wins) {
+		int observed = Math.abs(p1Wins - p2Wins);
+		double logHalfN = numGames * Math.log(0.5);
+		double logChoose = 0;                                               // log(numGames choose k)
+		double pValue = 0;
+		for (int k = 0; k <= numGames; k++) {
+			if (Math.abs(2 * k - numGames) >= observed) {                   // k shuffled P1 wins, numGames-k for P2
+				pValue += Math.exp(logChoose + logHalfN);
+			}
+			logChoose += Math.log((double) (numGames - k) / (k + 1));
+		}
+		return Math.min(1.0, pValue);
+	}
+
+	/**
+	 * Count the shuffles whose difference in wins is at least as large as the
+	 * observed difference. Shuffle i is seeded from seed and i only, so the count
+	 * is the same however the shuffles are spread over threads.
+	 *
+	 * @param numGames  the number of games played, including draws
+	 * @param p1Wins    the games P1 won
+	 * @param p2Wins    the games P2 won
+	 * @param resamples the number of shuffles
+	 * @param seed      the seed of the shuffles
+	 * @return the number of shuffles at least as extreme as observed
+	 */
+	public static int countExtremeShuffles(int numGames, int p1Wins, int p2Wins, int resamples, long seed) {
+		int observed = Math.abs(p1Wins - p2Wins);
+		return (int) IntStream.range(0, resamples).parallel()
+				.filter(i -> Math.abs(2 * shuffledWins(numGames, seed + i * SEED_GAMMA) - numGames) >= observed)
+				.count();
+	}
+
+	/**
+	 * Flip numGames fair coins, 64 at a time.
+	 *
+	 * @param numGames the number of coins
+	 * @param seed     the seed of this shuffle
+	 * @return the number of heads, that is games won by P1
+	 */
+	private static int shuffledWins(int numGames, long seed) {
+		SplittableRandom random = new SplittableRandom(new SplittableRandom(seed).nextLong()); // Mixed, so streams do not overlap
+		int wins = 0;
+		int left = numGames;
+		for (; left >= Long.SIZE; left -= Long.SIZE) {
+			wins += Long.bitCount(random.nextLong());
+		}
+		if (left > 0) {
+			wins += Long.bitCount(random.nextLong() & ((1L << left) - 1)); // Only the coins still needed
+		}
+		return wins;
+	}
+
+	/**
+	 * Wilson score confidence interval for a proportion, such as a win rate or a
+	 * p-value estimated by resampling.
+	 *
+	 * @param successes the number of successes
+	 * @param trials    the number of trials
+	 * @param z         the z value of the confidence level, for example Z_95
+	 * @return {low, high}, {0, 1} if there are no trials
+	 */
+	public static double[] wilsonInterval(int successes, int trials, double z) {
+		if (trials <= 0) {
+			return new double[] { 0, 1 };
+		}
+		double p = (double) successes / trials;
+		double z2 = z * z;
+		double centre = (p + z2 / (2.0 * trials)) / (1 + z2 / trials);
+		double halfWidth = z / (1 + z2 / trials) * Math.sqrt(p * (1 - p) / trials + z2 / (4.0 * trials * trials));
+		return new double[] { Math.max(0, centre - halfWidth), Math.min(1, centre + halfWidth) };
+	}
+}
@@ -0,0 +1,204 @@
+package ca.yorku.eecs3311.a1;
+
+/**
+ * The eight symmetries of the 8x8 board (the dihedral group: four rotations,
+ * each with or without a mirror), applied to whole bitboards at once.
+ *
+ * Symmetry number t is built from three flips, applied in this order: if
+ * bit 2 of t is set, transpose (swap rows and columns), if bit 1 is set, flip
+ * the rows (top to bottom), if bit 0 is set, flip the columns (left to right).
+ * 0 is the identity.
+ *
+ * Symmetric positions play the same, so a cache, book or table can store one
+ * entry for all of them: key it by canonicalKey, and store moves as their
+ * canonicalSquare. To play a stored move, map it back with the inverse of the
+ * position's canonicalTransform.
+ *
+ * Only full 8x8 boards are symmetric this way, smaller boards do not fill the
+ * bitboard.
+ *
+ * @author ilir & leroy
+ */
+public class Symmetry {
+	public static final int IDENTITY = 0;
+	public static final int COUNT = 8;                                       // Number of symmetries
+
+	private static final int[] INVERSE = new int[COUNT];
+
+	static {
+		long pattern = 0x0000000000000107L;                                  // Changes under every symmetry
+		for (int t = 0; t < COUNT; t++) {
+			for (int u = 0; u < COUNT; u++) {
+				if (transform(u, transform(t, pattern)) == pattern) {
+					INVERSE[t] = u;
+				}
+			}
+		}
+	}
+
+	private Symmetry() {
+	}
+
+	/**
+	 * @param bits a bitboard, bit row*8+col
+	 * @return bits with column col moved to column 7-col
+	 */
+	public static long flipColumns(long bits) {
+		bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+		bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+		return ((bits >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((bits & 0x0F0F0F0F0F0F0F0FL) << 4);
+	}
+
+	/**
+	 * @param bits a bitboard, bit row*8+col
+	 * @return bits with row row moved to row 7-row
+	 */
+	public static long flipRows(long bits) {
+		return Long.reverseBytes(bits);                                      // A row is a byte
+	}
+
+	/**
+	 * @param bits a bitboard, bit row*8+col
+	 * @return bits with (row, col) moved to (col, row)
+	 */
+	public static long transpose(long bits) {
+		long t = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));                // Swap 4x4 blocks, then 2x2, then single bits
+		bits ^= t ^ (t >>> 28);
+		t = 0x3333000033330000L & (bits ^ (bits << 14));
+		bits ^= t ^ (t >>> 14);
+		t = 0x5500550055005500L & (bits ^ (bits << 7));
+		return bits ^ t ^ (t >>> 7);
+	}
+
+	/**
+	 * @param t    a symmetry, 0 to COUNT-1
+	 * @param bits a bitboard, bit row*8+col
+	 * @return bits under symmetry t
+	 */
+	public static long transform(int t, long bits) {
+		if ((t & 4) != 0) {
+			bits = transpose(bits);
+		}
+		if ((t & 2) != 0) {
+			bits = flipRows(bits);
+		}
+		if ((t & 1) != 0) {
+			bits = flipColumns(bits);
+		}
+		return bits;
+	}
+
+	/**
+	 * @param t      a symmetry, 0 to COUNT-1
+	 * @param square a square, row*8+col
+	 * @return the square it moves to under symmetry t
+	 */
+	public static int transformSquare(int t, int square) {
+		int row = square >>> 3, col = square & 7;
+		if ((t & 4) != 0) {
+			int swap = row;
+			row = col;
+			col = swap;
+		}
+		if ((t & 2) != 0) {
+			row = 7 - row;
+		}
+		if ((t & 1) != 0) {
+			col = 7 - col;
+		}
+		return row * 8 + col;
+	}
+
+	/**
+	 * @param t a symmetry, 0 to COUNT-1
+	 * @return the symmetry that undoes t
+	 */
+	public static int inverse(int t) {
+		return INVERSE[t];
+	}
+
+	/**
+	 * The symmetry that takes the position to its canonical form: the one of
+	 * its eight symmetric positions with the smallest P1 bitboard, then P2
+	 * bitboard. Every symmetric position has the same canonical form.
+	 *
+	 * @param p1 the P1 tokens
+	 * @param p2 the P2 tokens
+	 * @return the symmetry, the lowest one if several give the canonical form
+	 */
+	public static int canonicalTransform(long p1, long p2) {
+		int best = IDENTITY;
+		long bestP1 = p1, bestP2 = p2;
+		for (int t = 1; t < COUNT; t++) {
+			long t1 = transform(t, p1);
+			int compare = Long.compareUnsigned(t1, bestP1);
+			if (compare > 0) {
+				continue;
+			}
+			long t2 = transform(t, p2);
+			if (compare < 0 || Long.compareUnsigned(t2, bestP2) < 0) {
+				best = t;
+				bestP1 = t1;
+				bestP2 = t2;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The square a move goes to in the position's canonical form. A position
+	 * can be symmetric itself, like the start, so several symmetries may give
+	 * its canonical form, and moves they map onto each other (the four opening
+	 * moves) are the same move. They all get the lowest square any of these
+	 * symmetries maps the move to.
+	 *
+	 * @param p1     the P1 tokens
+	 * @param p2     the P2 tokens
+	 * @param square a square, row*8+col
+	 * @return the canonical square
+	 */
+	public static int canonicalSquare(long p1, long p2, int square) {
+		int canonical = canonicalTransform(p1, p2);
+		long canonicalP1 = transform(canonical, p1), canonicalP2 = transform(canonical, p2);
+		int best = transformSquare(canonical, square);
+		for (int t = canonical + 1; t < COUNT; t++) {
+			if (transform(t, p1) == canonicalP1 && transform(t, p2) == canonicalP2) {
+				best = Math.min(best, transformSquare(t, square));
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * A hash of the position's canonical form, the same for all eight
+	 * symmetric positions.
+	 *
+	 * @param p1     the P1 tokens
+	 * @param p2     the P2 tokens
+	 * @param toMove the player to move, P1 or P2
+	 * @return the key
+	 */
+	public static long canonicalKey(long p1, long p2, char toMove) {
+		int t = canonicalTransform(p1, p2);
+		long key = mix(transform(t, p1)) ^ mix(transform(t, p2) ^ 0x9E3779B97F4A7C15L);
+		return toMove == OthelloBoard.P1 ? key : mix(key);
+	}
+
+	/**
+	 * @param board  an 8x8 board
+	 * @param toMove the player to move, P1 or P2
+	 * @return canonicalKey of the board's position
+	 */
+	public static long canonicalKey(OthelloBoard board, char toMove) {
+		return canonicalKey(board.getTokens(OthelloBoard.P1), board.getTokens(OthelloBoard.P2), toMove);
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, every input bit affects every output bit.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+}
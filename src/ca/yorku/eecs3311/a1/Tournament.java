@@ -0,0 +1,612 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Play registered strategies against each other. Strategies are registered by
+ * name with a PlayerFactory, then either every pair of strategies meets (round
+ * robin), or one challenger meets every other strategy (gauntlet). Each pairing
+ * plays the same number of games, swapping colours every game, and all games
+ * are spread over the cores of the common fork-join pool.
+ *
+ * Game seeds are derived from a master seed and the game's number, as in
+ * OthelloSimulation, so a tournament gives the same Standings however many
+ * threads play it.
+ *
+ * Games may open with a number of seeded random moves, so that deterministic
+ * strategies, such as Greedy, play more than one game against each other.
+ * Games between deterministic players can then be cut short through an
+ * OutcomeCache, one per pairing and colour order, shared by every thread: once
+ * a game reaches a position an earlier game played on from, its winner is
+ * known. The Standings are the same with or without the cache.
+ *
+ * @author ilir & leroy
+ */
+public class Tournament {
+	private static final int GAMES_PER_TASK = 256;                           // Games played by a task without splitting
+	private static final int ELO_ITERATIONS = 200;                           // Rounds of the rating fit
+
+	private List<String> names = new ArrayList<>();
+	private List<PlayerFactory> factories = new ArrayList<>();
+	private int openingPlies;                                                // Random moves that open each game
+	private int cacheCapacity;                                               // Positions per OutcomeCache, 0 for none
+	private final ConcurrentHashMap<Integer, OutcomeCache> caches = new ConcurrentHashMap<>();
+
+	/**
+	 * Add a strategy to the tournament.
+	 *
+	 * @param name    the name shown in the Standings
+	 * @param factory creates this strategy's players
+	 */
+	public void register(String name, PlayerFactory factory) {
+		names.add(name);
+		factories.add(factory);
+	}
+
+	/**
+	 * Open every game with random moves, chosen with the game's seed, before
+	 * the strategies take over.
+	 *
+	 * @param plies the number of moves and passes, 0 (the default) for none
+	 */
+	public void setOpeningPlies(int plies) {
+		this.openingPlies = plies;
+	}
+
+	/**
+	 * Cut games between deterministic players short through OutcomeCaches, see
+	 * Player.isDeterministic.
+	 *
+	 * @param capacity the positions each pairing and colour order keeps, 0 (the
+	 *                 default) for no cache
+	 */
+	public void setCacheCapacity(int capacity) {
+		this.cacheCapacity = capacity;
+		this.caches.clear();
+	}
+
+	/**
+	 * @param p1 the name of the strategy playing P1
+	 * @param p2 the name of the strategy playing P2
+	 * @return the cache of games between them with these colours, null if
+	 *         there is none (yet)
+	 */
+	public OutcomeCache getCache(String p1, String p2) {
+		return caches.get(names.indexOf(p1) * names.size() + names.indexOf(p2));
+	}
+
+	/**
+	 * Every registered strategy plays every other one.
+	 *
+	 * @param gamesPerPairing the games each pair of strategies plays, half with
+	 *                        each colour
+	 * @param masterSeed      the seed every game seed is derived from
+	 * @return the results
+	 */
+	public Standings roundRobin(int gamesPerPairing, long masterSeed) {
+		List<int[]> pairings = new ArrayList<>();
+		for (int a = 0; a < names.size(); a++) {
+			for (int b = a + 1; b < names.size(); b++) {
+				pairings.add(new int[] { a, b });
+			}
+		}
+		return run(pairings, gamesPerPairing, masterSeed);
+	}
+
+	/**
+	 * The challenger plays every other registered strategy.
+	 *
+	 * @param challenger      the name of a registered strategy
+	 * @param gamesPerPairing the games the challenger plays against each
+	 *                        strategy, half with each colour
+	 * @param masterSeed      the seed every game seed is derived from
+	 * @return the results
+	 */
+	public Standings gauntlet(String challenger, int gamesPerPairing, long masterSeed) {
+		int a = names.indexOf(challenger);
+		if (a < 0) {
+			throw new IllegalArgumentException("not registered: " + challenger);
+		}
+		List<int[]> pairings = new ArrayList<>();
+		for (int b = 0; b < names.size(); b++) {
+			if (b != a) {
+				pairings.add(new int[] { a, b });
+			}
+		}
+		return run(pairings, gamesPerPairing, masterSeed);
+	}
+
+	private Standings run(List<int[]> pairings, int gamesPerPairing, long masterSeed) {
+		long start = System.nanoTime();
+		Standings standings = ForkJoinPool.commonPool().invoke(
+				new TournamentTask(pairings.toArray(new int[0][]), gamesPerPairing, masterSeed, 0,
+						pairings.size() * gamesPerPairing));
+		standings.elapsedNanos = System.nanoTime() - start;
+		return standings;
+	}
+
+	/**
+	 * Play one game of strategy first as P1 against strategy second, with the
+	 * opening and cache of the tournament.
+	 */
+	private char play(int first, int second, long seed) {
+		if (openingPlies == 0 && cacheCapacity == 0) {
+			return playGame(factories.get(first), factories.get(second), seed);
+		}
+		SplittableRandom random = new SplittableRandom(seed);                // As in playGame(factory1, factory2, seed)
+		Othello game = new Othello();
+		Player player1 = factories.get(first).create(game, OthelloBoard.P1, random.nextLong());
+		Player player2 = factories.get(second).create(game, OthelloBoard.P2, random.nextLong());
+		if (openingPlies > 0) {
+			playOpening(game, new PlayerRandom(game, OthelloBoard.P1, random.nextLong()),
+					new PlayerRandom(game, OthelloBoard.P2, random.nextLong()), openingPlies);
+		}
+		if (cacheCapacity == 0) {
+			return playGame(game, player1, player2);
+		}
+		OutcomeCache cache = caches.computeIfAbsent(first * names.size() + second,
+				k -> new OutcomeCache(cacheCapacity));
+		return playGame(game, player1, player2, cache);
+	}
+
+	/**
+	 * Plays games [from, to) of the tournament. Game number g is game
+	 * g % gamesPerPairing of pairing g / gamesPerPairing, the first strategy of
+	 * the pairing is P1 in even games and P2 in odd games.
+	 */
+	private class TournamentTask extends RecursiveTask<Standings> {
+		private static final long serialVersionUID = 1L;
+		private final int[][] pairings;
+		private final int gamesPerPairing;
+		private final long masterSeed;
+		private final int from, to;
+
+		TournamentTask(int[][] pairings, int gamesPerPairing, long masterSeed, int from, int to) {
+			this.pairings = pairings;
+			this.gamesPerPairing = gamesPerPairing;
+			this.masterSeed = masterSeed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Standings compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				Standings standings = new Standings(names);
+				for (int g = from; g < to; g++) {
+					int[] pairing = pairings[g / gamesPerPairing];
+					boolean swap = (g % gamesPerPairing) % 2 == 1;               // Swap colours every other game
+					int first = swap ? pairing[1] : pairing[0];
+					int second = swap ? pairing[0] : pairing[1];
+
+					char winner = play(first, second, OthelloSimulation.gameSeed(masterSeed, g));
+					if (winner == OthelloBoard.P1) {
+						standings.wins[first][second]++;
+					} else if (winner == OthelloBoard.P2) {
+						standings.wins[second][first]++;
+					} else {
+						standings.draws[first][second]++;
+						standings.draws[second][first]++;
+					}
+				}
+				return standings;
+			}
+			int mid = (from + to) >>> 1;
+			TournamentTask left = new TournamentTask(pairings, gamesPerPairing, masterSeed, from, mid);
+			left.fork();                                                         // Play the first half on another worker
+			Standings standings = new TournamentTask(pairings, gamesPerPairing, masterSeed, mid, to).compute();
+			standings.add(left.join());
+			return standings;
+		}
+	}
+
+	/**
+	 * Play one game between two strategies.
+	 *
+	 * @param factory1 creates P1
+	 * @param factory2 creates P2
+	 * @param seed     the seed, the same seed always plays the same game
+	 * @return the winner, P1, P2 or EMPTY for a draw
+	 */
+	public static char playGame(PlayerFactory factory1, PlayerFactory factory2, long seed) {
+		return playGame(factory1, factory2, seed, Othello.DIMENSION);
+	}
+
+	/**
+	 * Play one game between two strategies on a board of any size.
+	 *
+	 * @param factory1  creates P1
+	 * @param factory2  creates P2
+	 * @param seed      the seed, the same seed always plays the same game
+	 * @param dimension the board's number of rows and columns
+	 * @return the winner, P1, P2 or EMPTY for a draw
+	 */
+	public static char playGame(PlayerFactory factory1, PlayerFactory factory2, long seed, int dimension) {
+		Othello game = new Othello(dimension);
+		playGame(factory1, factory2, seed, game, null);
+		return game.getWinner();
+	}
+
+	/**
+	 * As playGame(factory1, factory2, seed), on game, keeping its moves for a
+	 * GameRecordWriter. This is where a seed becomes a game, so a recorded
+	 * seed always replays the game that was recorded.
+	 *
+	 * @param factory1 creates P1
+	 * @param factory2 creates P2
+	 * @param seed     the seed, the same seed always plays the same game
+	 * @param game     a new game, of any size
+	 * @param moves    null, or the moves, see playGame(game, player1, player2,
+	 *                 moves)
+	 * @return the number of moves and passes played
+	 */
+	public static int playGame(PlayerFactory factory1, PlayerFactory factory2, long seed, Othello game,
+			byte[] moves) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Player player1 = factory1.create(game, OthelloBoard.P1, random.nextLong());
+		Player player2 = factory2.create(game, OthelloBoard.P2, random.nextLong());
+		return playGame(game, player1, player2, moves);
+	}
+
+	/**
+	 * Play game to the end, asking player1 for P1's moves and player2 for P2's
+	 * moves, passing when a player has no move.
+	 *
+	 * @param game    the game, player1 and player2 were created for it
+	 * @param player1 plays P1
+	 * @param player2 plays P2
+	 * @return the winner, P1, P2 or EMPTY for a draw
+	 */
+	public static char playGame(Othello game, Player player1, Player player2) {
+		playGame(game, player1, player2, (byte[]) null);
+		return game.getWinner();
+	}
+
+	/**
+	 * As playGame(game, player1, player2), keeping the game's moves for a
+	 * GameRecordWriter.
+	 *
+	 * @param game    the game, player1 and player2 were created for it
+	 * @param player1 plays P1
+	 * @param player2 plays P2
+	 * @param moves   null, or at least GameRecords.MAX_PLIES long, gets the
+	 *                square (row*8+col) of every move, GameRecords.PASS for a
+	 *                pass, 8x8 games only
+	 * @return the number of moves and passes played
+	 * @throws IllegalArgumentException if moves is given for a game that is not
+	 *                                  8x8
+	 */
+	public static int playGame(Othello game, Player player1, Player player2, byte[] moves) {
+		if (moves != null && game.getDimension() != Othello.DIMENSION) {
+			throw new IllegalArgumentException("only 8x8 games can be recorded: " + game.getDimension());
+		}
+		if (moves == null) {
+			return play(game, player1, player2, null);
+		}
+		return play(game, player1, player2, new PlyHook() {
+			@Override
+			public char position(char turn) {
+				return OutcomeCache.UNKNOWN;
+			}
+
+			@Override
+			public void played(int ply, Move move) {
+				moves[ply] = move == null ? GameRecords.PASS : (byte) (move.getRow() * 8 + move.getCol());
+			}
+		});
+	}
+
+	/**
+	 * The game loop of every playGame: play game to the end, or until hook
+	 * knows its winner, asking player1 for P1's moves and player2 for P2's
+	 * moves, again after an invalid move, passing when a player has no move.
+	 *
+	 * @param hook sees every position and ply, or null
+	 * @return the number of moves and passes played
+	 */
+	private static int play(Othello game, Player player1, Player player2, PlyHook hook) {
+		long gameStart = Metrics.start();
+		int plies = 0;
+		char winner = OutcomeCache.UNKNOWN;
+		while (!game.isGameOver()) {
+			char turn = game.getWhosTurn();
+			if (hook != null && (winner = hook.position(turn)) != OutcomeCache.UNKNOWN) {
+				break;                                                       // The rest of the game is known
+			}
+			Player player = turn == OthelloBoard.P1 ? player1 : player2;         // P1 or P2 makes a move
+			Move move;
+			do {
+				long start = Metrics.start();
+				move = player.getMove();                                         // Move instance for current move
+				Metrics.recordGetMove(player, turn, start);
+			} while (move != null && !game.move(move.getRow(), move.getCol())); // Make the move, or ask again
+
+			if (move == null) {
+				game.passTurn();                                                 // If no valid move, pass the turn
+			}
+			if (hook != null) {
+				hook.played(plies, move);
+			}
+			plies++;
+		}
+		Metrics.recordGame(winner != OutcomeCache.UNKNOWN ? winner : game.getWinner(), plies, gameStart);
+		return plies;
+	}
+
+	/**
+	 * Watches the game loop of play.
+	 */
+	private interface PlyHook {
+		/**
+		 * Called once for each position, before the player to move is asked.
+		 *
+		 * @param turn the player to move
+		 * @return the game's winner if it is already known, which ends the
+		 *         game here, otherwise OutcomeCache.UNKNOWN
+		 */
+		char position(char turn);
+
+		/**
+		 * Called after each move or pass.
+		 *
+		 * @param ply  the number of moves and passes before it
+		 * @param move the move, null for a pass
+		 */
+		void played(int ply, Move move);
+	}
+
+	/**
+	 * Play the first plies moves and passes of game, or to its end if sooner.
+	 *
+	 * @param game    the game, player1 and player2 were created for it
+	 * @param player1 plays P1
+	 * @param player2 plays P2
+	 * @param plies   the number of moves and passes to play
+	 */
+	public static void playOpening(Othello game, Player player1, Player player2, int plies) {
+		for (int ply = 0; ply < plies && !game.isGameOver(); ply++) {
+			Move move = game.getWhosTurn() == OthelloBoard.P1 ? player1.getMove() : player2.getMove();
+			if (move == null) {
+				game.passTurn();
+			} else {
+				game.move(move.getRow(), move.getCol());
+			}
+		}
+	}
+
+	/**
+	 * As playGame(game, player1, player2), looking up every position at which
+	 * both players are deterministic in cache. At the first position cache
+	 * knows, the game stops, unfinished, with that position's winner, which is
+	 * then also the winner of every position of the game before it. Otherwise
+	 * the game is played to the end and cache learns its winner for each of
+	 * them. 8x8 games only.
+	 *
+	 * @param game    the game, player1 and player2 were created for it
+	 * @param player1 plays P1
+	 * @param player2 plays P2
+	 * @param cache   the winners of positions between these players
+	 * @return the winner, P1, P2 or EMPTY for a draw
+	 */
+	public static char playGame(Othello game, Player player1, Player player2, OutcomeCache cache) {
+		CacheLookup lookup = new CacheLookup(game.getBoard(), player1, player2, cache);
+		play(game, player1, player2, lookup);
+		char winner = lookup.known != OutcomeCache.UNKNOWN ? lookup.known : game.getWinner();
+		for (int i = 0; i < lookup.seen; i++) {
+			cache.put(lookup.hashes[i], lookup.p1s[i], lookup.p2s[i], lookup.turns[i], winner);
+		}
+		return winner;
+	}
+
+	/**
+	 * Looks up the positions of a game in an OutcomeCache, and keeps those at
+	 * which both players are deterministic, to tell the cache their winner.
+	 */
+	private static class CacheLookup implements PlyHook {
+		private final OthelloBoard board;
+		private final Player player1, player2;
+		private final OutcomeCache cache;
+		private final long[] hashes = new long[GameRecords.MAX_PLIES], p1s = new long[GameRecords.MAX_PLIES],
+				p2s = new long[GameRecords.MAX_PLIES];
+		private final char[] turns = new char[GameRecords.MAX_PLIES];
+		private int seen;                                                    // Positions to tell cache the winner of
+		private char known = OutcomeCache.UNKNOWN;                           // The winner, once cache knows it
+
+		CacheLookup(OthelloBoard board, Player player1, Player player2, OutcomeCache cache) {
+			this.board = board;
+			this.player1 = player1;
+			this.player2 = player2;
+			this.cache = cache;
+		}
+
+		@Override
+		public char position(char turn) {
+			if (!player1.isDeterministic() || !player2.isDeterministic()) {
+				seen = 0;                                                    // The game so far says nothing of the next
+				return OutcomeCache.UNKNOWN;
+			}
+			long hash = board.getHash(turn), p1 = board.getTokens(OthelloBoard.P1);
+			long p2 = board.getTokens(OthelloBoard.P2);
+			known = cache.get(hash, p1, p2, turn);
+			if (known == OutcomeCache.UNKNOWN) {
+				hashes[seen] = hash;
+				p1s[seen] = p1;
+				p2s[seen] = p2;
+				turns[seen++] = turn;
+			}
+			return known;
+		}
+
+		@Override
+		public void played(int ply, Move move) {
+		}
+	}
+
+	/**
+	 * The results of a tournament: wins, draws and losses of every strategy
+	 * against every other, Elo estimates and how fast the games were played.
+	 */
+	public static class Standings {
+		private final List<String> names;
+		private final int[][] wins;                                              // wins[a][b], games a won against b
+		private final int[][] draws;                                             // draws[a][b] == draws[b][a]
+		private long elapsedNanos;
+
+		private Standings(List<String> names) {
+			this.names = List.copyOf(names);
+			this.wins = new int[names.size()][names.size()];
+			this.draws = new int[names.size()][names.size()];
+		}
+
+		private void add(Standings other) {
+			for (int a = 0; a < wins.length; a++) {
+				for (int b = 0; b < wins.length; b++) {
+					wins[a][b] += other.wins[a][b];
+					draws[a][b] += other.draws[a][b];
+				}
+			}
+		}
+
+		/**
+		 * @param a a strategy's name
+		 * @param b another strategy's name
+		 * @return the games a won against b
+		 */
+		public int getWins(String a, String b) {
+			return wins[names.indexOf(a)][names.indexOf(b)];
+		}
+
+		/**
+		 * @param a a strategy's name
+		 * @param b another strategy's name
+		 * @return the games between a and b that were drawn
+		 */
+		public int getDraws(String a, String b) {
+			return draws[names.indexOf(a)][names.indexOf(b)];
+		}
+
+		/**
+		 * @param a a strategy's name
+		 * @param b another strategy's name
+		 * @return the games a lost against b
+		 */
+		public int getLosses(String a, String b) {
+			return wins[names.indexOf(b)][names.indexOf(a)];
+		}
+
+		/**
+		 * @return the number of games played
+		 */
+		public int getGames() {
+			int games = 0;
+			for (int a = 0; a < wins.length; a++) {
+				for (int b = 0; b < wins.length; b++) {
+					games += wins[a][b] + (a < b ? draws[a][b] : 0);
+				}
+			}
+			return games;
+		}
+
+		/**
+		 * @return the games played per second of wall clock time
+		 */
+		public double getGamesPerSecond() {
+			return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * Estimate Elo ratings by fitting a Bradley-Terry model to the results,
+		 * counting a draw as half a win for each side. Every pairing is given one
+		 * extra draw, so a strategy that never lost still gets a finite rating.
+		 *
+		 * @return the rating of each strategy, in registration order, averaging 0
+		 */
+		public double[] getElo() {
+			int n = wins.length;
+			double[] strength = new double[n];
+			Arrays.fill(strength, 1.0);
+			for (int iteration = 0; iteration < ELO_ITERATIONS; iteration++) {
+				double logSum = 0;
+				for (int a = 0; a < n; a++) {
+					double score = 0, expected = 0;
+					for (int b = 0; b < n; b++) {
+						int games = wins[a][b] + wins[b][a] + draws[a][b];
+						if (b == a || games == 0) {
+							continue;
+						}
+						score += wins[a][b] + 0.5 * draws[a][b] + 0.5;
+						expected += (games + 1) / (strength[a] + strength[b]);
+					}
+					if (expected > 0) {
+						strength[a] = score / expected;
+					}
+					logSum += Math.log(strength[a]);
+				}
+				double mean = Math.exp(logSum / n);                              // Keep the geometric mean at 1
+				for (int a = 0; a < n; a++) {
+					strength[a] /= mean;
+				}
+			}
+			double[] elo = new double[n];
+			for (int a = 0; a < n; a++) {
+				elo[a] = 400 * Math.log10(strength[a]);
+			}
+			return elo;
+		}
+
+		/**
+		 * @return one line per strategy with its wins, draws and losses over all
+		 *         its games and its Elo, then one line per pairing, then the speed
+		 */
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			double[] elo = getElo();
+			for (int a = 0; a < wins.length; a++) {
+				int w = 0, d = 0, l = 0;
+				for (int b = 0; b < wins.length; b++) {
+					w += wins[a][b];
+					d += draws[a][b];
+					l += wins[b][a];
+				}
+				s.append(String.format("%-12s W %7d  D %7d  L %7d  Elo %+7.1f%n", names.get(a), w, d, l, elo[a]));
+			}
+			for (int a = 0; a < wins.length; a++) {
+				for (int b = a + 1; b < wins.length; b++) {
+					if (wins[a][b] + wins[b][a] + draws[a][b] > 0) {
+						s.append(String.format("  %s vs %s: %d-%d-%d%n", names.get(a), names.get(b), wins[a][b],
+								draws[a][b], wins[b][a]));
+					}
+				}
+			}
+			s.append(String.format("%d games, %.0f games/s%n", getGames(), getGamesPerSecond()));
+			return s.toString();
+		}
+	}
+
+	/**
+	 * Run a round robin between the built in strategies.
+	 *
+	 * @param args optional games per pairing, then optional master seed
+	 */
+	public static void main(String[] args) {
+		int gamesPerPairing = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		long masterSeed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+
+		Tournament tournament = new Tournament();
+		tournament.register("Random", PlayerRandom::new);
+		tournament.register("Greedy", (othello, player, seed) -> new PlayerGreedy(othello, player));
+
+		System.out.println("Master seed: " + masterSeed);
+		Standings standings = tournament.roundRobin(gamesPerPairing, masterSeed);
+		System.out.print(standings);
+		if (Metrics.ENABLED) {
+			System.out.print(Metrics.summary(standings.elapsedNanos));       // Tail latencies of each strategy
+		}
+	}
+}
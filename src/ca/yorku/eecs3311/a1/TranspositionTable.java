@@ -0,0 +1,140 @@
+package ca.yorku.eecs3311.a1;
+
+import java.util.Arrays;
+
+/**
+ * Remembers search results by position hash, see OthelloBoard.getHash(char),
+ * so that a search reaching a position it has already searched, through a
+ * different order of moves, can reuse the result.
+ *
+ * The table is two preallocated long arrays, one for keys and one for packed
+ * entries, so storing never allocates. Slots come in buckets of two: the first
+ * slot keeps the deepest result (depth-preferred), the second always takes the
+ * newest one. Each key is stored XORed with its entry, so an entry torn by two
+ * threads writing at once does not match any key and is never returned.
+ *
+ * An entry packs the score (32 bits), the depth (8 bits), the kind of bound
+ * (2 bits) and the best move's square plus one (13 bits, 0 for none), use
+ * getScore, getDepth, getFlag and getBestSquare to unpack it. The square is a
+ * bit index on boards of up to 8x8, row*dim+col on bigger ones, up to 64x64.
+ *
+ * @author ilir & leroy
+ */
+public class TranspositionTable {
+	public static final int EXACT = 0, LOWER = 1, UPPER = 2;                // The score is exact, at least, or at most
+	public static final int MAX_DEPTH = 255;                                 // Deepest search an entry can hold
+	private static final long VALID = 1L << 62;                              // Set in every entry, so no entry is 0
+	private static final int BYTES_PER_SLOT = 2 * Long.BYTES;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int bucketMask;
+
+	/**
+	 * @param megabytes the memory to use, rounded down to a power of two number
+	 *                  of slots
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1) {
+			throw new IllegalArgumentException("at least 1 MB: " + megabytes);
+		}
+		long slots = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_SLOT);
+		slots = Math.min(slots, 1L << 30);
+		this.keys = new long[(int) slots];
+		this.entries = new long[(int) slots];
+		this.bucketMask = (int) (slots / 2 - 1);
+	}
+
+	/**
+	 * @param key a position hash
+	 * @return the entry stored for key, 0 if there is none
+	 */
+	public long probe(long key) {
+		int slot = ((int) key & bucketMask) << 1;
+		long entry = entries[slot];
+		if ((keys[slot] ^ entry) == key && entry != 0) {
+			return entry;
+		}
+		entry = entries[slot + 1];
+		if ((keys[slot + 1] ^ entry) == key && entry != 0) {
+			return entry;
+		}
+		return 0;
+	}
+
+	/**
+	 * Remember a search result. It replaces the depth-preferred slot of its
+	 * bucket if it is at least as deep, pushing the old result to the other slot,
+	 * otherwise it replaces the other slot.
+	 *
+	 * @param key        a position hash
+	 * @param depth      the depth searched, in {0,...,MAX_DEPTH}
+	 * @param score      the score found
+	 * @param flag       EXACT, LOWER or UPPER
+	 * @param bestSquare the square of the best move, -1 if there is none
+	 */
+	public void store(long key, int depth, int score, int flag, int bestSquare) {
+		long entry = VALID | (score & 0xFFFFFFFFL) | ((long) depth << 32) | ((long) flag << 40)
+				| ((long) (bestSquare + 1) << 42);
+		int slot = ((int) key & bucketMask) << 1;
+		long deepest = entries[slot];
+		if (deepest == 0 || (keys[slot] ^ deepest) == key || depth >= getDepth(deepest)) {
+			if (deepest != 0 && (keys[slot] ^ deepest) != key) {
+				keys[slot + 1] = keys[slot];                                     // Keep the old result a while longer
+				entries[slot + 1] = deepest;
+			}
+			keys[slot] = key ^ entry;
+			entries[slot] = entry;
+		} else {
+			keys[slot + 1] = key ^ entry;
+			entries[slot + 1] = entry;
+		}
+	}
+
+	/**
+	 * Forget every result.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, 0);
+	}
+
+	/**
+	 * @return the number of results the table can hold
+	 */
+	public int getCapacity() {
+		return entries.length;
+	}
+
+	/**
+	 * @param entry an entry returned by probe
+	 * @return the score
+	 */
+	public static int getScore(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * @param entry an entry returned by probe
+	 * @return the depth the score was searched to
+	 */
+	public static int getDepth(long entry) {
+		return (int) (entry >>> 32) & 0xFF;
+	}
+
+	/**
+	 * @param entry an entry returned by probe
+	 * @return EXACT, LOWER or UPPER
+	 */
+	public static int getFlag(long entry) {
+		return (int) (entry >>> 40) & 0x3;
+	}
+
+	/**
+	 * @param entry an entry returned by probe
+	 * @return the square of the best move, -1 if there is none
+	 */
+	public static int getBestSquare(long entry) {
+		return ((int) (entry >>> 42) & 0x1FFF) - 1;
+	}
+}
@@ -0,0 +1,45 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.BitboardKernel;
+
+public class BitboardKernelTest {
+
+	@Test
+	public void testVectorMatchesScalar() {
+		BitboardKernel vector=BitboardKernel.vector();
+		Assume.assumeNotNull(vector);                                        // Not compiled in, or no jdk.incubator.vector
+		BitboardKernel scalar=BitboardKernel.scalar();
+
+		Random random=new Random(3311);
+		for(int dim=4; dim<=8; dim+=2) {
+			long squares=0;
+			for(int row=0; row<dim; row++) for(int col=0; col<dim; col++) squares|=1L<<(row*8+col);
+			for(int position=0; position<100000; position++) {
+				// From nearly empty to nearly full boards
+				double full=random.nextDouble();
+				long own=0, opp=0;
+				for(long s=squares; s!=0; s&=s-1) {
+					long bit=Long.lowestOneBit(s);
+					if(random.nextDouble()<full) {
+						if(random.nextBoolean()) own|=bit;
+						else opp|=bit;
+					}
+				}
+				String where=dim+"x"+dim+" own "+Long.toHexString(own)+" opp "+Long.toHexString(opp);
+				assertEquals(where,vector.legalMoves(own, opp, squares),scalar.legalMoves(own, opp, squares));
+				for(long empty=squares & ~(own | opp); empty!=0; empty&=empty-1) {
+					int square=Long.numberOfTrailingZeros(empty);
+					assertEquals(where+" square "+square,vector.flips(square, own, opp, squares),
+							scalar.flips(square, own, opp, squares));
+				}
+			}
+		}
+	}
+}
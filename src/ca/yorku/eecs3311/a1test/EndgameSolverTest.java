@@ -0,0 +1,74 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.EndgameSolver;
+import ca.yorku.eecs3311.a1.Move;
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+
+public class EndgameSolverTest {
+	EndgameSolver solver;
+	Move[] moves = { new Move(2, 4), new Move(2, 5), new Move(2, 6), new Move(2, 3), new Move(2, 2), new Move(3, 2),
+			new Move(4, 2), new Move(5, 4) };
+
+	@Before
+	public void setUp() throws Exception {
+		solver=new EndgameSolver();
+	}
+
+	@Test
+	public void testSolveWinningMove() {
+		Othello o=new Othello();
+		for(int i=0;i<moves.length;i++) {
+			o.move(moves[i].getRow(), moves[i].getCol());
+		}
+		// (6,4) ends the game, X has 13 tokens against none
+		assertEquals(solver.solveWinLossDraw(o.getBoard(), OthelloBoard.P1),1);
+		assertEquals(solver.getBestMove().toString(),"(6,4)");
+		assertTrue(solver.getNodes()>0);
+		
+		o.move(6, 4);
+		assertTrue(o.isGameOver());
+		assertEquals(solver.solve(o.getBoard(), OthelloBoard.P1),13);
+		assertEquals(solver.solve(o.getBoard(), OthelloBoard.P2),-13);
+		assertEquals(solver.solveWinLossDraw(o.getBoard(), OthelloBoard.P2),-1);
+		assertNull("O has to pass",solver.getBestMove());
+	}
+
+	@Test
+	public void testSolveWholeSmallGame() {
+		// 4x4 has 12 empty squares, the whole game can be solved
+		OthelloBoard b=new OthelloBoard(4);
+		String before=b.toString();
+		int exact=solver.solve(b, OthelloBoard.P1);
+		Move best=solver.getBestMove();
+		assertTrue("best move is valid",new OthelloBoard(b).move(best.getRow(), best.getCol(), OthelloBoard.P1));
+		assertEquals(solver.solveWinLossDraw(b, OthelloBoard.P1),Integer.signum(exact));
+		
+		// After the best move, O can do no better than -exact
+		OthelloBoard after=new OthelloBoard(b);
+		after.move(best.getRow(), best.getCol(), OthelloBoard.P1);
+		assertEquals(solver.solve(after, OthelloBoard.P2),-exact);
+		assertTrue("board unchanged",before.equals(b.toString()));
+	}
+
+	@Test
+	public void testBudget() {
+		OthelloBoard b=new OthelloBoard(4);
+		int exact=solver.solve(b, OthelloBoard.P1);
+		assertFalse(solver.isAborted());
+		assertTrue(solver.getNodes()>100);
+
+		solver.solve(b, OthelloBoard.P1, 100, System.nanoTime()+Long.MAX_VALUE);
+		assertTrue("out of nodes",solver.isAborted());
+		assertEquals(solver.getNodes(),100);
+		solver.solve(b, OthelloBoard.P1, Long.MAX_VALUE, System.nanoTime()-1);
+		assertTrue("out of time",solver.isAborted());
+		assertEquals(solver.solve(b, OthelloBoard.P1, Long.MAX_VALUE, System.nanoTime()+60000000000L),exact);
+		assertFalse(solver.isAborted());
+	}
+}
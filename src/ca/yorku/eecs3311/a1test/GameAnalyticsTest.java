@@ -0,0 +1,69 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.GameAnalytics;
+import ca.yorku.eecs3311.a1.GameRecordWriter;
+import ca.yorku.eecs3311.a1.GameRecords;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.OthelloSimulation;
+
+public class GameAnalyticsTest {
+	Path path;
+
+	@Before
+	public void setUp() throws Exception {
+		path=Files.createTempFile("games", ".bin");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void testAnalyze() throws Exception {
+		OthelloSimulation.Results results;
+		try(GameRecordWriter writer=new GameRecordWriter(path, "Random")) {
+			results=OthelloSimulation.simulate(10000, 3, writer);
+		}
+		GameAnalytics.Report report=GameAnalytics.analyze(GameRecords.open(path));
+		assertEquals(report.getGames(),10000);
+
+		long[] p1=report.getResults(0, OthelloBoard.P1), p2=report.getResults(0, OthelloBoard.P2);
+		assertEquals(p1[0],results.p1Wins);
+		assertEquals(p1[1],results.draws);
+		assertEquals(p1[2],results.p2Wins);
+		assertEquals(p2[0],results.p2Wins);
+
+		// Every game has one of the 4 opening moves, and counts its final tokens
+		long opened=0, tokens=0, games=0;
+		for(int row=0;row<8;row++) {
+			for(int col=0;col<8;col++) {
+				long[] r=report.getFirstMoveResults(row, col);
+				opened+=r[0]+r[1]+r[2];
+				tokens+=report.getOccupancy(row, col, OthelloBoard.P1)+report.getOccupancy(row, col, OthelloBoard.P2);
+			}
+		}
+		for(int plies=0;plies<=GameRecords.MAX_PLIES;plies++) games+=report.getLength(plies);
+		assertEquals(opened,10000);
+		assertEquals(games,10000);
+		assertTrue(tokens>10000*50 && tokens<=10000*64);
+		assertEquals(report.getFirstMoveResults(2, 4)[0]+report.getFirstMoveResults(3, 5)[0]
+				+report.getFirstMoveResults(4, 2)[0]+report.getFirstMoveResults(5, 3)[0],results.p1Wins);
+		assertTrue(report.getLengthQuantile(0.5)>=55);
+
+		// The same, with the file mapped in many regions
+		GameAnalytics.Report regions=GameAnalytics.analyze(GameRecords.open(path, 65536));
+		assertEquals(regions.getGames(),10000);
+		assertArrayEquals(regions.getResults(0, OthelloBoard.P1),p1);
+		for(int plies=0;plies<=GameRecords.MAX_PLIES;plies++) assertEquals(regions.getLength(plies),report.getLength(plies));
+	}
+}
@@ -0,0 +1,145 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.GameRecordWriter;
+import ca.yorku.eecs3311.a1.GameRecords;
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.OthelloSimulation;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+import ca.yorku.eecs3311.a1.Tournament;
+
+public class GameRecordsTest {
+	Path path;
+
+	@Before
+	public void setUp() throws Exception {
+		path=Files.createTempFile("games", ".bin");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void testSimulation() throws Exception {
+		OthelloSimulation.Results results;
+		try(GameRecordWriter writer=new GameRecordWriter(path, "Random")) {
+			results=OthelloSimulation.simulate(1000, 1, writer);
+		}
+		GameRecords records=GameRecords.open(path);
+		assertEquals(records.getPlayerCount(),1);
+		assertEquals(records.getPlayerName(0),"Random");
+
+		// Every game is recorded, with its result and seed
+		GameRecords.Cursor cursor=records.cursor();
+		int games=0, p1Wins=0;
+		while(cursor.next()) {
+			games++;
+			if(cursor.getWinner()==OthelloBoard.P1) p1Wins++;
+			assertEquals(cursor.getPlayer(OthelloBoard.P2),0);
+			assertTrue(cursor.getPlies()>=cursor.getTokens(OthelloBoard.P1)+cursor.getTokens(OthelloBoard.P2)-4);
+		}
+		assertEquals(games,1000);
+		assertEquals(p1Wins,results.p1Wins);
+		assertTrue("about a byte per move",records.getBytes()<1000*(13+70));
+
+		// Replaying a game gives its final position, and the same game as its seed
+		cursor=records.cursor();
+		cursor.next();
+		OthelloBoard board=new OthelloBoard(8);
+		cursor.replay(board, cursor.getPlies());
+		assertEquals(board.getCount(OthelloBoard.P1),cursor.getTokens(OthelloBoard.P1));
+		assertEquals(board.getCount(OthelloBoard.P2),cursor.getTokens(OthelloBoard.P2));
+		assertEquals(Tournament.playGame(PlayerRandom::new, PlayerRandom::new, cursor.getSeed()),cursor.getWinner());
+	}
+
+	@Test
+	public void testRegions() throws Exception {
+		// Files are mapped in regions, small ones here, so many games straddle
+		// the end of a region and are read from its overlap
+		try(GameRecordWriter writer=new GameRecordWriter(path, "Random")) {
+			OthelloSimulation.simulate(1000, 2, writer);
+		}
+		GameRecords whole=GameRecords.open(path);
+		for(int regionBytes : new int[] { 100, 4096 }) {
+			GameRecords records=GameRecords.open(path, regionBytes);
+			assertEquals(records.getBytes(),whole.getBytes());
+			GameRecords.Cursor expected=whole.cursor(), cursor=records.cursor();
+			int games=0;
+			while(expected.next()) {
+				assertTrue(cursor.next());
+				assertEquals(cursor.getOffset(),expected.getOffset());
+				assertEquals(cursor.getSeed(),expected.getSeed());
+				assertEquals(cursor.getTokens(OthelloBoard.P1),expected.getTokens(OthelloBoard.P1));
+				assertEquals(cursor.getPlies(),expected.getPlies());
+				for(int ply=0; ply<cursor.getPlies(); ply++) assertEquals(cursor.getSquare(ply),expected.getSquare(ply));
+				games++;
+			}
+			assertFalse(cursor.next());
+			assertEquals(games,1000);
+		}
+		try {
+			GameRecords.open(path, 0);
+			fail("no regions");
+		} catch(IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testTruncated() throws Exception {
+		byte[] moves={ 2*8+3, 2*8+2, GameRecords.PASS };
+		OthelloBoard board=new OthelloBoard(8);
+		try(GameRecordWriter writer=new GameRecordWriter(path, "A", "B")) {
+			writer.write(0, 1, 42, board, moves, 3);
+			writer.write(1, 0, 43, board, moves, 2);
+		}
+		byte[] bytes=Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(bytes, bytes.length-1));
+
+		GameRecords.Cursor cursor=GameRecords.open(path, 16).cursor();        // The cut game in a region of its own
+		assertTrue(cursor.next());
+		assertEquals(cursor.getSeed(),42);
+		assertEquals(cursor.getPlayer(OthelloBoard.P2),1);
+		assertEquals(cursor.getPlies(),3);
+		assertEquals(cursor.getSquare(2),GameRecords.PASS);
+		assertFalse("the cut game is skipped",cursor.next());
+	}
+
+	@Test
+	public void testOnly8x8() throws Exception {
+		// Squares are row*8+col and token counts a byte, neither fits bigger boards
+		Othello game=new Othello(10);
+		try {
+			Tournament.playGame(game, new PlayerRandom(game, OthelloBoard.P1, 1), new PlayerRandom(game, OthelloBoard.P2, 2),
+					new byte[GameRecords.MAX_PLIES]);
+			fail("10x10 moves kept");
+		} catch(IllegalArgumentException e) {
+		}
+		assertEquals("nothing played",game.getCount(OthelloBoard.EMPTY),100-4);
+
+		try(GameRecordWriter writer=new GameRecordWriter(path, "A")) {
+			try {
+				writer.write(0, 0, 1, new OthelloBoard(16), new byte[0], 0);
+				fail("16x16 game written");
+			} catch(IllegalArgumentException e) {
+			}
+			try {
+				writer.newBatch().add(0, 0, 1, new OthelloBoard(6), new byte[0], 0);
+				fail("6x6 game written");
+			} catch(IllegalArgumentException e) {
+			}
+		}
+		assertFalse(GameRecords.open(path).cursor().next());
+	}
+}
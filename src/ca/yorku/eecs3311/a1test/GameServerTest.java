@@ -0,0 +1,208 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.GameServer;
+import ca.yorku.eecs3311.a1.PlayerGreedy;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+
+public class GameServerTest {
+	GameServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		server=new GameServer(0, 1000);
+		server.register("Random", PlayerRandom::new);
+		server.register("Greedy", (othello, player, seed) -> new PlayerGreedy(othello, player));
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.close();
+	}
+
+	/**
+	 * A client that plays the first valid move it is offered.
+	 */
+	static class Client implements AutoCloseable {
+		Socket socket;
+		BufferedReader in;
+		PrintWriter out;
+
+		Client(int port) throws IOException {
+			socket=new Socket(InetAddress.getLoopbackAddress(), port);
+			socket.setSoTimeout(30000);
+			in=new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			out=new PrintWriter(socket.getOutputStream(), true);
+		}
+
+		String send(String line) throws IOException {
+			out.println(line);
+			return in.readLine();
+		}
+
+		/**
+		 * @return the END line, after counting the MOVE lines in moves
+		 */
+		String play(int[] moves) throws IOException {
+			while(true) {
+				String line=in.readLine();
+				if(line==null || line.startsWith("END") || line.equals("ABORTED")) return line;
+				if(line.startsWith("MOVE")) moves[0]++;
+				if(line.startsWith("YOURTURN")) {
+					String[] square=line.split(" ")[1].split(",");
+					out.println("MOVE "+square[0]+" "+square[1]);
+				}
+			}
+		}
+
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void testEngineGames() throws Exception {
+		try(Client client=new Client(server.getPort())) {
+			assertEquals(client.in.readLine(),"HELLO Random Greedy");
+			assertEquals(client.send("PLAY Greedy"),"GAME X Greedy");
+			int[] moves={0};
+			String[] end=client.play(moves).split(" ");
+			assertEquals(end[0],"END");
+			int p1=Integer.parseInt(end[2]), p2=Integer.parseInt(end[3]);
+			assertEquals(p1+p2,4+moves[0]);
+			assertEquals(end[1],p1>p2 ? "X" : p2>p1 ? "O" : "-");
+
+			// Then another game, as O
+			assertEquals(client.send("PLAY Random O"),"GAME O Random");
+			assertTrue(client.play(moves).startsWith("END"));
+			assertEquals(server.getGamesPlayed(),2);
+		}
+	}
+
+	@Test
+	public void testMatch() throws Exception {
+		ExecutorService pool=Executors.newFixedThreadPool(2);
+		try(Client a=new Client(server.getPort()); Client b=new Client(server.getPort())) {
+			a.in.readLine();
+			b.in.readLine();
+			assertEquals(a.send("MATCH"),"WAITING");
+			assertEquals(b.send("MATCH"),"GAME O client");
+			assertEquals(a.in.readLine(),"GAME X client");
+			Future<String> aEnd=pool.submit(() -> a.play(new int[1]));
+			Future<String> bEnd=pool.submit(() -> b.play(new int[1]));
+			assertTrue(aEnd.get().startsWith("END"));
+			assertEquals(bEnd.get(),aEnd.get());
+
+			// A client that hangs up mid game aborts it
+			assertEquals(a.send("MATCH"),"WAITING");
+			assertEquals(b.send("MATCH"),"GAME O client");
+			assertEquals(a.in.readLine(),"GAME X client");
+			assertTrue(a.in.readLine().startsWith("YOURTURN"));
+			a.out.println("QUIT");
+			assertEquals(b.in.readLine(),"ABORTED");
+			assertEquals(b.send("PLAY Random"),"GAME X Random");
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testMatchHangup() throws Exception {
+		// A client that hangs up while waiting for a MATCH gives up its place,
+		// its session and its permit
+		try(Client a=new Client(server.getPort())) {
+			a.in.readLine();
+			assertEquals(a.send("MATCH"),"WAITING");
+		}
+		long deadline=System.currentTimeMillis()+10000;
+		while(server.getSessions()>0 && System.currentTimeMillis()<deadline) Thread.sleep(10);
+		assertEquals("session closed",server.getSessions(),0);
+
+		try(Client b=new Client(server.getPort()); Client c=new Client(server.getPort())) {
+			b.in.readLine();
+			c.in.readLine();
+			assertEquals(b.send("MATCH"),"WAITING");
+			assertEquals(c.send("MATCH"),"GAME O client");
+			assertEquals(b.in.readLine(),"GAME X client");
+			assertTrue(b.in.readLine().startsWith("YOURTURN"));
+		}
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		try(Client client=new Client(server.getPort())) {
+			client.in.readLine();
+			assertTrue(client.send("PLAY Nobody").startsWith("ERROR"));
+			assertTrue(client.send("HELLO").startsWith("ERROR"));
+			assertEquals(client.send("PLAY Random"),"GAME X Random");
+			String[] square=client.in.readLine().split(" ")[1].split(",");
+			assertEquals(client.send("MOVE 0 0"),"ILLEGAL");
+			assertEquals(client.send("MOVE x"),"ILLEGAL");
+			assertEquals(client.send("MOVE "+square[0]+" "+square[1]),"MOVE X "+square[0]+" "+square[1]);
+			assertTrue(client.in.readLine().startsWith("MOVE O"));
+			assertTrue(client.in.readLine().startsWith("YOURTURN"));
+			client.out.println("QUIT");
+			assertNull("resigned",client.in.readLine());
+		}
+		try(Client client=new Client(server.getPort())) {
+			client.in.readLine();
+			client.out.print("x".repeat(65));
+			client.out.flush();
+			assertEquals(client.in.readLine(),"ERROR line too long");
+			assertNull("hung up on",client.in.readLine());
+		}
+	}
+
+	@Test
+	public void testBusy() throws Exception {
+		try(GameServer small=new GameServer(0, 1)) {
+			small.start();
+			try(Client first=new Client(small.getPort()); Client second=new Client(small.getPort())) {
+				assertEquals(first.in.readLine(),"HELLO");
+				assertEquals(second.in.readLine(),"BUSY");
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentGames() throws Exception {
+		int games=500;
+		List<Client> clients=new ArrayList<>();
+		ExecutorService pool=Executors.newFixedThreadPool(64);
+		try {
+			for(int i=0; i<games; i++) {
+				Client client=new Client(server.getPort());
+				clients.add(client);
+				client.in.readLine();
+				assertEquals(client.send("PLAY Random"),"GAME X Random");
+			}
+			assertEquals("all connected at once",server.getSessions(),games);
+			List<Future<String>> ends=new ArrayList<>();
+			for(Client client : clients) ends.add(pool.submit(() -> client.play(new int[1])));
+			for(Future<String> end : ends) assertTrue(end.get().startsWith("END"));
+			assertEquals(server.getGamesPlayed(),games);
+		} finally {
+			pool.shutdown();
+			for(Client client : clients) client.close();
+		}
+	}
+}
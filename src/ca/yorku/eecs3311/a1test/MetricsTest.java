@@ -0,0 +1,58 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.LatencyHistogram;
+import ca.yorku.eecs3311.a1.Metrics;
+import ca.yorku.eecs3311.a1.OthelloSimulation;
+
+public class MetricsTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram=new LatencyHistogram();
+		assertEquals(histogram.getPercentile(0.99),0);
+		for(long nanos=1; nanos<=1000; nanos++) histogram.record(nanos);
+		histogram.record(5_000_000_000L);
+		assertEquals(histogram.getCount(),1001);
+		assertEquals(histogram.getMax(),5_000_000_000L);
+		assertEquals(histogram.getPercentile(0),1);
+		assertEquals(histogram.getPercentile(1),5_000_000_000L);
+
+		// Within a bucket of the exact value, at most 1/8 of it
+		long median=histogram.getPercentile(0.5), p99=histogram.getPercentile(0.99);
+		assertTrue(median+"",median>=501 && median<=501*9/8);
+		assertTrue(p99+"",p99>=991 && p99<=991*9/8);
+
+		histogram.reset();
+		assertEquals(histogram.getCount(),0);
+		assertEquals(histogram.getMax(),0);
+	}
+
+	@Test
+	public void testParallel() {
+		LatencyHistogram histogram=new LatencyHistogram();
+		IntStream.range(0, 100000).parallel().forEach(i -> histogram.record(i%100));
+		assertEquals(histogram.getCount(),100000);
+		assertEquals(histogram.getMean(),49.5,1e-9);
+		assertEquals(histogram.getMax(),99);
+	}
+
+	@Test
+	public void testSimulation() {
+		Metrics.reset();
+		OthelloSimulation.simulate(100, 1);
+		if(Metrics.ENABLED) {
+			assertEquals(Metrics.getGameLatencies().getCount(),100);
+			assertTrue(Metrics.getMoves()>100*50);
+			assertTrue(Metrics.getMoveLatencies("PlayerRandom").getCount()>=Metrics.getMoves());
+		} else {
+			assertEquals("nothing is counted when off",Metrics.getMoves(),0);
+			assertEquals(Metrics.getGameLatencies().getCount(),0);
+		}
+	}
+}
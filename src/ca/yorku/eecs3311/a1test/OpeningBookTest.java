@@ -0,0 +1,87 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.Move;
+import ca.yorku.eecs3311.a1.OpeningBook;
+import ca.yorku.eecs3311.a1.OpeningBookBuilder;
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.Player;
+import ca.yorku.eecs3311.a1.PlayerBook;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+import ca.yorku.eecs3311.a1.Symmetry;
+import ca.yorku.eecs3311.a1.Tournament;
+
+public class OpeningBookTest {
+	Path path;
+	long start=Symmetry.canonicalKey(new Othello().getBoard(), OthelloBoard.P1);
+
+	@Before
+	public void setUp() throws Exception {
+		path=Files.createTempFile("book", ".bin");
+		Files.delete(path);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void testBuildOpen() throws Exception {
+		OpeningBookBuilder builder=new OpeningBookBuilder(4);
+		builder.addGames(PlayerRandom::new, PlayerRandom::new, 200, 1);
+		builder.write(path);
+		OpeningBook book=OpeningBook.open(path);
+		assertEquals(book.size(),builder.size());
+
+		// Every game starts from the same position, the 4 moves are symmetric
+		assertEquals(book.getGames(start),200);
+		OthelloBoard board=new Othello().getBoard();
+		int square=Symmetry.canonicalSquare(board.getTokens(OthelloBoard.P1), board.getTokens(OthelloBoard.P2), 2*8+4);
+		assertEquals(book.getGames(start, square),200);
+		assertTrue(book.getPoints(start, square)<=2*200);
+		assertEquals(book.getBestSquare(start, 1),square);
+		Move move=book.getBestMove(board, OthelloBoard.P1, 1);
+		assertTrue("valid opening move",new Othello().move(move.getRow(), move.getCol()));
+		assertEquals("not in the book",book.getBestSquare(start+1, 1),-1);
+		assertEquals("too few games",book.getBestSquare(start, 201),-1);
+	}
+
+	@Test
+	public void testExtend() throws Exception {
+		OpeningBookBuilder builder=new OpeningBookBuilder(4);
+		builder.addGames(PlayerRandom::new, PlayerRandom::new, 100, 1);
+		builder.write(path);
+
+		builder=new OpeningBookBuilder(4);
+		builder.add(OpeningBook.open(path));
+		builder.addGames(PlayerRandom::new, PlayerRandom::new, 50, 2);
+		builder.write(path);
+		assertEquals(OpeningBook.open(path).getGames(start),150);
+	}
+
+	@Test
+	public void testPlayerBookLargeBoard() throws Exception {
+		OpeningBookBuilder builder=new OpeningBookBuilder(4);
+		builder.addGames(PlayerRandom::new, PlayerRandom::new, 50, 1);
+		builder.write(path);
+		OpeningBook book=OpeningBook.open(path);
+
+		// A 10x10 game has no book moves, the searcher plays them all
+		Othello othello=new Othello(10);
+		Player p1=new PlayerBook(othello, OthelloBoard.P1, book, new PlayerRandom(othello, OthelloBoard.P1, 1), 1);
+		Player p2=new PlayerBook(othello, OthelloBoard.P2, book, new PlayerRandom(othello, OthelloBoard.P2, 2), 1);
+		Tournament.playGame(othello, PlayerAlphaBetaTest.checked(othello, OthelloBoard.P1, p1),
+				PlayerAlphaBetaTest.checked(othello, OthelloBoard.P2, p2));
+		assertTrue(othello.isGameOver());
+	}
+}
@@ -89,6 +89,15 @@ public class OthelloBoardTest {
 		
 	}
 
+	@Test
+	public void testOthelloBoardCopy() {
+		OthelloBoard copy=new OthelloBoard(board);
+		assertEquals("Copy matches",board.toString(),copy.toString());
+		assertTrue(copy.move(2, 2, OthelloBoard.P1));
+		assertEquals("Original unchanged",board.get(2, 2),OthelloBoard.EMPTY);
+		assertEquals("Copy moved",copy.get(2, 2),OthelloBoard.P1);
+	}
+
 	@Test
 	public void testGet() {
 		// initialized board to OthelloBoard.DIMENSION
@@ -125,6 +134,26 @@ public class OthelloBoardTest {
 		assertEquals(board.hasMove(),OthelloBoard.BOTH);
 	}
 
+	@Test
+	public void testGetLegalMoves() {
+		OthelloBoard b=new OthelloBoard(Othello.DIMENSION);
+		// P1 (X) opens at (2,4),(3,5),(4,2),(5,3)
+		long expected=(1L<<(2*8+4))|(1L<<(3*8+5))|(1L<<(4*8+2))|(1L<<(5*8+3));
+		assertEquals("Opening moves P1",b.getLegalMoves(OthelloBoard.P1),expected);
+		assertEquals("No moves for EMPTY",b.getLegalMoves(OthelloBoard.EMPTY),0L);
+		
+		// Every bit agrees with move on a copy of the board
+		for(char player: new char[] {OthelloBoard.P1, OthelloBoard.P2}) {
+			long moves=board.getLegalMoves(player);
+			for(int row=0;row<Othello.DIMENSION;row++) {
+				for(int col=0;col<Othello.DIMENSION;col++) {
+					boolean legal=(moves & (1L<<(row*8+col)))!=0;
+					assertEquals("legal move ("+row+","+col+")",new OthelloBoard(board).move(row, col, player),legal);
+				}
+			}
+		}
+	}
+
 	@Test
 	public void testMove() {
 		// Check the scenario we setup in board...
@@ -183,6 +212,90 @@ public class OthelloBoardTest {
 		
 	}
 
+	@Test
+	public void testGetFlips() {
+		String before=board.toString();
+		// X at (2,2) flips (2,3) and (3,3)
+		assertEquals(board.getFlips(2, 2, OthelloBoard.P1),(1L<<(2*8+3))|(1L<<(3*8+3)));
+		assertEquals("bad move no flips",board.getFlips(3, 5, OthelloBoard.P1),0L);
+		assertEquals("bad move spot occupied",board.getFlips(2, 3, OthelloBoard.P1),0L);
+		assertEquals("off board",board.getFlips(-1, 8, OthelloBoard.P1),0L);
+		assertTrue("board unchanged",before.equals(board.toString()));
+	}
+
+	@Test
+	public void testMakeMoveUndoMove() {
+		String before=board.toString();
+		assertEquals("bad move flips nothing",board.makeMove(3, 5, OthelloBoard.P1),0L);
+		assertEquals("bad move not remembered",board.getUndoDepth(),0);
+		
+		// X at (2,2) flips (2,3) and (3,3)
+		assertEquals(board.makeMove(2, 2, OthelloBoard.P1),(1L<<(2*8+3))|(1L<<(3*8+3)));
+		assertEquals(board.getCount(OthelloBoard.P1),7);
+		assertTrue(board.makeMove(3, 2, OthelloBoard.P2)!=0);
+		assertEquals(board.getUndoDepth(),2);
+		
+		board.undoMove();
+		board.undoMove();
+		assertEquals(board.getUndoDepth(),0);
+		assertTrue("board restored",before.equals(board.toString()));
+	}
+
+	@Test
+	public void testSetBoardClearsUndo() {
+		for(int dim : new int[] {Othello.DIMENSION, 10}) {
+			OthelloBoard b=new OthelloBoard(dim);
+			char[][] start=b.getBoard();
+			int mid=dim/2;
+			assertTrue(b.makeMove(mid-2, mid-1, OthelloBoard.P2)!=0);
+			assertTrue(b.makeMove(mid-2, mid-2, OthelloBoard.P1)!=0);
+			
+			// Back to the start, the moves on the stack led somewhere else
+			b.setBoard(start);
+			assertEquals(dim+"x"+dim+" undo cleared",b.getUndoDepth(),0);
+			String before=b.toString();
+			try {
+				b.undoMove();
+				fail(dim+"x"+dim+" nothing to undo");
+			} catch(IllegalStateException e) {
+			}
+			assertTrue(dim+"x"+dim+" board unchanged",before.equals(b.toString()));
+			
+			// The undo stack works from the new position
+			assertTrue(b.makeMove(mid-2, mid-1, OthelloBoard.P2)!=0);
+			b.undoMove();
+			assertTrue(dim+"x"+dim+" board restored",before.equals(b.toString()));
+			assertEquals(b.getHash(),new OthelloBoard(dim).getHash());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUndoMoveEmpty() {
+		board.undoMove();
+	}
+
+	@Test
+	public void testGetHash() {
+		// Same position by two different orders of moves
+		OthelloBoard b1=new OthelloBoard(Othello.DIMENSION);
+		assertTrue(b1.move(2, 4, OthelloBoard.P1));
+		assertTrue(b1.move(2, 5, OthelloBoard.P2));
+		assertTrue(b1.move(3, 5, OthelloBoard.P1));
+		OthelloBoard b2=new OthelloBoard(Othello.DIMENSION);
+		assertTrue(b2.move(3, 5, OthelloBoard.P1));
+		assertTrue(b2.move(2, 5, OthelloBoard.P2));
+		assertTrue(b2.move(2, 4, OthelloBoard.P1));
+		assertTrue(b1.toString().equals(b2.toString()));
+		assertEquals("transposition",b1.getHash(),b2.getHash());
+		assertFalse("side to move",b1.getHash(OthelloBoard.P1)==b1.getHash(OthelloBoard.P2));
+		
+		long before=board.getHash();
+		board.makeMove(2, 2, OthelloBoard.P1);
+		assertFalse("move changes hash",board.getHash()==before);
+		board.undoMove();
+		assertEquals("undo restores hash",board.getHash(),before);
+	}
+
 	@Test
 	public void testGetCount() {
 		assertEquals("counting P1",board.getCount(OthelloBoard.P1),4);
@@ -191,4 +304,68 @@ public class OthelloBoardTest {
 		assertEquals("counting P1",board.getCount(OthelloBoard.P1),7);
 		assertEquals("counting P2",board.getCount(OthelloBoard.P2),2);
 	}
+
+	@Test
+	public void testLargeBoard() {
+		// A 10x10 board does not fit a long, the same moves shifted by one square
+		OthelloBoard b=new OthelloBoard(10);
+		int[] list=new int[100];
+		assertEquals(b.getMoves(OthelloBoard.P1, list),4);
+		assertEquals(list[0],3*10+5);
+		assertTrue(b.canMove(OthelloBoard.P2));
+		assertEquals(b.getFlipCount(3, 5, OthelloBoard.P1),1);
+		assertEquals(b.getFlipCount(0, 0, OthelloBoard.P1),0);
+		long hash=b.getHash();
+		assertTrue(b.move(3, 5, OthelloBoard.P1));
+		assertFalse(b.move(3, 5, OthelloBoard.P2));
+		assertEquals(b.get(4, 5),OthelloBoard.P1);
+		assertEquals(b.getCount(OthelloBoard.P1),4);
+		assertEquals(b.getCount(OthelloBoard.EMPTY),95);
+		assertTrue(b.getHash()!=hash);
+
+		// Runs that cross word boundaries, along the bottom edge of a 16x16 board
+		b=new OthelloBoard(16);
+		char[][] grid=b.getBoard();
+		for(int col=1;col<15;col++) grid[15][col]=OthelloBoard.P2;
+		grid[15][15]=OthelloBoard.P1;
+		b.setBoard(grid);
+		assertEquals(b.getFlipCount(15, 0, OthelloBoard.P1),14);
+		assertTrue(b.move(15, 0, OthelloBoard.P1));
+		assertEquals(b.getCount(OthelloBoard.P2),2);
+		OthelloBoard copy=new OthelloBoard(b);
+		assertEquals(copy.get(15, 7),OthelloBoard.P1);
+		assertEquals(copy.getHash(),b.getHash());
+
+		try {
+			b.getLegalMoves(OthelloBoard.P1);
+			fail("no bitboard for 16x16");
+		} catch(IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testLargeBoardMakeMoveUndoMove() {
+		// Play a 16x16 game with makeMove, taking the first move each time, then
+		// undo it all
+		OthelloBoard b=new OthelloBoard(16);
+		String before=b.toString();
+		long hash=b.getHash();
+		int[] list=new int[256];
+		char player=OthelloBoard.P1;
+		int plies=0;
+		while(b.canMove(OthelloBoard.P1) || b.canMove(OthelloBoard.P2)) {
+			if(b.getMoves(player, list)>0) {
+				int flips=b.getFlipCount(list[0]/16, list[0]%16, player);
+				assertEquals(b.makeMove(list[0]/16, list[0]%16, player),flips);
+				plies++;
+			}
+			player=OthelloBoard.otherPlayer(player);
+		}
+		assertEquals(b.getUndoDepth(),plies);
+		assertEquals("bad move flips nothing",b.makeMove(0, 0, OthelloBoard.P1),0L);
+		assertEquals(b.getUndoDepth(),plies);
+		while(b.getUndoDepth()>0) b.undoMove();
+		assertTrue("board restored",before.equals(b.toString()));
+		assertEquals("hash restored",b.getHash(),hash);
+	}
 }
@@ -0,0 +1,35 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.OthelloSimulation;
+
+public class OthelloSimulationTest {
+
+	@Test
+	public void testSameResultsOnAnyNumberOfThreads() {
+		// More than one task's worth of games, so the games are split between threads
+		OthelloSimulation.Results one=OthelloSimulation.simulate(3000, 3311, 1);
+		OthelloSimulation.Results four=OthelloSimulation.simulate(3000, 3311, 4);
+		OthelloSimulation.Results common=OthelloSimulation.simulate(3000, 3311);
+		assertEquals(one.getGames(),3000);
+		assertEquals(four.p1Wins,one.p1Wins);
+		assertEquals(four.p2Wins,one.p2Wins);
+		assertEquals(four.draws,one.draws);
+		assertEquals(common.p1Wins,one.p1Wins);
+		assertEquals(common.p2Wins,one.p2Wins);
+		assertEquals(common.draws,one.draws);
+
+		OthelloSimulation.Results other=OthelloSimulation.simulate(3000, 3312, 4);
+		assertTrue("another master seed, other games",other.p1Wins!=one.p1Wins || other.p2Wins!=one.p2Wins);
+	}
+
+	@Test
+	public void testPlayGame() {
+		for(long seed=0; seed<20; seed++) {
+			assertEquals(OthelloSimulation.playGame(seed),OthelloSimulation.playGame(seed));
+		}
+	}
+}
@@ -2,6 +2,8 @@ package ca.yorku.eecs3311.a1test;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+
 import org.junit.Before;
 import org.junit.Before;
 import org.junit.Test;
@@ -9,6 +11,10 @@ import org.junit.Test;
 import ca.yorku.eecs3311.a1.Move;
 import ca.yorku.eecs3311.a1.Othello;
 import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.Player;
+import ca.yorku.eecs3311.a1.PlayerGreedy;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+import ca.yorku.eecs3311.a1.Tournament;
 
 public class OthelloTest {
 	Othello othello;
@@ -87,6 +93,44 @@ public class OthelloTest {
 		assertEquals(othello.getCount(OthelloBoard.P2), 2);
 	}
 
+	@Test
+	public void testGetLegalMoves() {
+		assertEquals(othello.getLegalMoves(OthelloBoard.P1), othello.getBoard().getLegalMoves(OthelloBoard.P1));
+		assertEquals(othello.getLegalMoves(OthelloBoard.P2), othello.getBoard().getLegalMoves(OthelloBoard.P2));
+		assertFalse("failed move keeps the position", othello.move(0, 0));
+		assertEquals(othello.getLegalMoves(OthelloBoard.P1), othello.getBoard().getLegalMoves(OthelloBoard.P1));
+		othello.move(2, 2);
+		// The cached moves follow the new position
+		assertEquals(othello.getLegalMoves(OthelloBoard.P1), othello.getBoard().getLegalMoves(OthelloBoard.P1));
+		assertEquals(othello.getLegalMoves(OthelloBoard.P2), othello.getBoard().getLegalMoves(OthelloBoard.P2));
+	}
+
+	@Test
+	public void testBoardChanged() {
+		// Changes made straight to the board are seen by the cached moves too
+		long p1Moves=othello.getLegalMoves(OthelloBoard.P1);
+		assertTrue(othello.getBoard().move(2, 2, OthelloBoard.P1));
+		assertFalse(othello.getLegalMoves(OthelloBoard.P1)==p1Moves);
+		assertEquals(othello.getLegalMoves(OthelloBoard.P1), othello.getBoard().getLegalMoves(OthelloBoard.P1));
+		assertEquals(othello.getLegalMoves(OthelloBoard.P2), othello.getBoard().getLegalMoves(OthelloBoard.P2));
+
+		assertFalse(othello.isGameOver());
+		char[][] board=othello.getBoard().getBoard();
+		for(char[] row : board) Arrays.fill(row, OthelloBoard.P2);
+		board[0][0]=OthelloBoard.EMPTY;
+		othello.getBoard().setBoard(board);
+		assertTrue("O wiped out X",othello.isGameOver());
+		assertEquals(othello.getWinner(),OthelloBoard.P2);
+
+		Othello large=new Othello(12);
+		assertTrue(large.canMove(OthelloBoard.P1));
+		board=large.getBoard().getBoard();
+		for(char[] row : board) Arrays.fill(row, OthelloBoard.P1);
+		large.getBoard().setBoard(board);
+		assertFalse(large.canMove(OthelloBoard.P1));
+		assertTrue(large.isGameOver());
+	}
+
 	@Test
 	public void testGetWinner() {
 		Othello o=new Othello();
@@ -107,5 +151,19 @@ public class OthelloTest {
 		assertEquals("After winner", o.isGameOver(), true);
 	}
 
+	@Test
+	public void testLargeGame() {
+		// Every player but the searchers plays on any board size
+		for(int dim: new int[] { 6, 12, 16 }) {
+			Othello o=new Othello(dim);
+			Player p1=new PlayerRandom(o, OthelloBoard.P1, dim), p2=new PlayerGreedy(o, OthelloBoard.P2);
+			Tournament.playGame(o, p1, p2);
+			assertTrue(o.isGameOver());
+			assertEquals(o.getBoard().hasMove(),OthelloBoard.EMPTY);
+			assertEquals(o.getCount(OthelloBoard.P1)+o.getCount(OthelloBoard.P2)+o.getCount(OthelloBoard.EMPTY),dim*dim);
+			assertTrue(o.getCount(OthelloBoard.P1)+o.getCount(OthelloBoard.P2)>4);
+		}
+	}
+
 }
 
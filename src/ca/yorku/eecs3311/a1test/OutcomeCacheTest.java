@@ -0,0 +1,97 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.Metrics;
+import ca.yorku.eecs3311.a1.Move;
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.OutcomeCache;
+import ca.yorku.eecs3311.a1.Player;
+import ca.yorku.eecs3311.a1.PlayerGreedy;
+import ca.yorku.eecs3311.a1.Tournament;
+
+public class OutcomeCacheTest {
+
+	@Test
+	public void testGetPut() {
+		OutcomeCache cache=new OutcomeCache(1000);
+		assertEquals(cache.getCapacity(),1024);
+		assertEquals(cache.get(1, 3, 4, OthelloBoard.P1),OutcomeCache.UNKNOWN);
+		cache.put(1, 3, 4, OthelloBoard.P1, OthelloBoard.P2);
+		cache.put(1, 3, 4, OthelloBoard.P2, OthelloBoard.EMPTY);
+		assertEquals(cache.get(1, 3, 4, OthelloBoard.P1),OthelloBoard.P2);
+		assertEquals("other player to move",cache.get(1, 3, 4, OthelloBoard.P2),OthelloBoard.EMPTY);
+		assertEquals("same hash, other tokens",cache.get(1, 3, 5, OthelloBoard.P1),OutcomeCache.UNKNOWN);
+		assertEquals(cache.getHits(),2);
+		assertEquals(cache.getMisses(),2);
+	}
+
+	@Test
+	public void testClock() {
+		OutcomeCache cache=new OutcomeCache(8);                               // One set of 8
+		for(int i=0; i<8; i++) cache.put(i, i, 0, OthelloBoard.P1, OthelloBoard.P1);
+		assertEquals(cache.get(0, 0, 0, OthelloBoard.P1),OthelloBoard.P1);
+		cache.put(8, 8, 0, OthelloBoard.P1, OthelloBoard.P2);
+		assertEquals("referenced, kept",cache.get(0, 0, 0, OthelloBoard.P1),OthelloBoard.P1);
+		assertEquals("first unreferenced, evicted",cache.get(1, 1, 0, OthelloBoard.P1),OutcomeCache.UNKNOWN);
+		assertEquals(cache.get(8, 8, 0, OthelloBoard.P1),OthelloBoard.P2);
+		for(int i=2; i<8; i++) assertEquals(cache.get(i, i, 0, OthelloBoard.P1),OthelloBoard.P1);
+	}
+
+	@Test
+	public void testTournament() {
+		Tournament tournament=new Tournament();
+		tournament.register("Greedy", (othello, player, seed) -> new PlayerGreedy(othello, player));
+		tournament.register("Greedy2", (othello, player, seed) -> new PlayerGreedy(othello, player));
+		tournament.setOpeningPlies(4);
+		Tournament.Standings uncached=tournament.roundRobin(2000, 1);
+
+		// The same games, many cut short
+		tournament.setCacheCapacity(1<<16);
+		Metrics.reset();
+		Tournament.Standings cached=tournament.roundRobin(2000, 1);
+		if(Metrics.ENABLED) assertEquals("games cut short are counted",Metrics.getGameLatencies().getCount(),2000);
+		assertEquals(cached.getWins("Greedy", "Greedy2"),uncached.getWins("Greedy", "Greedy2"));
+		assertEquals(cached.getWins("Greedy2", "Greedy"),uncached.getWins("Greedy2", "Greedy"));
+		assertEquals(cached.getDraws("Greedy", "Greedy2"),uncached.getDraws("Greedy", "Greedy2"));
+		OutcomeCache cache=tournament.getCache("Greedy", "Greedy2");
+		assertTrue(cache.getHits()+" hits",cache.getHits()>500);      // A quarter of the 2000 games, at least
+	}
+
+	@Test
+	public void testInvalidMove() {
+		// A player that first offers an occupied square is asked again, the
+		// game is that of the player that does not
+		Othello clean=new Othello();
+		char winner=Tournament.playGame(clean, new PlayerGreedy(clean, OthelloBoard.P1),
+				new PlayerGreedy(clean, OthelloBoard.P2));
+
+		OutcomeCache cache=new OutcomeCache(1<<10);
+		Othello game=new Othello();
+		PlayerGreedy greedy=new PlayerGreedy(game, OthelloBoard.P1);
+		boolean[] fumbled={false};
+		Player fumbling=new Player() {
+			@Override
+			public Move getMove() {
+				fumbled[0]=!fumbled[0];
+				return fumbled[0] ? new Move(3, 3) : greedy.getMove();
+			}
+
+			@Override
+			public boolean isDeterministic() {
+				return true;
+			}
+		};
+		assertEquals(Tournament.playGame(game, fumbling, new PlayerGreedy(game, OthelloBoard.P2), cache),winner);
+		assertTrue(game.getBoardString().equals(clean.getBoardString()));
+
+		// The cache knows the game from its first position
+		Othello again=new Othello();
+		assertEquals(Tournament.playGame(again, new PlayerGreedy(again, OthelloBoard.P1),
+				new PlayerGreedy(again, OthelloBoard.P2), cache),winner);
+		assertEquals(cache.getHits(),1);
+	}
+}
@@ -0,0 +1,118 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.PatternEvaluator;
+import ca.yorku.eecs3311.a1.PatternTrainer;
+import ca.yorku.eecs3311.a1.PlayerAlphaBeta;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+
+public class PatternEvaluatorTest {
+	PatternEvaluator evaluator;
+
+	@Before
+	public void setUp() throws Exception {
+		PatternTrainer trainer=new PatternTrainer();
+		trainer.addGames(PlayerRandom::new, 50, 1);
+		assertTrue(trainer.size()>50*40);
+		trainer.train(5, false);
+		evaluator=trainer.toEvaluator();
+	}
+
+	@Test
+	public void testFeatures() {
+		// Indices kept up to date move by move score the same as from scratch
+		SplittableRandom random=new SplittableRandom(2);
+		OthelloBoard board=new OthelloBoard(8);
+		PatternEvaluator.Features features=evaluator.newFeatures(board);
+		char player=OthelloBoard.P1;
+		int[] squares=new int[60];
+		long[] flips=new long[60];
+		char[] players=new char[60];
+		int moves=0;
+		while(board.hasMove()!=' ') {
+			long legal=board.getLegalMoves(player);
+			if(legal==0) {
+				player=OthelloBoard.otherPlayer(player);
+				continue;
+			}
+			for(int n=random.nextInt(Long.bitCount(legal));n>0;n--) legal&=legal-1;
+			int square=Long.numberOfTrailingZeros(legal);
+			long flipped=board.makeMove(OthelloBoard.rowOf(square), OthelloBoard.colOf(square), player);
+			features.play(square, flipped, player);
+			squares[moves]=square;
+			flips[moves]=flipped;
+			players[moves++]=player;
+			player=OthelloBoard.otherPlayer(player);
+			long own=board.getTokens(player), opp=board.getTokens(OthelloBoard.otherPlayer(player));
+			assertEquals(features.evaluate(player),evaluator.evaluate(own, opp));
+			assertEquals(features.evaluate(OthelloBoard.otherPlayer(player)),evaluator.evaluate(opp, own));
+		}
+		// and after taking the moves back
+		while(moves>0) {
+			moves--;
+			board.undoMove();
+			features.undo(squares[moves], flips[moves], players[moves]);
+			long own=board.getTokens(players[moves]), opp=board.getTokens(OthelloBoard.otherPlayer(players[moves]));
+			assertEquals(features.evaluate(players[moves]),evaluator.evaluate(own, opp));
+		}
+		assertEquals(board.getUndoDepth(),0);
+	}
+
+	@Test
+	public void testSaveLoad() throws Exception {
+		Path path=Files.createTempFile("weights", ".bin");
+		try {
+			evaluator.save(path);
+			PatternEvaluator loaded=PatternEvaluator.load(path);
+			OthelloBoard board=new OthelloBoard(8);
+			board.move(2, 4, OthelloBoard.P1);
+			long own=board.getTokens(OthelloBoard.P2), opp=board.getTokens(OthelloBoard.P1);
+			assertEquals(loaded.evaluate(own, opp),evaluator.evaluate(own, opp));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testSaturatedWeights() throws Exception {
+		// Every weight at Short.MIN_VALUE scores positions far below -WIN
+		Path path=Files.createTempFile("weights", ".bin");
+		PatternEvaluator saturated;
+		try {
+			evaluator.save(path);
+			ByteBuffer bytes=ByteBuffer.wrap(Files.readAllBytes(path));
+			for(int i=3*Integer.BYTES; i<bytes.capacity(); i+=Short.BYTES) bytes.putShort(i, Short.MIN_VALUE);
+			Files.write(path, bytes.array());
+			saturated=PatternEvaluator.load(path);
+		} finally {
+			Files.delete(path);
+		}
+		OthelloBoard board=new OthelloBoard(8);
+		assertTrue(saturated.evaluate(board.getTokens(OthelloBoard.P1), board.getTokens(OthelloBoard.P2))<-1000000);
+
+		// The search still tells a won game from a heuristic score: (2,4) turns over every O
+		Othello othello=PlayerAlphaBetaTest.position(
+				"........",
+				"........",
+				"........",
+				"...XO...",
+				"....O...",
+				"....X...",
+				"........",
+				"........");
+		PlayerAlphaBeta search=new PlayerAlphaBeta(othello, OthelloBoard.P1, 10000, 200000, null, saturated);
+		search.setMaxDepth(1);                                               // Other moves score O's heuristic, negated
+		assertEquals(search.getMove().toString(),"(2,4)");
+	}
+}
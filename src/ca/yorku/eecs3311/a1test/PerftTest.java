@@ -0,0 +1,20 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.Perft;
+
+public class PerftTest {
+
+	@Test
+	public void testPerft() {
+		OthelloBoard board=new OthelloBoard(8);
+		for(int depth=0;depth<=9;depth++) {
+			assertEquals("depth "+depth,Perft.perft(board, OthelloBoard.P1, depth),Perft.REFERENCE[depth]);
+		}
+		assertEquals("board unchanged",board.getCount(OthelloBoard.EMPTY),60);
+	}
+}
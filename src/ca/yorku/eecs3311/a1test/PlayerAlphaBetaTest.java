@@ -0,0 +1,189 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.Move;
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.Player;
+import ca.yorku.eecs3311.a1.PlayerAlphaBeta;
+import ca.yorku.eecs3311.a1.PlayerGreedy;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+import ca.yorku.eecs3311.a1.Tournament;
+import ca.yorku.eecs3311.a1.TranspositionTable;
+
+public class PlayerAlphaBetaTest {
+
+	/**
+	 * @return player, failing as soon as it picks a move that is not valid, or
+	 *         passes with a valid move left
+	 */
+	static Player checked(Othello othello, char side, Player player) {
+		return () -> {
+			boolean canMove=othello.canMove(side);
+			Move move=player.getMove();
+			if(move==null) {
+				assertFalse("passed with a move left",canMove);
+			} else {
+				assertTrue(move+" is not valid",othello.getBoard().getFlipCount(move.getRow(), move.getCol(), side)>0);
+			}
+			return move;
+		};
+	}
+
+	/**
+	 * @param rows the board, 'X', 'O' or ' ' (or '.') per square
+	 * @return a game in that position, rows[0] is row 0
+	 */
+	static Othello position(String... rows) {
+		Othello othello=new Othello();
+		char[][] board=new char[rows.length][];
+		for(int row=0; row<rows.length; row++) board[row]=rows[row].replace('.', OthelloBoard.EMPTY).toCharArray();
+		othello.getBoard().setBoard(board);
+		return othello;
+	}
+
+	@Test
+	public void testAlwaysValid() {
+		for(long seed=0; seed<6; seed++) {
+			Othello othello=new Othello();
+			Player search=new PlayerAlphaBeta(othello, OthelloBoard.P1, 10000, 2000, new TranspositionTable(1));
+			Player random=new PlayerRandom(othello, OthelloBoard.P2, seed);
+			if(seed%2==1) {                                                  // Swap colours
+				search=new PlayerAlphaBeta(othello, OthelloBoard.P2, 10000, 2000);
+				random=new PlayerRandom(othello, OthelloBoard.P1, seed);
+			}
+			char searchSide=seed%2==1 ? OthelloBoard.P2 : OthelloBoard.P1;
+			Player p1=checked(othello, OthelloBoard.P1, searchSide==OthelloBoard.P1 ? search : random);
+			Player p2=checked(othello, OthelloBoard.P2, searchSide==OthelloBoard.P2 ? search : random);
+			Tournament.playGame(othello, p1, p2);
+			assertTrue(othello.isGameOver());
+		}
+	}
+
+	@Test
+	public void testTakesCorner() {
+		// From a Random vs Random game: X can take the corner (0,0), Greedy
+		// prefers (4,1), which flips more
+		Othello othello=position(
+				"........",
+				"O..XX...",
+				"XOXXXOX.",
+				"..OXOOO.",
+				"..OOOOX.",
+				".O..OX.X",
+				"........",
+				"........");
+		assertEquals(new PlayerGreedy(othello, OthelloBoard.P1).getMove().toString(),"(4,1)");
+		PlayerAlphaBeta search=new PlayerAlphaBeta(othello, OthelloBoard.P1, 10000, 200000);
+		assertEquals(search.getMove().toString(),"(0,0)");
+		assertTrue(search.getDepth()>=3);
+	}
+
+	@Test
+	public void testTakesWin() {
+		// (2,4) turns over every O, winning at once; (3,5) and (5,5) do not
+		Othello othello=position(
+				"........",
+				"........",
+				"........",
+				"...XO...",
+				"....O...",
+				"....X...",
+				"........",
+				"........");
+		PlayerAlphaBeta search=new PlayerAlphaBeta(othello, OthelloBoard.P1, 10000, 200000);
+		assertEquals(search.getMove().toString(),"(2,4)");
+	}
+
+	@Test
+	public void testSameNodeBudgetSameMove() {
+		Othello othello=new Othello();
+		Tournament.playOpening(othello, new PlayerRandom(othello, OthelloBoard.P1, 3),
+				new PlayerRandom(othello, OthelloBoard.P2, 4), 10);
+		char side=othello.getWhosTurn();
+		PlayerAlphaBeta first=new PlayerAlphaBeta(othello, side, 60000, 50000);
+		PlayerAlphaBeta second=new PlayerAlphaBeta(othello, side, 60000, 50000);
+		assertEquals(second.getMove().toString(),first.getMove().toString());
+		assertEquals(second.getNodes(),first.getNodes());
+		assertEquals(second.getDepth(),first.getDepth());
+		assertTrue(first.getNodes()<=50000);
+	}
+
+	@Test
+	public void testHugeTimeBudget() {
+		// A time budget too big to count in nanoseconds leaves the node budget in charge
+		for(long millis : new long[] { Long.MAX_VALUE, 10000000000000L }) {
+			Othello othello=new Othello();
+			PlayerAlphaBeta search=new PlayerAlphaBeta(othello, OthelloBoard.P1, millis, 200000);
+			search.getMove();
+			assertEquals(search.getNodes(),200000);
+			assertTrue(search.getDepth()>5);
+		}
+	}
+
+	@Test
+	public void testEndgameBudget() {
+		// The EndgameSolver keeps to the node budget too, and iterative
+		// deepening still finds a move
+		Othello othello=new Othello();
+		Player random1=new PlayerRandom(othello, OthelloBoard.P1, 5), random2=new PlayerRandom(othello, OthelloBoard.P2, 6);
+		while(othello.getBoard().getCount(OthelloBoard.EMPTY)>PlayerAlphaBeta.SOLVE_EMPTIES) {
+			Tournament.playOpening(othello, random1, random2, 1);
+		}
+		char side=othello.getWhosTurn();
+		assertEquals(othello.getBoard().getCount(OthelloBoard.EMPTY),12);
+		assertTrue(othello.canMove(side));
+		PlayerAlphaBeta search=new PlayerAlphaBeta(othello, side, 60000, 100);
+		Move move=checked(othello, side, search).getMove();
+		assertNotNull(move);
+		assertTrue(search.getNodes()+" nodes",search.getNodes()<=100);
+
+		// With budget enough, the solver plays
+		search=new PlayerAlphaBeta(othello, side, 60000);
+		search.getMove();
+		assertEquals(search.getDepth(),12);
+	}
+
+	@Test
+	public void testSameMoveWithTable() {
+		for(long seed=0; seed<8; seed++) {
+			Othello othello=new Othello();
+			Tournament.playOpening(othello, new PlayerRandom(othello, OthelloBoard.P1, seed),
+					new PlayerRandom(othello, OthelloBoard.P2, seed+1), 8+2*(int) seed);
+			char side=othello.getWhosTurn();
+			if(othello.getLegalMoves(side)==0) continue;
+			PlayerAlphaBeta plain=new PlayerAlphaBeta(othello, side, 60000);
+			PlayerAlphaBeta cached=new PlayerAlphaBeta(othello, side, 60000, Long.MAX_VALUE, new TranspositionTable(4));
+			plain.setMaxDepth(5);
+			cached.setMaxDepth(5);
+			assertEquals("seed "+seed,cached.getMove().toString(),plain.getMove().toString());
+			assertEquals(cached.getDepth(),5);
+			assertTrue("fewer nodes with the table",cached.getNodes()<=plain.getNodes());
+		}
+	}
+
+	@Test
+	public void testLargeBoard() {
+		// 10x10 has no bitboard, the search walks move lists instead
+		for(long seed=0; seed<2; seed++) {
+			Othello othello=new Othello(10);
+			char searchSide=seed%2==0 ? OthelloBoard.P1 : OthelloBoard.P2;
+			Player search=new PlayerAlphaBeta(othello, searchSide, 10000, 2000, new TranspositionTable(1));
+			Player random=new PlayerRandom(othello, OthelloBoard.otherPlayer(searchSide), seed);
+			Player p1=checked(othello, OthelloBoard.P1, searchSide==OthelloBoard.P1 ? search : random);
+			Player p2=checked(othello, OthelloBoard.P2, searchSide==OthelloBoard.P2 ? search : random);
+			Tournament.playGame(othello, p1, p2);
+			assertTrue(othello.isGameOver());
+			assertEquals("seed "+seed,othello.getWinner(),searchSide);
+		}
+
+		Othello othello=new Othello(10);
+		PlayerAlphaBeta first=new PlayerAlphaBeta(othello, OthelloBoard.P1, 60000, 5000);
+		PlayerAlphaBeta second=new PlayerAlphaBeta(othello, OthelloBoard.P1, 60000, 5000);
+		assertEquals(second.getMove().toString(),first.getMove().toString());
+		assertEquals(second.getNodes(),first.getNodes());
+	}
+}
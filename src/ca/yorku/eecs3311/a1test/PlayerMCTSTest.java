@@ -0,0 +1,88 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.Move;
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.Player;
+import ca.yorku.eecs3311.a1.PlayerMCTS;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+import ca.yorku.eecs3311.a1.Tournament;
+
+public class PlayerMCTSTest {
+
+	@Test
+	public void testSameMovesOnAnyNumberOfThreads() throws Exception {
+		for(long seed=0; seed<4; seed++) {
+			Othello othello=new Othello();
+			Tournament.playOpening(othello, new PlayerRandom(othello, OthelloBoard.P1, seed),
+					new PlayerRandom(othello, OthelloBoard.P2, seed+1), 12);
+			char side=othello.getWhosTurn();
+			if(othello.getLegalMoves(side)==0) continue;
+
+			PlayerMCTS common=new PlayerMCTS(othello, side, 60000, 2001, 4, seed);
+			Move commonMove=common.getMove();                                // In the common pool
+			assertEquals(common.getPlayouts(),2001);
+
+			PlayerMCTS single=new PlayerMCTS(othello, side, 60000, 2001, 4, seed);
+			ForkJoinPool pool=new ForkJoinPool(1);
+			try {
+				Move singleMove=pool.submit(single::getMove).get();          // The trees one after another
+				assertEquals("seed "+seed,singleMove.toString(),commonMove.toString());
+			} finally {
+				pool.shutdown();
+			}
+			assertEquals(single.getPlayouts(),2001);
+		}
+	}
+
+	@Test
+	public void testHugeTimeBudget() {
+		// A time budget too big to count in nanoseconds leaves the playout budget in charge
+		for(long millis : new long[] { Long.MAX_VALUE, 10000000000000L }) {
+			PlayerMCTS mcts=new PlayerMCTS(new Othello(), OthelloBoard.P1, millis, 2000, 1, 1);
+			assertNotNull(mcts.getMove());
+			assertEquals(mcts.getPlayouts(),2000);
+		}
+	}
+
+	@Test
+	public void testWholeGame() {
+		Othello othello=new Othello();
+		Player mcts=new PlayerMCTS(othello, OthelloBoard.P1, 60000, 200, 2, 7);
+		Player random=new PlayerRandom(othello, OthelloBoard.P2, 7);
+		Tournament.playGame(othello, PlayerAlphaBetaTest.checked(othello, OthelloBoard.P1, mcts),
+				PlayerAlphaBetaTest.checked(othello, OthelloBoard.P2, random));
+		assertTrue(othello.isGameOver());
+	}
+
+	@Test
+	public void testLargeBoard() throws Exception {
+		Othello othello=new Othello(10);
+		Tournament.playOpening(othello, new PlayerRandom(othello, OthelloBoard.P1, 1),
+				new PlayerRandom(othello, OthelloBoard.P2, 2), 10);
+		char side=othello.getWhosTurn();
+		PlayerMCTS common=new PlayerMCTS(othello, side, 60000, 501, 4, 1);
+		Move commonMove=common.getMove();
+		assertEquals(common.getPlayouts(),501);
+		PlayerMCTS single=new PlayerMCTS(othello, side, 60000, 501, 4, 1);
+		ForkJoinPool pool=new ForkJoinPool(1);
+		try {
+			assertEquals(pool.submit(single::getMove).get().toString(),commonMove.toString());
+		} finally {
+			pool.shutdown();
+		}
+
+		othello=new Othello(10);
+		Player mcts=new PlayerMCTS(othello, OthelloBoard.P1, 60000, 100, 2, 7);
+		Player random=new PlayerRandom(othello, OthelloBoard.P2, 7);
+		Tournament.playGame(othello, PlayerAlphaBetaTest.checked(othello, OthelloBoard.P1, mcts),
+				PlayerAlphaBetaTest.checked(othello, OthelloBoard.P2, random));
+		assertTrue(othello.isGameOver());
+	}
+}
@@ -0,0 +1,62 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.Statistics;
+
+public class StatisticsTest {
+
+	@Test
+	public void testExactPValue() {
+		// 8-2 of 10: k<=2 or k>=8 shuffled wins, 2*(1+10+45)/2^10
+		assertEquals(Statistics.exactPValue(10, 8, 2),112/1024.0,1e-12);
+		assertEquals(Statistics.exactPValue(10, 10, 0),2/1024.0,1e-12);
+		// 15-5 of 20: 2*(1+20+190+1140+4845+15504)/2^20
+		assertEquals(Statistics.exactPValue(20, 15, 5),43400/1048576.0,1e-12);
+		// Draws are shuffled too, 8-2 of 12 is k<=3 or k>=9: 2*(1+12+66+220)/2^12
+		assertEquals(Statistics.exactPValue(12, 8, 2),598/4096.0,1e-12);
+
+		assertEquals("symmetric",Statistics.exactPValue(20, 5, 15),Statistics.exactPValue(20, 15, 5),0);
+		assertEquals("even split",Statistics.exactPValue(20, 10, 10),1.0,1e-12);
+		assertEquals("all draws",Statistics.exactPValue(20, 0, 0),1.0,1e-12);
+		assertEquals("no games",Statistics.exactPValue(0, 0, 0),1.0,0);
+	}
+
+	@Test
+	public void testWilsonInterval() {
+		// Newcombe, Statistics in Medicine 17 (1998), Table I, method 3
+		double[] interval=Statistics.wilsonInterval(81, 263, Statistics.Z_95);
+		assertEquals(interval[0],0.2553,5e-5);
+		assertEquals(interval[1],0.3662,5e-5);
+		interval=Statistics.wilsonInterval(15, 148, Statistics.Z_95);
+		assertEquals(interval[0],0.0624,5e-5);
+		assertEquals(interval[1],0.1605,5e-5);
+		interval=Statistics.wilsonInterval(0, 20, Statistics.Z_95);
+		assertEquals(interval[0],0.0,0);
+		assertEquals(interval[1],0.1611,5e-5);
+		interval=Statistics.wilsonInterval(1, 29, Statistics.Z_95);
+		assertEquals(interval[0],0.0061,5e-5);
+		assertEquals(interval[1],0.1718,5e-5);
+
+		interval=Statistics.wilsonInterval(0, 0, Statistics.Z_95);
+		assertEquals(interval[0],0.0,0);
+		assertEquals(interval[1],1.0,0);
+	}
+
+	@Test
+	public void testCountExtremeShuffles() {
+		int resamples=20000;
+		int extreme=Statistics.countExtremeShuffles(1000, 520, 480, resamples, 7);
+		assertEquals("same seed, same count",Statistics.countExtremeShuffles(1000, 520, 480, resamples, 7),extreme);
+
+		// The exact p-value, about 0.2174, is well inside the interval of the estimate
+		double exact=Statistics.exactPValue(1000, 520, 480);
+		double[] interval=Statistics.wilsonInterval(extreme, resamples, Statistics.Z_95);
+		assertTrue(exact+" in ["+interval[0]+", "+interval[1]+"]",interval[0]<=exact && exact<=interval[1]);
+		assertEquals((double) extreme/resamples,exact,0.01);
+
+		assertEquals("every shuffle is as extreme as 0",Statistics.countExtremeShuffles(1000, 500, 500, 100, 7),100);
+	}
+}
@@ -0,0 +1,62 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.Othello;
+import ca.yorku.eecs3311.a1.OthelloBoard;
+import ca.yorku.eecs3311.a1.Symmetry;
+
+public class SymmetryTest {
+
+	@Test
+	public void testTransform() {
+		SplittableRandom random=new SplittableRandom(1);
+		for(int t=0;t<Symmetry.COUNT;t++) {
+			for(int square=0;square<64;square++) {
+				int moved=Symmetry.transformSquare(t, square);
+				assertEquals(Symmetry.transform(t, 1L<<square),1L<<moved);
+				assertEquals(Symmetry.transformSquare(Symmetry.inverse(t), moved),square);
+			}
+			long bits=random.nextLong();
+			assertEquals(Symmetry.transform(Symmetry.inverse(t), Symmetry.transform(t, bits)),bits);
+			assertEquals(Long.bitCount(Symmetry.transform(t, bits)),Long.bitCount(bits));
+		}
+		// The symmetries are all different
+		for(int t=0;t<Symmetry.COUNT;t++) {
+			for(int u=t+1;u<Symmetry.COUNT;u++) {
+				assertTrue(Symmetry.transform(t, 0x0000000000000107L)!=Symmetry.transform(u, 0x0000000000000107L));
+			}
+		}
+	}
+
+	@Test
+	public void testCanonicalKey() {
+		Othello o=new Othello();
+		o.move(2, 4);
+		o.move(2, 3);
+		OthelloBoard b=o.getBoard();
+		long p1=b.getTokens(OthelloBoard.P1), p2=b.getTokens(OthelloBoard.P2);
+		long key=Symmetry.canonicalKey(p1, p2, OthelloBoard.P1);
+		for(int t=0;t<Symmetry.COUNT;t++) {
+			assertEquals(Symmetry.canonicalKey(Symmetry.transform(t, p1), Symmetry.transform(t, p2), OthelloBoard.P1),key);
+		}
+		assertTrue("other player to move",Symmetry.canonicalKey(p1, p2, OthelloBoard.P2)!=key);
+		
+		// The 4 opening moves lead to symmetric positions
+		long first=0;
+		int[][] moves= {{2,4},{3,5},{4,2},{5,3}};
+		for(int[] move: moves) {
+			OthelloBoard board=new OthelloBoard(8);
+			board.move(move[0], move[1], OthelloBoard.P1);
+			long k=Symmetry.canonicalKey(board, OthelloBoard.P2);
+			if(first==0) first=k;
+			assertEquals(k,first);
+			assertEquals(Symmetry.canonicalSquare(0x0000001008000000L, 0x0000000810000000L, move[0]*8+move[1]),
+					Symmetry.canonicalSquare(0x0000001008000000L, 0x0000000810000000L, 2*8+4));
+		}
+	}
+}
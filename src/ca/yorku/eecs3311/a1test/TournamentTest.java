@@ -0,0 +1,82 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.PlayerGreedy;
+import ca.yorku.eecs3311.a1.PlayerRandom;
+import ca.yorku.eecs3311.a1.Tournament;
+
+public class TournamentTest {
+	Tournament tournament;
+	String[] names = { "Random", "Greedy", "Random2" };
+
+	@Before
+	public void setUp() throws Exception {
+		tournament=new Tournament();
+		tournament.register("Random", PlayerRandom::new);
+		tournament.register("Greedy", (othello, player, seed) -> new PlayerGreedy(othello, player));
+		tournament.register("Random2", PlayerRandom::new);
+	}
+
+	@Test
+	public void testRoundRobin() {
+		Tournament.Standings standings=tournament.roundRobin(1000, 5);
+		assertEquals(standings.getGames(),3*1000);
+		for(String a : names) {
+			for(String b : names) {
+				if(a.equals(b)) continue;
+				assertEquals(a+" vs "+b,standings.getWins(a, b),standings.getLosses(b, a));
+				assertEquals(a+" vs "+b,standings.getDraws(a, b),standings.getDraws(b, a));
+				assertEquals(standings.getWins(a, b)+standings.getDraws(a, b)+standings.getLosses(a, b),1000);
+			}
+		}
+		assertTrue(standings.toString(),standings.getWins("Greedy", "Random")>standings.getLosses("Greedy", "Random"));
+
+		double[] elo=standings.getElo();
+		assertTrue("Greedy rated above both Randoms",elo[1]>elo[0] && elo[1]>elo[2]);
+		assertEquals("ratings average 0",elo[0]+elo[1]+elo[2],0,1e-6);
+		assertEquals("Randoms rated about the same",elo[0],elo[2],50);
+
+		// The same master seed plays the same games
+		Tournament.Standings again=tournament.roundRobin(1000, 5);
+		for(String a : names) {
+			for(String b : names) {
+				assertEquals(again.getWins(a, b),standings.getWins(a, b));
+				assertEquals(again.getDraws(a, b),standings.getDraws(a, b));
+			}
+		}
+		for(int a=0; a<names.length; a++) assertEquals(again.getElo()[a],elo[a],0);
+	}
+
+	@Test
+	public void testGauntlet() {
+		Tournament.Standings standings=tournament.gauntlet("Greedy", 500, 9);
+		assertEquals(standings.getGames(),2*500);
+		assertEquals("Randoms do not meet",standings.getWins("Random", "Random2")+standings.getDraws("Random", "Random2")
+				+standings.getLosses("Random", "Random2"),0);
+		assertEquals(standings.getWins("Greedy", "Random2")+standings.getDraws("Greedy", "Random2")
+				+standings.getLosses("Greedy", "Random2"),500);
+		try {
+			tournament.gauntlet("Nobody", 10, 9);
+			fail("not registered");
+		} catch(IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testColoursSwap() {
+		// Greedy vs Greedy plays one game per colour order, each pairing plays it
+		// as often with either strategy as P1
+		Tournament greedy=new Tournament();
+		greedy.register("Greedy", (othello, player, seed) -> new PlayerGreedy(othello, player));
+		greedy.register("Greedy2", (othello, player, seed) -> new PlayerGreedy(othello, player));
+		Tournament.Standings standings=greedy.roundRobin(10, 1);
+		assertEquals(standings.getWins("Greedy", "Greedy2"),standings.getWins("Greedy2", "Greedy"));
+		assertTrue(standings.getWins("Greedy", "Greedy2")==5 || standings.getDraws("Greedy", "Greedy2")==10);
+		double[] elo=standings.getElo();
+		assertEquals(elo[0],elo[1],1e-9);
+	}
+}
@@ -0,0 +1,59 @@
+package ca.yorku.eecs3311.a1test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.yorku.eecs3311.a1.TranspositionTable;
+
+public class TranspositionTableTest {
+	TranspositionTable table;
+
+	@Before
+	public void setUp() throws Exception {
+		table=new TranspositionTable(1);
+	}
+
+	@Test
+	public void testProbeStore() {
+		assertEquals("empty table",table.probe(12345L),0L);
+		table.store(12345L, 7, -42, TranspositionTable.LOWER, 63);
+		long entry=table.probe(12345L);
+		assertTrue(entry!=0);
+		assertEquals(TranspositionTable.getScore(entry),-42);
+		assertEquals(TranspositionTable.getDepth(entry),7);
+		assertEquals(TranspositionTable.getFlag(entry),TranspositionTable.LOWER);
+		assertEquals(TranspositionTable.getBestSquare(entry),63);
+		assertEquals("other key",table.probe(54321L),0L);
+
+		// The last square of a 64x64 board, at the deepest depth
+		table.store(777L, TranspositionTable.MAX_DEPTH, -2000000, TranspositionTable.UPPER, 64*64-1);
+		entry=table.probe(777L);
+		assertEquals(TranspositionTable.getScore(entry),-2000000);
+		assertEquals(TranspositionTable.getDepth(entry),255);
+		assertEquals(TranspositionTable.getFlag(entry),TranspositionTable.UPPER);
+		assertEquals(TranspositionTable.getBestSquare(entry),4095);
+	}
+
+	@Test
+	public void testReplacement() {
+		// Keys in the same bucket, differing above the bucket index
+		long deep=1L<<40, shallow=2L<<40, newest=3L<<40;
+		table.store(deep, 10, 1, TranspositionTable.EXACT, -1);
+		table.store(shallow, 2, 2, TranspositionTable.EXACT, -1);
+		assertEquals("shallow beside deep",TranspositionTable.getScore(table.probe(shallow)),2);
+		table.store(newest, 3, 3, TranspositionTable.EXACT, -1);
+		assertEquals("deep kept",TranspositionTable.getScore(table.probe(deep)),1);
+		assertEquals("newest kept",TranspositionTable.getScore(table.probe(newest)),3);
+		assertEquals("shallow replaced",table.probe(shallow),0L);
+		assertEquals(TranspositionTable.getBestSquare(table.probe(deep)),-1);
+	}
+
+	@Test
+	public void testClear() {
+		table.store(12345L, 7, 1, TranspositionTable.EXACT, 0);
+		table.clear();
+		assertEquals(table.probe(12345L),0L);
+	}
+}